@@ -0,0 +1,64 @@
+package benchmarks;
+
+import generator.DatasetGenerator;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+//Generates the inputs once per trial in a temporary directory, reports are written there too
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    private static final long SEED = 42;
+    private static final int MAX_PRODUCTS_PER_ORDER = 10;
+
+    @Param({"100000"})
+    public long customers;
+
+    @Param({"1000"})
+    public long products;
+
+    @Param({"10000", "1000000"})
+    public long orders;
+
+    //Zipf exponent of both product popularity and customer activity
+    @Param({"0", "1"})
+    public double skew;
+
+    public Path directory;
+
+    @Setup
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("benchmark");
+        new DatasetGenerator(customers, products, orders, MAX_PRODUCTS_PER_ORDER, skew, skew,
+                DatasetGenerator.DEFAULT_PRICE_SCALE, SEED, Runtime.getRuntime().availableProcessors()).generate(directory);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public File getCustomers() {
+        return directory.resolve(DatasetGenerator.CUSTOMERS_CSV).toFile();
+    }
+
+    public File getProducts() {
+        return directory.resolve(DatasetGenerator.PRODUCTS_CSV).toFile();
+    }
+
+    public File getOrders() {
+        return directory.resolve(DatasetGenerator.ORDERS_CSV).toFile();
+    }
+}
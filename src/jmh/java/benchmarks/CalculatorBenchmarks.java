@@ -0,0 +1,126 @@
+package benchmarks;
+
+import calculators.CustomerRankingCalculator;
+import calculators.HeavyHitterCalculator;
+import calculators.OrderPriceCalculator;
+import calculators.ProductCustomerCalculator;
+import handler.FileCalculator;
+import handler.SharedIngestion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ReadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//Each public entry point of the calculators over the generated dataset
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CalculatorBenchmarks {
+
+    private static final int TOP_CUSTOMERS = 100;
+    private static final int HEAVY_HITTERS = 100;
+    //IngestionBenchmarks has the scaling from one thread up
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    @Param({"BUFFERED_READER", "MEMORY_MAPPED", "COLUMNAR_CACHE"})
+    public ReadMode readMode;
+
+    @Benchmark
+    public File orderPrices(final BenchmarkDataset dataset) throws IOException {
+        return orderPriceCalculator(dataset).calculateOrderPrices();
+    }
+
+    @Benchmark
+    public File orderPricesStreaming(final BenchmarkDataset dataset) throws IOException {
+        return orderPriceCalculator(dataset).calculateOrderPricesStreaming();
+    }
+
+    @Benchmark
+    public File productCustomers(final BenchmarkDataset dataset) throws IOException {
+        return productCustomerCalculator(dataset).calculateProductCustomers();
+    }
+
+    @Benchmark
+    public File distinctCustomerEstimates(final BenchmarkDataset dataset) throws IOException {
+        return productCustomerCalculator(dataset).calculateDistinctCustomerEstimates();
+    }
+
+    @Benchmark
+    public File customerRanking(final BenchmarkDataset dataset) throws IOException {
+        return customerRankingCalculator(dataset).calculateCustomerRanking();
+    }
+
+    @Benchmark
+    public File topCustomerRanking(final BenchmarkDataset dataset) throws IOException {
+        return customerRankingCalculator(dataset).calculateTopCustomerRanking(TOP_CUSTOMERS);
+    }
+
+    @Benchmark
+    public List<File> heavyHitters(final BenchmarkDataset dataset) throws IOException {
+        return heavyHitterCalculator(dataset, HeavyHitterCalculator.Mode.APPROXIMATE).calculateHeavyHitters();
+    }
+
+    @Benchmark
+    public List<File> exactHeavyHitters(final BenchmarkDataset dataset) throws IOException {
+        return heavyHitterCalculator(dataset, HeavyHitterCalculator.Mode.EXACT).calculateHeavyHitters();
+    }
+
+    @Benchmark
+    public List<File> allReports(final BenchmarkDataset dataset) throws IOException {
+        return new FileCalculator(
+                orderPriceCalculator(dataset),
+                productCustomerCalculator(dataset),
+                customerRankingCalculator(dataset),
+                new SharedIngestion(dataset.getProducts(), dataset.getOrders(), readMode, PARALLELISM)
+        ).calculateAllReports();
+    }
+
+    @Benchmark
+    public List<File> allReportsConcurrently(final BenchmarkDataset dataset) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            return new FileCalculator(
+                    orderPriceCalculator(dataset),
+                    productCustomerCalculator(dataset),
+                    customerRankingCalculator(dataset)
+            ).calculateAllReports(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private OrderPriceCalculator orderPriceCalculator(final BenchmarkDataset dataset) {
+        return new OrderPriceCalculator(dataset.getProducts(), dataset.getOrders(), dataset.directory, readMode);
+    }
+
+    private ProductCustomerCalculator productCustomerCalculator(final BenchmarkDataset dataset) {
+        return new ProductCustomerCalculator(dataset.getOrders(), dataset.directory, readMode);
+    }
+
+    private HeavyHitterCalculator heavyHitterCalculator(final BenchmarkDataset dataset, final HeavyHitterCalculator.Mode mode) {
+        final HeavyHitterCalculator calculator = new HeavyHitterCalculator(dataset.getOrders(), dataset.directory, readMode, HEAVY_HITTERS);
+        calculator.setMode(mode);
+        return calculator;
+    }
+
+    private CustomerRankingCalculator customerRankingCalculator(final BenchmarkDataset dataset) {
+        return new CustomerRankingCalculator(dataset.getCustomers(), dataset.getProducts(), dataset.getOrders(), dataset.directory, readMode);
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.CsvWriter;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+//Writing id,total rows up to 10M, generated as they are written so only the writers are measured: records of boxed
+//values through Utils.writeCsv against the CsvWriter fields the calculators use
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CsvWriteBenchmarks {
+
+    private static final String HEADER = "id,total";
+    private static final int TOTAL_SCALE = 2;
+
+    @Param({"1000000", "10000000"})
+    public long rows;
+
+    private Path directory;
+
+    @Setup
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("write-benchmark");
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public File records() throws IOException {
+        final Stream<List<Object>> records = LongStream.range(0, rows)
+                .mapToObj(id -> Arrays.asList(id, BigDecimal.valueOf(totalOf(id), TOTAL_SCALE)));
+        return Utils.writeCsv(HEADER, "records.csv", records, directory);
+    }
+
+    @Benchmark
+    public File bigDecimalFields() throws IOException {
+        final File file = directory.resolve("big_decimal_fields.csv").toFile();
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeHeader(HEADER);
+            for (long id = 0; id < rows; id++) {
+                writer.field(id).field(BigDecimal.valueOf(totalOf(id), TOTAL_SCALE)).endRecord();
+            }
+        }
+        return file;
+    }
+
+    @Benchmark
+    public File moneyFields() throws IOException {
+        final File file = directory.resolve("money_fields.csv").toFile();
+        final Money total = new Money(TOTAL_SCALE);
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeHeader(HEADER);
+            for (long id = 0; id < rows; id++) {
+                total.clear();
+                total.add(totalOf(id), TOTAL_SCALE, 1);
+                writer.field(id).field(total).endRecord();
+            }
+        }
+        return file;
+    }
+
+    private static long totalOf(final long id) {
+        return id * 7919 % 10_000_000;
+    }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import generator.DatasetGenerator;
+import model.Customer;
+import model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import structures.LongMoneyMap;
+import utils.CustomerJoin;
+import utils.RankingRows;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toMap;
+
+//Joining customers.csv with the customer totals, the way the ranking used to (a Customer map zipped by id) against the join stage
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class CustomerJoinBenchmarks {
+
+    private static final long SEED = 42;
+    private static final int TOTALS_SCALE = 15;
+
+    @Param({"1000000", "100000000"})
+    public long customers;
+
+    //Share of the customers that ordered something
+    @Param({"0.1"})
+    public double orderingCustomers;
+
+    @Param({"MEMORY_MAPPED", "COLUMNAR_CACHE"})
+    public ReadMode readMode;
+
+    private Path directory;
+    private File customersCsv;
+    private LongMoneyMap totals;
+
+    @Setup
+    public void generate() throws IOException {
+        directory = Files.createTempDirectory("join-benchmark");
+        customersCsv = directory.resolve(DatasetGenerator.CUSTOMERS_CSV).toFile();
+        new DatasetGenerator(customers, 1, 0).writeCustomers(customersCsv.toPath());
+
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final Money total = new Money(TOTALS_SCALE);
+        totals = new LongMoneyMap(TOTALS_SCALE);
+        for (long customer = 0; customer < customers; customer++) {
+            if (random.nextDouble() < orderingCustomers) {
+                total.clear();
+                total.add(random.nextLong(1, Long.MAX_VALUE / 1000), TOTALS_SCALE, 1);
+                totals.put(customer, total);
+            }
+        }
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public Map<Customer, BigDecimal> customerMapZippedById() throws IOException {
+        final Map<Long, Customer> customerData = new HashMap<>();
+        Utils.forEachCustomer(customersCsv, readMode, totals::containsKey, (customerId, firstName, lastName) ->
+                customerData.put(customerId, new Customer(customerId, firstName, lastName))
+        );
+        return zipById(customerData, totals::get);
+    }
+
+    @Benchmark
+    public RankingRows hashJoin() throws IOException {
+        final RankingRows rows = new RankingRows(totals);
+        CustomerJoin.hashJoin(customersCsv, readMode, totals, rows::add);
+        return rows;
+    }
+
+    @Benchmark
+    public RankingRows hashJoinAndSort() throws IOException {
+        final RankingRows rows = hashJoin();
+        rows.sortByTotal();
+        return rows;
+    }
+
+    //What the ranking used to do with the customer map, reading the totals straight from the LongMoneyMap
+    private static <T, U> Map<T, U> zipById(final Map<Long, T> keyMap, final LongFunction<U> valueById) {
+        return keyMap.entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getValue, entry -> valueById.apply(entry.getKey())));
+    }
+}
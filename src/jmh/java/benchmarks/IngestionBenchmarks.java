@@ -0,0 +1,109 @@
+package benchmarks;
+
+import calculators.CustomerRankingCalculator;
+import calculators.OrderPriceCalculator;
+import calculators.ProductCustomerCalculator;
+import handler.FileCalculator;
+import handler.SharedIngestion;
+import metrics.MetricsListener;
+import model.IngestedOrders;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ReadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Ingesting orders and products with 1 to N threads, and the three reports from a shared ingestion against each
+//calculator reading its own inputs one after the other. Bytes read are added up from the stage metrics, JMH only reports
+//them outside of single shot mode
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmarks {
+
+    @Param({"BUFFERED_READER", "MEMORY_MAPPED"})
+    public ReadMode readMode;
+
+    //Only the benchmarks that ingest in parallel take it, so the sequential one isn't repeated for each thread count
+    @State(Scope.Benchmark)
+    public static class Threads {
+        @Param({"1", "2", "4", "8"})
+        public int parallelism;
+    }
+
+    //Every call reads the same bytes, so the last one's are reported
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ReadBytes {
+        public long bytesRead;
+
+        private MetricsListener listener() {
+            final AtomicLong counted = new AtomicLong();
+            return metrics -> bytesRead = counted.addAndGet(metrics.getBytesRead());
+        }
+    }
+
+    @Benchmark
+    public IngestedOrders ingest(final BenchmarkDataset dataset, final Threads threads, final ReadBytes readBytes) throws IOException {
+        final SharedIngestion ingestion = new SharedIngestion(dataset.getProducts(), dataset.getOrders(), readMode, threads.parallelism);
+        ingestion.setMetricsListener(readBytes.listener());
+        return ingestion.ingest();
+    }
+
+    @Benchmark
+    public List<File> allReportsShared(final BenchmarkDataset dataset, final Threads threads, final ReadBytes readBytes) throws IOException {
+        final FileCalculator calculator = new FileCalculator(
+                orderPriceCalculator(dataset),
+                productCustomerCalculator(dataset),
+                customerRankingCalculator(dataset),
+                new SharedIngestion(dataset.getProducts(), dataset.getOrders(), readMode, threads.parallelism)
+        );
+        calculator.setMetricsListener(readBytes.listener());
+        return calculator.calculateAllReports();
+    }
+
+    //How the reports were generated before the shared ingestion: each calculator parses orders.csv (and products.csv) again
+    @Benchmark
+    public List<File> allReportsSequential(final BenchmarkDataset dataset, final ReadBytes readBytes) throws IOException {
+        final FileCalculator calculator = new FileCalculator(
+                orderPriceCalculator(dataset),
+                productCustomerCalculator(dataset),
+                customerRankingCalculator(dataset)
+        );
+        calculator.setMetricsListener(readBytes.listener());
+        return Arrays.asList(
+                calculator.calculateOrderPrices(),
+                calculator.calculateCustomerRanking(),
+                calculator.calculateProductCustomers()
+        );
+    }
+
+    private OrderPriceCalculator orderPriceCalculator(final BenchmarkDataset dataset) {
+        return new OrderPriceCalculator(dataset.getProducts(), dataset.getOrders(), dataset.directory, readMode);
+    }
+
+    private ProductCustomerCalculator productCustomerCalculator(final BenchmarkDataset dataset) {
+        return new ProductCustomerCalculator(dataset.getOrders(), dataset.directory, readMode);
+    }
+
+    private CustomerRankingCalculator customerRankingCalculator(final BenchmarkDataset dataset) {
+        return new CustomerRankingCalculator(dataset.getCustomers(), dataset.getProducts(), dataset.getOrders(), dataset.directory, readMode);
+    }
+}
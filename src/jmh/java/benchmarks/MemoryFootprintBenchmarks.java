@@ -0,0 +1,142 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structures.LongHashSet;
+import structures.LongLongMap;
+import structures.LongObjectMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//Heap kept by the primitive collections against the boxed ones they replaced, for the same random keys. The time
+//includes the collections forced around each build, only the retainedBytes counter is meant to be compared (JMH only
+//reports it outside of single shot mode)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MemoryFootprintBenchmarks {
+
+    private static final long SEED = 42;
+
+    @Param({"1000000", "10000000"})
+    public int entries;
+
+    private long[] keys;
+
+    //Of the last structure built
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long retainedBytes;
+    }
+
+    @Setup
+    public void generate() {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        keys = new long[entries];
+        for (int index = 0; index < entries; index++) {
+            keys[index] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public Object longLongMap(final Retained retained) {
+        return measure(retained, () -> {
+            final LongLongMap map = new LongLongMap();
+            for (long key : keys) {
+                map.put(key, key);
+            }
+            return map;
+        });
+    }
+
+    @Benchmark
+    public Object boxedLongMap(final Retained retained) {
+        return measure(retained, () -> {
+            final Map<Long, Long> map = new HashMap<>();
+            for (long key : keys) {
+                map.put(key, key);
+            }
+            return map;
+        });
+    }
+
+    @Benchmark
+    public Object longObjectMap(final Retained retained) {
+        return measure(retained, () -> {
+            final LongObjectMap<String> map = new LongObjectMap<>();
+            for (long key : keys) {
+                map.put(key, "");
+            }
+            return map;
+        });
+    }
+
+    @Benchmark
+    public Object boxedObjectMap(final Retained retained) {
+        return measure(retained, () -> {
+            final Map<Long, String> map = new HashMap<>();
+            for (long key : keys) {
+                map.put(key, "");
+            }
+            return map;
+        });
+    }
+
+    @Benchmark
+    public Object longHashSet(final Retained retained) {
+        return measure(retained, () -> {
+            final LongHashSet set = new LongHashSet();
+            for (long key : keys) {
+                set.add(key);
+            }
+            return set;
+        });
+    }
+
+    @Benchmark
+    public Object boxedSet(final Retained retained) {
+        return measure(retained, () -> {
+            final Set<Long> set = new HashSet<>();
+            for (long key : keys) {
+                set.add(key);
+            }
+            return set;
+        });
+    }
+
+    //Used heap after a full collection, before and after building the structure while it's still referenced
+    private static Object measure(final Retained retained, final Supplier<Object> build) {
+        final long before = usedHeap();
+        final Object structure = build.get();
+        retained.retainedBytes = usedHeap() - before;
+        return structure;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int collection = 0; collection < 3; collection++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks;
+
+import model.Money;
+import model.PriceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import structures.LongObjectMap;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+//Adding up the price of every order, already parsed in memory: fixed point Money against the BigDecimal sums it replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrderTotalBenchmarks {
+
+    private LongObjectMap<BigDecimal> prices;
+    //The products of order i are orderedProducts[orderStarts[i], orderStarts[i + 1])
+    private long[] orderedProducts;
+    private int[] orderStarts;
+    private int orderCount;
+
+    @Setup
+    public void load(final BenchmarkDataset dataset) throws IOException {
+        prices = new LongObjectMap<>();
+        Utils.forEachProductPrice(dataset.getProducts(), ReadMode.MEMORY_MAPPED, prices::put);
+
+        orderedProducts = new long[1024];
+        orderStarts = new int[(int) dataset.orders + 1];
+        Utils.forEachOrder(dataset.getOrders(), ReadMode.MEMORY_MAPPED, (orderId, customerId, products, productCount) -> {
+            final int start = orderStarts[orderCount];
+            if (start + productCount > orderedProducts.length) {
+                orderedProducts = Arrays.copyOf(orderedProducts, Math.max(start + productCount, orderedProducts.length * 2));
+            }
+            System.arraycopy(products, 0, orderedProducts, start, productCount);
+            orderStarts[++orderCount] = start + productCount;
+        });
+    }
+
+    @Benchmark
+    public void fixedPoint(final Blackhole blackhole) {
+        final PriceTable priceTable = PriceTable.of(prices);
+        final Money total = priceTable.newAmount();
+
+        for (int order = 0; order < orderCount; order++) {
+            total.clear();
+            for (int index = orderStarts[order]; index < orderStarts[order + 1]; index++) {
+                priceTable.addPrice(total, orderedProducts[index], 1);
+            }
+            blackhole.consume(total.getUnscaled());
+        }
+    }
+
+    @Benchmark
+    public void bigDecimal(final Blackhole blackhole) {
+        for (int order = 0; order < orderCount; order++) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (int index = orderStarts[order]; index < orderStarts[order + 1]; index++) {
+                total = total.add(prices.get(orderedProducts[index]).multiply(BigDecimal.ONE));
+            }
+            blackhole.consume(total);
+        }
+    }
+}
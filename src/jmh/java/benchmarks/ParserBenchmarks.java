@@ -0,0 +1,68 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Reading orders.csv by splitting each line into strings, as the calculators used to, against the csv tokenizers
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmarks {
+
+    @Benchmark
+    public void splitLines(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(dataset.getOrders()))) {
+            //Header
+            reader.readLine();
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final List<String> record = Utils.splitByComma(line);
+                blackhole.consume(Utils.getRecordId(record));
+                blackhole.consume(Utils.getCustomerFromOrderRecord(record));
+                for (String product : Utils.splitProducts(record)) {
+                    blackhole.consume(Long.parseLong(product));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void readerTokenizer(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        tokenize(dataset, ReadMode.BUFFERED_READER, blackhole);
+    }
+
+    @Benchmark
+    public void mappedTokenizer(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        tokenize(dataset, ReadMode.MEMORY_MAPPED, blackhole);
+    }
+
+    private static void tokenize(final BenchmarkDataset dataset, final ReadMode readMode, final Blackhole blackhole) throws IOException {
+        Utils.forEachOrder(dataset.getOrders(), readMode, (orderId, customerId, products, productCount) -> {
+            blackhole.consume(orderId);
+            blackhole.consume(customerId);
+            for (int index = 0; index < productCount; index++) {
+                blackhole.consume(products[index]);
+            }
+        });
+    }
+}
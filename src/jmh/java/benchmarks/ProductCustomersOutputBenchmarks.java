@@ -0,0 +1,59 @@
+package benchmarks;
+
+import calculators.ProductCustomerCalculator;
+import handler.SharedIngestion;
+import model.IngestedOrders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.CustomerListEncoding;
+import utils.OutputOptions;
+import utils.ReadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+//Only writing product_customers, from orders ingested once, for each customer list encoding and output option
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductCustomersOutputBenchmarks {
+
+    @Param({"TEXT", "DELTA_TEXT", "VARINT_DELTA"})
+    public CustomerListEncoding customerListEncoding;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"1", "4"})
+    public int partitions;
+
+    private IngestedOrders ingestedOrders;
+    private ProductCustomerCalculator calculator;
+
+    @Setup
+    public void ingest(final BenchmarkDataset dataset) throws IOException {
+        ingestedOrders = new SharedIngestion(dataset.getProducts(), dataset.getOrders(), ReadMode.MEMORY_MAPPED).ingest();
+
+        calculator = new ProductCustomerCalculator(dataset.getOrders(), dataset.directory, ReadMode.MEMORY_MAPPED);
+        calculator.setCustomerListEncoding(customerListEncoding);
+        calculator.setOutputOptions(new OutputOptions(gzip, partitions, OutputOptions.Partitioning.HASH));
+    }
+
+    @Benchmark
+    public File productCustomers() throws IOException {
+        return calculator.calculateProductCustomers(ingestedOrders);
+    }
+}
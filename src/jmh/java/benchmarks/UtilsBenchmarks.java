@@ -0,0 +1,88 @@
+package benchmarks;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+
+//The parse and write helpers every calculator goes through, on their own
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UtilsBenchmarks {
+
+    private static final String HEADER = "id,total";
+
+    @Param({"BUFFERED_READER", "MEMORY_MAPPED", "COLUMNAR_CACHE"})
+    public ReadMode readMode;
+
+    private Map<Long, BigDecimal> totals;
+    private List<List<Object>> records;
+
+    @Setup
+    public void prepare(final BenchmarkDataset dataset) {
+        final SplittableRandom random = new SplittableRandom(dataset.orders);
+
+        totals = new HashMap<>();
+        records = new ArrayList<>();
+        for (long id = 0; id < dataset.orders; id++) {
+            final BigDecimal total = BigDecimal.valueOf(random.nextDouble(0.01, 1000));
+            totals.put(id, total);
+            records.add(asList(id, total));
+        }
+    }
+
+    @Benchmark
+    public void forEachOrder(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        Utils.forEachOrder(dataset.getOrders(), readMode, (orderId, customer, products, productCount) -> {
+            blackhole.consume(customer);
+            blackhole.consume(products[productCount - 1]);
+        });
+    }
+
+    @Benchmark
+    public void forEachProductPrice(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        Utils.forEachProductPrice(dataset.getProducts(), readMode, (productId, price) -> blackhole.consume(price));
+    }
+
+    @Benchmark
+    public void forEachCustomer(final BenchmarkDataset dataset, final Blackhole blackhole) throws IOException {
+        Utils.forEachCustomer(dataset.getCustomers(), readMode, customer -> true, (customerId, firstName, lastName) -> blackhole.consume(lastName));
+    }
+
+    @Benchmark
+    public File writeCsv(final BenchmarkDataset dataset) throws IOException {
+        return Utils.writeCsv(HEADER, "write_csv.csv", records, dataset.directory);
+    }
+
+    @Benchmark
+    public List<Pair<Long, BigDecimal>> sortByValue() {
+        return Utils.sortByValue(totals);
+    }
+}
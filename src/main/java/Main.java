@@ -1,43 +1,108 @@
 import calculators.CustomerRankingCalculator;
+import calculators.HeavyHitterCalculator;
 import calculators.OrderPriceCalculator;
 import calculators.ProductCustomerCalculator;
 import handler.FileCalculator;
+import handler.SharedIngestion;
+import metrics.JsonRunReport;
+import utils.CommandLineOptions;
+import utils.CustomerListEncoding;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ReadMode;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+//Reads the bundled csvs unless given others and writes plain single file reports unless told otherwise:
+//  [--customers FILE] [--products FILE] [--orders FILE] [--gzip true] [--partitions N | --part-bytes BYTES]
+//  [--customer-lists text|delta-text|varint-delta] [--heavy-hitters K] [--heavy-hitter-mode approximate|exact]
 public class Main {
 
+    private final static String USAGE = "Usage: [--customers FILE] [--products FILE] [--orders FILE]"
+            + " [--gzip true] [--partitions N | --part-bytes BYTES] [--customer-lists text|delta-text|varint-delta]"
+            + " [--heavy-hitters K] [--heavy-hitter-mode approximate|exact]."
+            + " A - reads standard input and .gz files are decompressed as they are read";
+    private final static String STDIN = "-";
+
     private final static String CUSTOMERS_CSV = "customers.csv";
     private final static String ORDERS_CSV = "orders.csv";
     private final static String PRODUCTS_CSV = "products.csv";
 
     private final static Path OUT_DIRECTORY = Paths.get(".");
+    //Lets the next run only parse the orders appended since this one
+    private final static Path SNAPSHOT = OUT_DIRECTORY.resolve("aggregates.snapshot");
 
 
     public static void main(String[] args) throws IOException {
-        final File customers = new File(Main.class.getResource(CUSTOMERS_CSV).getFile());
-        final File products = new File(Main.class.getResource(PRODUCTS_CSV).getFile());
-        final File orders = new File(Main.class.getResource(ORDERS_CSV).getFile());
+        final CommandLineOptions options = CommandLineOptions.parse(args, USAGE);
+        final InputSource customers = getInput(options, "customers", CUSTOMERS_CSV);
+        final InputSource products = getInput(options, "products", PRODUCTS_CSV);
+        final InputSource orders = getInput(options, "orders", ORDERS_CSV);
+        if (options.get("heavy-hitters", null) != null && STDIN.equals(options.get("orders", null))) {
+            throw new IllegalArgumentException("Heavy hitters read the orders a second time, so they can't come from standard input. " + USAGE);
+        }
 
         final CustomerRankingCalculator customerRankingCalculator
-                = new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY);
+                = new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY, ReadMode.COLUMNAR_CACHE);
         final OrderPriceCalculator orderPriceCalculator
-                = new OrderPriceCalculator(products, orders, OUT_DIRECTORY);
+                = new OrderPriceCalculator(products, orders, OUT_DIRECTORY, ReadMode.BUFFERED_READER);
         final ProductCustomerCalculator productCustomerCalculator
-                = new ProductCustomerCalculator(orders, OUT_DIRECTORY);
+                = new ProductCustomerCalculator(orders, OUT_DIRECTORY, ReadMode.BUFFERED_READER);
+        productCustomerCalculator.setCustomerListEncoding(
+                CustomerListEncoding.valueOf(options.get("customer-lists", "text").toUpperCase().replace('-', '_'))
+        );
 
         final FileCalculator calculator
                 = new FileCalculator(
                 orderPriceCalculator,
                 productCustomerCalculator,
-                customerRankingCalculator
+                customerRankingCalculator,
+                new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, Runtime.getRuntime().availableProcessors(), SNAPSHOT)
         );
 
-        calculator.calculateOrderPrices();
-        calculator.calculateCustomerRanking();
-        calculator.calculateProductCustomers();
+        final JsonRunReport runReport = new JsonRunReport();
+        //N hash partitions, or range partitions of about that many bytes each
+        final boolean gzip = Boolean.parseBoolean(options.get("gzip", "false"));
+        final String partBytes = options.get("part-bytes", null);
+        final OutputOptions outputOptions = partBytes != null
+                ? OutputOptions.rangeParts(gzip, Long.parseLong(partBytes))
+                : new OutputOptions(gzip, Integer.parseInt(options.get("partitions", "1")), OutputOptions.Partitioning.HASH);
+        calculator.setMetricsListener(runReport);
+        calculator.setOutputOptions(outputOptions);
+
+        //One thread per report
+        final ExecutorService reports = Executors.newFixedThreadPool(3);
+        try {
+            calculator.calculateAllReports(reports);
+        } finally {
+            reports.shutdownNow();
+        }
+
+        //A second pass over the orders, after the reports
+        final String heavyHitters = options.get("heavy-hitters", null);
+        if (heavyHitters != null) {
+            final HeavyHitterCalculator heavyHitterCalculator
+                    = new HeavyHitterCalculator(orders, OUT_DIRECTORY, ReadMode.BUFFERED_READER, Integer.parseInt(heavyHitters));
+            heavyHitterCalculator.setMode(HeavyHitterCalculator.Mode.valueOf(options.get("heavy-hitter-mode", "approximate").toUpperCase()));
+            heavyHitterCalculator.setMetricsListener(runReport);
+            heavyHitterCalculator.setOutputOptions(outputOptions);
+            heavyHitterCalculator.calculateHeavyHitters();
+        }
+
+        runReport.writeTo(OUT_DIRECTORY);
+    }
+
+    //The shared ingestion reads products and orders once and the ranking reads customers once, so any of them can be piped in
+    private static InputSource getInput(final CommandLineOptions options, final String name, final String resource) {
+        final String path = options.get(name, null);
+        if (path == null) {
+            return InputSource.ofResource(Main.class, resource);
+        }
+        return STDIN.equals(path) ? InputSource.stdin() : InputSource.of(new File(path));
     }
 }
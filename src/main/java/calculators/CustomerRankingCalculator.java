@@ -1,202 +1,253 @@
 package calculators;
 
-import model.Customer;
-import org.apache.commons.lang3.tuple.Pair;
+import metrics.MetricsListener;
+import metrics.Stage;
+import metrics.StageTimer;
+import model.IngestedOrders;
+import model.Money;
+import model.PriceTable;
+import structures.LongLongMap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+import utils.CustomerJoin;
+import utils.ExternalRankingSorter;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ProductPriceIndex;
+import utils.RankingRows;
+import utils.ReadMode;
+import utils.ReportOutput;
+import utils.TopRankingRows;
 import utils.Utils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-
-import static java.util.Arrays.asList;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
+import java.nio.file.Paths;
 
 public class CustomerRankingCalculator {
-    private final File customers;
-    private final File products;
-    private final File orders;
+    private static final String HEADER = "id,firstname,lastname,total_euros";
+    private static final String FILE_NAME = "customer_ranking.csv";
+
+    private static final long IN_MEMORY_RANKING = 0;
+    private static final Path DEFAULT_SPILL_DIRECTORY = Paths.get(System.getProperty("java.io.tmpdir"));
+
+    private final InputSource customers;
+    private final InputSource products;
+    private final InputSource orders;
     private final Path outDirectory;
+    private final ReadMode readMode;
+    private final PriceIndexHolder productPriceIndex;
+    private final long rankingMemoryBudget;
+    private MetricsListener metricsListener = MetricsListener.NOOP;
+    private OutputOptions outputOptions = OutputOptions.PLAIN;
+    private Path spillDirectory = DEFAULT_SPILL_DIRECTORY;
 
     public CustomerRankingCalculator(final File customers, final File products, final File orders, final Path outDirectory) {
+        this(customers, products, orders, outDirectory, ReadMode.BUFFERED_READER);
+    }
 
+    public CustomerRankingCalculator(final File customers, final File products, final File orders, final Path outDirectory, final ReadMode readMode) {
+        this(customers, products, orders, outDirectory, readMode, IN_MEMORY_RANKING);
+    }
+
+    //With a positive memory budget (in bytes), the full ranking is sorted externally, spilling to temporary files
+    public CustomerRankingCalculator(final File customers, final File products, final File orders, final Path outDirectory, final ReadMode readMode, final long rankingMemoryBudget) {
+        this(InputSource.of(customers), InputSource.of(products), InputSource.of(orders), outDirectory, readMode, rankingMemoryBudget);
+    }
+
+    public CustomerRankingCalculator(final InputSource customers, final InputSource products, final InputSource orders, final Path outDirectory, final ReadMode readMode) {
+        this(customers, products, orders, outDirectory, readMode, IN_MEMORY_RANKING);
+    }
+
+    public CustomerRankingCalculator(final InputSource customers, final InputSource products, final InputSource orders, final Path outDirectory, final ReadMode readMode, final long rankingMemoryBudget) {
         this.customers = customers;
         this.products = products;
         this.orders = orders;
         this.outDirectory = outDirectory;
+        this.readMode = readMode;
+        this.rankingMemoryBudget = rankingMemoryBudget;
+        this.productPriceIndex = new PriceIndexHolder(products);
     }
 
     public File calculateCustomerRanking() throws IOException {
-        final String header = "id,firstname,lastname,total_euros";
-        final String fileName = "customer_ranking.csv";
+        if (rankingMemoryBudget > IN_MEMORY_RANKING) {
+            return writeCustomerRankingExternallySorted(getPriceTotalsByCustomerId());
+        }
+        return writeCustomerRanking(rankCustomers(getPriceTotalsByCustomerId()));
+    }
+
+    public File calculateCustomerRanking(final IngestedOrders ingestedOrders) throws IOException {
+        if (rankingMemoryBudget > IN_MEMORY_RANKING) {
+            return writeCustomerRankingExternallySorted(ingestedOrders.getCustomerTotals());
+        }
+        return writeCustomerRanking(rankCustomers(ingestedOrders.getCustomerTotals()));
+    }
+
+    //Only the k biggest spenders, same format as the full ranking
+    public File calculateTopCustomerRanking(final int k) throws IOException {
+        return writeCustomerRanking(rankTopCustomers(getPriceTotalsByCustomerId(), k));
+    }
+
+    public File calculateTopCustomerRanking(final IngestedOrders ingestedOrders, final int k) throws IOException {
+        return writeCustomerRanking(rankTopCustomers(ingestedOrders.getCustomerTotals(), k));
+    }
+
+    //See PriceIndexHolder
+    public ProductPriceIndex getProductPriceIndex() throws IOException {
+        return productPriceIndex.get();
+    }
+
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public void setOutputOptions(final OutputOptions outputOptions) {
+        this.outputOptions = outputOptions;
+    }
+
+    //Where the externally sorted ranking spills its runs, the system temporary directory unless told otherwise
+    public void setSpillDirectory(final Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
 
-        final List<Pair<Customer, BigDecimal>> customerExpendings = getCustomersTotalExpendingFromOrders();
-        final List<List<Object>> contents = transformCustomerExpendingToRecords(customerExpendings);
+    private File writeCustomerRanking(final RankingRows ranking) throws IOException {
+        final StageTimer writing = startStage(Stage.WRITE);
+        final File file = new ReportOutput(outDirectory, outputOptions).write(FILE_NAME, HEADER, ranking.size(), ranking::getCustomerId, () -> {
+            final Money total = ranking.newTotal();
+            return (writer, row) -> ranking.writeRow(writer, row, total);
+        });
+        writing.rows(ranking.size()).bytesWritten(ReportOutput.sizeOf(file)).stop();
 
-        return Utils.writeCsv(header, fileName, contents, outDirectory);
+        return file;
     }
 
-    private List<Pair<Customer, BigDecimal>> getCustomersTotalExpendingFromOrders() throws IOException {
-        final Map<Long, Map<Long, Long>> productsOrderedByCustomerId = getProductsOrderedByCustomerId();
-        final Set<Long> productsToRetrieveInfoFromOrderedProducts =
-                getProductsToRetrieveInfoFromOrderedProducts(productsOrderedByCustomerId);
-        final Map<Long, BigDecimal> productPrices = getProductPrices(productsToRetrieveInfoFromOrderedProducts);
-        final Map<Long, BigDecimal> priceTotalsByCustomerId = getPriceTotals(productsOrderedByCustomerId, productPrices);
-        final Map<Long, Customer> customerData = getCustomerData(productsOrderedByCustomerId.keySet());
-        final Map<Customer, BigDecimal> customerExpendings = Utils.zipById(customerData, priceTotalsByCustomerId);
+    //Customers are handed to the sorter as customers.csv is read, and written as the sorted runs are merged. Ties are broken by customer id.
+    //This is the mode for more customers than fit in memory: they are hash joined, so nothing but the totals the ranking
+    //starts from is kept besides the sorter's budget. The ranking is written while merging, so it always goes to a single file
+    private File writeCustomerRankingExternallySorted(final LongMoneyMap priceTotalsByCustomerId) throws IOException {
+        final File file;
+        final StageTimer writing;
+
+        try (ExternalRankingSorter sorter = new ExternalRankingSorter(rankingMemoryBudget, priceTotalsByCustomerId.getScale(), spillDirectory)) {
+
+            //Includes spilling the sorted runs
+            final StageTimer lookingUpCustomers = startStage(Stage.CUSTOMER_LOOKUP);
+            final Money total = new Money(priceTotalsByCustomerId.getScale());
+            CustomerJoin.hashJoin(this.customers, readMode, priceTotalsByCustomerId, (customerId, firstName, lastName, totalIndex) ->
+                    sorter.add(customerId, firstName, lastName, priceTotalsByCustomerId.getAt(totalIndex, total))
+            );
+            lookingUpCustomers.rows(priceTotalsByCustomerId.size()).bytesRead(this.customers.length()).stop();
+
+            //Merging the runs and writing
+            writing = startStage(Stage.WRITE);
+            file = new ReportOutput(outDirectory, outputOptions).write(FILE_NAME, HEADER, writer ->
+                    sorter.forEachSorted((customerId, firstName, lastName, customerTotal) ->
+                            writer.field(customerId)
+                                    .field(firstName)
+                                    .field(lastName)
+                                    .field(customerTotal)
+                                    .endRecord()
+                    )
+            );
+        }
+        writing.rows(priceTotalsByCustomerId.size()).bytesWritten(ReportOutput.sizeOf(file)).stop();
+
+        return file;
+    }
 
-        return Utils.sortByValue(customerExpendings);
+    //Prices are looked up in the product index as the totals need them
+    private LongMoneyMap getPriceTotalsByCustomerId() throws IOException {
+        final StageTimer parsing = startStage(Stage.PARSE);
+        final LongObjectMap<LongLongMap> productsOrderedByCustomerId = getProductsOrderedByCustomerId();
+        parsing.rows(productsOrderedByCustomerId.size()).bytesRead(this.orders.length()).stop();
+
+        final StageTimer pricing = startStage(Stage.PRICE_LOOKUP);
+        final PriceTable productPrices = getProductPrices();
+        productPriceIndex.startLookups();
+
+        try {
+            final LongMoneyMap priceTotals = getPriceTotals(productsOrderedByCustomerId, productPrices);
+            productPriceIndex.reportLookups(pricing.rows(priceTotals.size())).stop();
+            return priceTotals;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
     }
 
-    private Map<Long, Map<Long, Long>> getProductsOrderedByCustomerId() throws IOException {
-        final BufferedReader orders = new BufferedReader(new FileReader(this.orders));
+    //Customers are hash joined with their totals into flat rows, no Customer or Pair per row. Ties are broken by customer id
+    private RankingRows rankCustomers(final LongMoneyMap priceTotalsByCustomerId) throws IOException {
+        final StageTimer lookingUpCustomers = startStage(Stage.CUSTOMER_LOOKUP);
+        final RankingRows ranking = new RankingRows(priceTotalsByCustomerId);
+        CustomerJoin.hashJoin(this.customers, readMode, priceTotalsByCustomerId, ranking::add);
+        lookingUpCustomers.rows(ranking.size()).bytesRead(this.customers.length()).stop();
+
+        final StageTimer sorting = startStage(Stage.SORT);
+        ranking.sortByTotal();
+        sorting.rows(ranking.size()).stop();
 
-        final Map<Long, Map<Long, Long>> productsOrderedByCustomer = orders.lines()
-                .skip(1)
-                .map(line -> asList(line.split(",")))
-                .collect(
-                        toMap(
-                                Utils::getCustomerFromOrderRecord,
-                                this::countProductsFromOrder,
-                                this::addProductCountsTogether
-                        )
-                );
+        return ranking;
+    }
 
-        orders.close();
+    //Customers are offered to a bounded heap while customers.csv is read, so only k of them are ever kept, in flat rows.
+    //Ties are broken by customer id
+    private RankingRows rankTopCustomers(final LongMoneyMap priceTotalsByCustomerId, final int k) throws IOException {
+        final StageTimer lookingUpCustomers = startStage(Stage.CUSTOMER_LOOKUP);
+        final TopRankingRows topCustomers = new TopRankingRows(priceTotalsByCustomerId, k);
+        CustomerJoin.hashJoin(this.customers, readMode, priceTotalsByCustomerId, topCustomers::add);
+        lookingUpCustomers.rows(topCustomers.size()).bytesRead(this.customers.length()).stop();
+
+        return topCustomers.toRankingRows();
+    }
+
+    //Product counts are added in place for every order of the customer
+    private LongObjectMap<LongLongMap> getProductsOrderedByCustomerId() throws IOException {
+        final LongObjectMap<LongLongMap> productsOrderedByCustomer = new LongObjectMap<>();
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) -> {
+            final LongLongMap productCounts = productsOrderedByCustomer.computeIfAbsent(customerId, newCustomer -> new LongLongMap());
+            for (int index = 0; index < productCount; index++) {
+                productCounts.addTo(products[index], 1);
+            }
+        });
 
         return productsOrderedByCustomer;
     }
 
-    private Map<Long, Long> countProductsFromOrder(List<String> splittedOrderRecord) {
-        return Arrays.stream(Utils.splitProducts(splittedOrderRecord))
-                .map(Long::parseLong)
-                .collect(
-                        groupingBy(
-                                identity(),
-                                counting()
-                        )
-                );
-    }
-
-    private Map<Long, Long> addProductCountsTogether(Map<Long, Long> oneProductCount, Map<Long, Long> otherProductCount) {
-        final HashSet<Long> productsCounted = new HashSet<>(oneProductCount.keySet());
-        productsCounted.addAll(otherProductCount.keySet());
-
-        return productsCounted
-                .stream()
-                .collect(
-                        toMap(
-                                Function.identity(),
-                                product -> Long.sum(
-                                        oneProductCount.getOrDefault(product, 0L),
-                                        otherProductCount.getOrDefault(product, 0L)
-                                )
-                        )
-                );
-    }
-
-    private Set<Long> getProductsToRetrieveInfoFromOrderedProducts(final Map<Long, Map<Long, Long>> productsOrderedById) {
-        return productsOrderedById.values().stream()
-                .map(Map::keySet)
-                .flatMap(Set::stream)
-                .collect(toSet());
-    }
-
-    private Map<Long, BigDecimal> getProductPrices(final Set<Long> productsToRetrieveInfoFromOrderedProducts) throws IOException {
-        final BufferedReader products = new BufferedReader(new FileReader(this.products));
-
-        final Map<Long, BigDecimal> productPrices = products.lines()
-                .skip(1)
-                .map(Utils::splitByComma)
-                .filter(splittedLine ->
-                        productsToRetrieveInfoFromOrderedProducts
-                                .contains(Utils.getRecordId(splittedLine)))
-                .collect(
-                        toMap(
-                                Utils::getRecordId,
-                                Utils::getProductPrice
-                        )
-                );
-
-        products.close();
-
-        return productPrices;
-    }
-
-    private Map<Long, BigDecimal> getPriceTotals(final Map<Long, Map<Long, Long>> productsOrderedByOrderId, final Map<Long, BigDecimal> productPrices) {
-
-        return productsOrderedByOrderId
-                .entrySet()
-                .stream()
-                .collect(
-                        toMap(
-                                Map.Entry::getKey,
-                                order -> calculateOrderTotal(order.getValue(), productPrices)
-                        )
-                );
-    }
-
-    private BigDecimal calculateOrderTotal(final Map<Long, Long> orderedProducts, final Map<Long, BigDecimal> productPrices) {
-        return orderedProducts
-                .entrySet()
-                .stream()
-                .map(
-                        orderedProduct ->
-                                productPrices.get(orderedProduct.getKey()).multiply(BigDecimal.valueOf(orderedProduct.getValue()))
-                )
-                .reduce(BigDecimal::add)
-                .orElse(BigDecimal.ZERO);
-    }
-
-    private Map<Long, Customer> getCustomerData(final Set<Long> customerIds) throws IOException {
-        final BufferedReader customers = new BufferedReader(new FileReader(this.customers));
-
-        final Map<Long, Customer> customerData = customers.lines()
-                .skip(1)
-                .map(Utils::splitByComma)
-                .filter(splittedLine -> customerIds.contains(Utils.getRecordId(splittedLine)))
-                .map(splittedLine -> new Customer(
-                                Long.parseLong(splittedLine.get(0)),
-                                splittedLine.get(1),
-                                splittedLine.get(2)
-                        )
-                )
-                .collect(
-                        toMap(
-                                Customer::getId,
-                                Function.identity()
-                        )
-                );
-
-        customers.close();
-
-        return customerData;
-    }
-
-    private List<List<Object>> transformCustomerExpendingToRecords(final List<Pair<Customer, BigDecimal>> customerExpendings) {
-        return customerExpendings
-                .stream()
-                .map(
-                        expendings -> asList(
-                                (Object) expendings.getKey().getId(),
-                                expendings.getKey().getFirstName(),
-                                expendings.getKey().getLastName(),
-                                expendings.getValue()
-                        )
-                )
-                .collect(toList());
+    //Products that can't be indexed, because they are streamed, are loaded whole
+    private PriceTable getProductPrices() throws IOException {
+        if (this.products.getFile() != null) {
+            return getProductPriceIndex().newPriceTable();
+        }
+
+        final LongObjectMap<BigDecimal> productPrices = new LongObjectMap<>();
+        Utils.forEachProductPrice(this.products, readMode, productPrices::put);
+        return PriceTable.of(productPrices);
+    }
+
+    private LongMoneyMap getPriceTotals(final LongObjectMap<LongLongMap> productsOrderedById, final PriceTable productPrices) {
+        final LongMoneyMap priceTotals = productPrices.newTotals();
+        final Money total = productPrices.newAmount();
+
+        productsOrderedById.forEach((id, orderedProducts) ->
+                priceTotals.put(id, calculateOrderTotal(orderedProducts, productPrices, total))
+        );
+
+        return priceTotals;
+    }
+
+    //The same amount is cleared and reused for every customer
+    private Money calculateOrderTotal(final LongLongMap orderedProducts, final PriceTable productPrices, final Money total) {
+        total.clear();
+
+        orderedProducts.forEach((product, count) -> productPrices.addPrice(total, product, count));
+
+        return total;
+    }
+
+    private StageTimer startStage(final Stage stage) {
+        return StageTimer.start(metricsListener, CustomerRankingCalculator.class.getSimpleName(), stage);
     }
 }
@@ -0,0 +1,230 @@
+package calculators;
+
+import metrics.MetricsListener;
+import metrics.Stage;
+import metrics.StageTimer;
+import model.HeavyHitter;
+import structures.BoundedTopK;
+import structures.CountMinSketch;
+import structures.LongLongMap;
+import structures.SpaceSaving;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ReadMode;
+import utils.ReportOutput;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+//Top products by units ordered and top customers by number of orders, in one pass over orders.csv. The approximate
+//mode keeps a bounded number of counters whatever the number of products and customers, the exact one counts them all
+public class HeavyHitterCalculator {
+    private static final String PRODUCTS_FILE_NAME = "top_products.csv";
+    private static final String PRODUCTS_HEADER = "id,units,max_error";
+    private static final String CUSTOMERS_FILE_NAME = "top_customers.csv";
+    private static final String CUSTOMERS_HEADER = "id,orders,max_error";
+
+    //Space-Saving counters kept per heavy hitter asked for, unless told otherwise
+    public static final int DEFAULT_COUNTERS_PER_HITTER = 16;
+    //Count-Min estimates are over by at most 0.01% of the total 99.9% of the time, in under 2MB per sketch
+    public static final double DEFAULT_EPSILON = 0.0001;
+    public static final double DEFAULT_DELTA = 0.001;
+
+    public enum Mode {
+        APPROXIMATE,
+        //Counts every product and customer, to check the approximate reports against
+        EXACT
+    }
+
+    private final InputSource orders;
+    private final Path outDirectory;
+    private final ReadMode readMode;
+    private final int k;
+    private MetricsListener metricsListener = MetricsListener.NOOP;
+    private OutputOptions outputOptions = OutputOptions.PLAIN;
+    private Mode mode = Mode.APPROXIMATE;
+    private int counters;
+    private double epsilon = DEFAULT_EPSILON;
+    private double delta = DEFAULT_DELTA;
+
+    public HeavyHitterCalculator(final File orders, final Path outDirectory, final int k) {
+        this(orders, outDirectory, ReadMode.BUFFERED_READER, k);
+    }
+
+    public HeavyHitterCalculator(final File orders, final Path outDirectory, final ReadMode readMode, final int k) {
+        this(InputSource.of(orders), outDirectory, readMode, k);
+    }
+
+    public HeavyHitterCalculator(final InputSource orders, final Path outDirectory, final ReadMode readMode, final int k) {
+        this.orders = orders;
+        this.outDirectory = outDirectory;
+        this.readMode = readMode;
+        this.k = k;
+        this.counters = Math.max(k, 1) * DEFAULT_COUNTERS_PER_HITTER;
+    }
+
+    //The top products file first, then the top customers one
+    public List<File> calculateHeavyHitters() throws IOException {
+        final Tally tally = countOrders();
+
+        final StageTimer sorting = startStage(Stage.SORT);
+        final List<HeavyHitter> topProducts = tally.topProducts(k);
+        final List<HeavyHitter> topCustomers = tally.topCustomers(k);
+        sorting.rows(topProducts.size() + topCustomers.size()).stop();
+
+        return Arrays.asList(
+                writeHeavyHitters(PRODUCTS_FILE_NAME, PRODUCTS_HEADER, topProducts),
+                writeHeavyHitters(CUSTOMERS_FILE_NAME, CUSTOMERS_HEADER, topCustomers)
+        );
+    }
+
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public void setOutputOptions(final OutputOptions outputOptions) {
+        this.outputOptions = outputOptions;
+    }
+
+    public void setMode(final Mode mode) {
+        this.mode = mode;
+    }
+
+    //Space-Saving counters per report. Any product or customer above 1 / counters of the total is always reported
+    //if it's in the top k, and no count is over by more than total / counters
+    public void setCounters(final int counters) {
+        this.counters = counters;
+    }
+
+    //Count-Min sketch error bound, as a share of the total, and the probability of going over it
+    public void setSketchError(final double epsilon, final double delta) {
+        this.epsilon = epsilon;
+        this.delta = delta;
+    }
+
+    private Tally countOrders() throws IOException {
+        final StageTimer parsing = startStage(Stage.PARSE);
+        final Tally tally = mode == Mode.EXACT ? new ExactTally() : new SketchTally(counters, epsilon, delta);
+        final long[] orderCount = {0};
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) -> {
+            tally.addOrder(customerId);
+            for (int index = 0; index < productCount; index++) {
+                tally.addUnit(products[index]);
+            }
+            orderCount[0]++;
+        });
+
+        parsing.rows(orderCount[0]).bytesRead(this.orders.length()).stop();
+        return tally;
+    }
+
+    private File writeHeavyHitters(final String fileName, final String header, final List<HeavyHitter> heavyHitters) throws IOException {
+        final StageTimer writing = startStage(Stage.WRITE);
+        final File file = new ReportOutput(outDirectory, outputOptions).write(fileName, header, heavyHitters.size(), row -> heavyHitters.get(row).getId(), () ->
+                (writer, row) -> writer.field(heavyHitters.get(row).getId())
+                        .field(heavyHitters.get(row).getCount())
+                        .field(heavyHitters.get(row).getMaxError())
+                        .endRecord()
+        );
+        writing.rows(heavyHitters.size()).bytesWritten(ReportOutput.sizeOf(file)).stop();
+
+        return file;
+    }
+
+    private StageTimer startStage(final Stage stage) {
+        return StageTimer.start(metricsListener, HeavyHitterCalculator.class.getSimpleName(), stage);
+    }
+
+    private interface Tally {
+        void addOrder(long customer);
+
+        void addUnit(long product);
+
+        List<HeavyHitter> topProducts(int k);
+
+        List<HeavyHitter> topCustomers(int k);
+    }
+
+    private static class ExactTally implements Tally {
+        private final LongLongMap unitsByProduct = new LongLongMap();
+        private final LongLongMap ordersByCustomer = new LongLongMap();
+
+        @Override
+        public void addOrder(final long customer) {
+            ordersByCustomer.addTo(customer, 1);
+        }
+
+        @Override
+        public void addUnit(final long product) {
+            unitsByProduct.addTo(product, 1);
+        }
+
+        @Override
+        public List<HeavyHitter> topProducts(final int k) {
+            return top(unitsByProduct, k);
+        }
+
+        @Override
+        public List<HeavyHitter> topCustomers(final int k) {
+            return top(ordersByCustomer, k);
+        }
+
+        private static List<HeavyHitter> top(final LongLongMap counts, final int k) {
+            final BoundedTopK<HeavyHitter> top = new BoundedTopK<>(k, HeavyHitter.BY_COUNT_THEN_ID);
+            counts.forEach((id, count) -> top.offer(new HeavyHitter(id, count, 0)));
+            return top.toSortedList();
+        }
+    }
+
+    //Space-Saving finds the candidates and bounds their counts from below, the Count-Min sketch tightens them from above
+    private static class SketchTally implements Tally {
+        private final SpaceSaving productCandidates;
+        private final SpaceSaving customerCandidates;
+        private final CountMinSketch productUnits;
+        private final CountMinSketch customerOrders;
+
+        private SketchTally(final int counters, final double epsilon, final double delta) {
+            this.productCandidates = new SpaceSaving(counters);
+            this.customerCandidates = new SpaceSaving(counters);
+            this.productUnits = new CountMinSketch(epsilon, delta);
+            this.customerOrders = new CountMinSketch(epsilon, delta);
+        }
+
+        @Override
+        public void addOrder(final long customer) {
+            customerCandidates.add(customer, 1);
+            customerOrders.add(customer, 1);
+        }
+
+        @Override
+        public void addUnit(final long product) {
+            productCandidates.add(product, 1);
+            productUnits.add(product, 1);
+        }
+
+        @Override
+        public List<HeavyHitter> topProducts(final int k) {
+            return top(productCandidates, productUnits, k);
+        }
+
+        @Override
+        public List<HeavyHitter> topCustomers(final int k) {
+            return top(customerCandidates, customerOrders, k);
+        }
+
+        private static List<HeavyHitter> top(final SpaceSaving candidates, final CountMinSketch sketch, final int k) {
+            final BoundedTopK<HeavyHitter> top = new BoundedTopK<>(k, HeavyHitter.BY_COUNT_THEN_ID);
+            candidates.forEach((id, count, error) -> {
+                //Both counts are upper bounds, and count - error is a lower bound
+                final long upperBound = Math.min(count, sketch.estimate(id));
+                top.offer(new HeavyHitter(id, upperBound, upperBound - (count - error)));
+            });
+            return top.toSortedList();
+        }
+    }
+}
@@ -1,153 +1,203 @@
 package calculators;
 
+import metrics.MetricsListener;
+import metrics.Stage;
+import metrics.StageTimer;
+import model.IngestedOrders;
+import model.Money;
+import model.PriceTable;
+import structures.LongLongMap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ProductPriceIndex;
+import utils.ReadMode;
+import utils.ReportOutput;
 import utils.Utils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.nio.file.Path;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-
-import static java.util.Arrays.asList;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.counting;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
 
 public class OrderPriceCalculator {
-    private final File products;
-    private final File orders;
+    private static final String HEADER = "id,euros";
+    private static final String FILE_NAME = "order_prices.csv";
+
+    private final InputSource products;
+    private final InputSource orders;
     private final Path outDirectory;
+    private final ReadMode readMode;
+    private final PriceIndexHolder productPriceIndex;
+    private MetricsListener metricsListener = MetricsListener.NOOP;
+    private OutputOptions outputOptions = OutputOptions.PLAIN;
 
     public OrderPriceCalculator(final File products, final File orders, final Path outDirectory) {
+        this(products, orders, outDirectory, ReadMode.BUFFERED_READER);
+    }
+
+    public OrderPriceCalculator(final File products, final File orders, final Path outDirectory, final ReadMode readMode) {
+        this(InputSource.of(products), InputSource.of(orders), outDirectory, readMode);
+    }
+
+    public OrderPriceCalculator(final InputSource products, final InputSource orders, final Path outDirectory, final ReadMode readMode) {
         this.products = products;
         this.orders = orders;
         this.outDirectory = outDirectory;
+        this.readMode = readMode;
+        this.productPriceIndex = new PriceIndexHolder(products);
     }
 
     public File calculateOrderPrices() throws IOException {
-        final String header = "id,euros";
-        final String fileName = "order_prices.csv";
+        return writeOrderPrices(calculateOrderPricesContents());
+    }
+
+    public File calculateOrderPrices(final IngestedOrders ingestedOrders) throws IOException {
+        return writeOrderPrices(ingestedOrders.getOrderPrices());
+    }
 
-        final Map<Long, BigDecimal> orderPrices = calculateOrderPricesContents();
-        final List<List<Object>> contents = transformOrderPricesToRecords(orderPrices);
+    //Only the product price table is kept in memory: each order price is written as soon as its order is read
+    public File calculateOrderPricesStreaming() throws IOException {
+        final StageTimer loadingPrices = startStage(Stage.PRICE_LOOKUP);
+        final PriceTable productPrices = PriceTable.of(getAllProductPrices());
+        loadingPrices.bytesRead(this.products.length()).stop();
+
+        final Money total = productPrices.newAmount();
+
+        //Parsing, pricing and writing are interleaved, so they are a single stage. Orders are written as they are read,
+        //so they always go to a single file
+        final StageTimer writing = startStage(Stage.WRITE);
+        final File file = new ReportOutput(outDirectory, outputOptions).write(FILE_NAME, HEADER, writer ->
+                Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) ->
+                        writer.field(orderId)
+                                .field(calculateOrderTotal(products, productCount, productPrices, total))
+                                .endRecord()
+                )
+        );
+        writing.bytesRead(this.orders.length()).bytesWritten(ReportOutput.sizeOf(file)).stop();
 
-        return Utils.writeCsv(header, fileName, contents, outDirectory);
+        return file;
     }
 
-    private Map<Long, BigDecimal> calculateOrderPricesContents() throws IOException {
+    //See PriceIndexHolder
+    public ProductPriceIndex getProductPriceIndex() throws IOException {
+        return productPriceIndex.get();
+    }
 
-        final Map<Long, Map<Long, Long>> productsOrderedByOrderId = getProductsOrderedByOrderId();
-        final Set<Long> productsToRetrieveInfoFromOrderedProducts =
-                getProductsToRetrieveInfoFromOrderedProducts(productsOrderedByOrderId);
-        final Map<Long, BigDecimal> productPrices = getProductPrices(productsToRetrieveInfoFromOrderedProducts);
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
 
-        return getPriceTotals(productsOrderedByOrderId, productPrices);
+    public void setOutputOptions(final OutputOptions outputOptions) {
+        this.outputOptions = outputOptions;
     }
 
-    //List of orderId to itemsOrdered
-    private Map<Long, Map<Long, Long>> getProductsOrderedByOrderId() throws IOException {
-        final BufferedReader orders = new BufferedReader(new FileReader(this.orders));
+    //Orders are written sorted by id
+    private File writeOrderPrices(final LongMoneyMap orderPrices) throws IOException {
+        final StageTimer sorting = startStage(Stage.SORT);
+        final long[] sortedOrderIds = orderPrices.sortedKeys();
+        sorting.rows(sortedOrderIds.length).stop();
+
+        final StageTimer writing = startStage(Stage.WRITE);
+        final File file = new ReportOutput(outDirectory, outputOptions).write(FILE_NAME, HEADER, sortedOrderIds.length, row -> sortedOrderIds[row], () -> {
+            final Money total = new Money(orderPrices.getScale());
+            return (writer, row) -> writer.field(sortedOrderIds[row])
+                    .field(orderPrices.get(sortedOrderIds[row], total))
+                    .endRecord();
+        });
+        writing.rows(sortedOrderIds.length).bytesWritten(ReportOutput.sizeOf(file)).stop();
+
+        return file;
+    }
 
-        final Map<Long, Map<Long, Long>> productsOrderedByOrderId = orders.lines()
-                .skip(1)
-                .map(Utils::splitByComma)
-                .collect(
-                        toMap(
-                                Utils::getRecordId,
-                                this::countProductsFromOrder
-                        )
-                );
+    //Prices are looked up in the product index as the totals need them
+    private LongMoneyMap calculateOrderPricesContents() throws IOException {
+        final StageTimer parsing = startStage(Stage.PARSE);
+        final LongObjectMap<LongLongMap> productsOrderedByOrderId = getProductsOrderedByOrderId();
+        parsing.rows(productsOrderedByOrderId.size()).bytesRead(this.orders.length()).stop();
+
+        final StageTimer pricing = startStage(Stage.PRICE_LOOKUP);
+        final PriceTable productPrices = getProductPrices();
+        productPriceIndex.startLookups();
+
+        try {
+            final LongMoneyMap priceTotals = getPriceTotals(productsOrderedByOrderId, productPrices);
+            productPriceIndex.reportLookups(pricing.rows(priceTotals.size())).stop();
+            return priceTotals;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        orders.close();
+    private StageTimer startStage(final Stage stage) {
+        return StageTimer.start(metricsListener, OrderPriceCalculator.class.getSimpleName(), stage);
+    }
+
+    //List of orderId to itemsOrdered
+    private LongObjectMap<LongLongMap> getProductsOrderedByOrderId() throws IOException {
+        final LongObjectMap<LongLongMap> productsOrderedByOrderId = new LongObjectMap<>();
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) ->
+                productsOrderedByOrderId.put(orderId, countProductsFromOrder(products, productCount))
+        );
 
         return productsOrderedByOrderId;
     }
 
-    private Map<Long, Long> countProductsFromOrder(List<String> splittedOrderRecord) {
-        return Arrays.stream(Utils.splitProducts(splittedOrderRecord))
-                .map(Long::parseLong)
-                .collect(
-                        groupingBy(
-                                identity(),
-                                counting()
-                        )
-                );
-    }
+    private LongLongMap countProductsFromOrder(final long[] products, final int productCount) {
+        final LongLongMap productCounts = new LongLongMap(productCount);
+
+        for (int index = 0; index < productCount; index++) {
+            productCounts.addTo(products[index], 1);
+        }
 
-    private Set<Long> getProductsToRetrieveInfoFromOrderedProducts(final Map<Long, Map<Long, Long>> productsOrderedById) {
-        return productsOrderedById.values().stream()
-                .map(Map::keySet)
-                .flatMap(Set::stream)
-                .collect(toSet());
+        return productCounts;
     }
 
-    private Map<Long, BigDecimal> getProductPrices(final Set<Long> productsToRetrieveInfoFromOrderedProducts) throws IOException {
-        final BufferedReader products = new BufferedReader(new FileReader(this.products));
+    //Products that can't be indexed, because they are streamed, are loaded whole
+    private PriceTable getProductPrices() throws IOException {
+        return this.products.getFile() != null
+                ? getProductPriceIndex().newPriceTable()
+                : PriceTable.of(getAllProductPrices());
+    }
 
-        final Map<Long, BigDecimal> productPrices = products.lines()
-                .skip(1)
-                .map(Utils::splitByComma)
-                .filter(splittedLine -> productsToRetrieveInfoFromOrderedProducts
-                        .contains(Utils.getRecordId(splittedLine)))
-                .collect(
-                        toMap(
-                                Utils::getRecordId,
-                                Utils::getProductPrice
-                        )
-                );
+    private LongObjectMap<BigDecimal> getAllProductPrices() throws IOException {
+        final LongObjectMap<BigDecimal> productPrices = new LongObjectMap<>();
 
-        products.close();
+        Utils.forEachProductPrice(this.products, readMode, productPrices::put);
 
         return productPrices;
     }
 
-    private Map<Long, BigDecimal> getPriceTotals(final Map<Long, Map<Long, Long>> productsOrderedByOrderId, final Map<Long, BigDecimal> productPrices) {
+    private LongMoneyMap getPriceTotals(final LongObjectMap<LongLongMap> productsOrderedByOrderId, final PriceTable productPrices) {
+        final LongMoneyMap priceTotals = productPrices.newTotals();
+        final Money total = productPrices.newAmount();
 
-        return productsOrderedByOrderId
-                .entrySet()
-                .stream()
-                .collect(
-                        toMap(
-                                Map.Entry::getKey,
-                                order -> calculateOrderTotal(order.getValue(), productPrices)
-                        )
-                );
-    }
+        productsOrderedByOrderId.forEach((orderId, orderedProducts) ->
+                priceTotals.put(orderId, calculateOrderTotal(orderedProducts, productPrices, total))
+        );
 
-    private BigDecimal calculateOrderTotal(final Map<Long, Long> orderedProducts, final Map<Long, BigDecimal> productPrices) {
-        return orderedProducts
-                .entrySet()
-                .stream()
-                .map(
-                        orderedProduct ->
-                                productPrices.get(orderedProduct.getKey()).multiply(BigDecimal.valueOf(orderedProduct.getValue()))
-                )
-                .reduce(BigDecimal::add)
-                .orElse(BigDecimal.ZERO);
+        return priceTotals;
     }
 
+    //The same amount is cleared and reused for every order
+    private Money calculateOrderTotal(final LongLongMap orderedProducts, final PriceTable productPrices, final Money total) {
+        total.clear();
 
-    private List<List<Object>> transformOrderPricesToRecords(final Map<Long, BigDecimal> orderPrices) {
-        return orderPrices
-                .entrySet()
-                .stream()
-                .map(
-                        order -> asList(
-                                //Below cast needed because if not stream casts to a weird interface
-                                (Object) order.getKey(),
-                                order.getValue()
-                        )
-                )
-                .collect(toList());
+        orderedProducts.forEach((product, count) -> productPrices.addPrice(total, product, count));
+
+        return total;
     }
 
+    private Money calculateOrderTotal(final long[] products, final int productCount, final PriceTable productPrices, final Money total) {
+        total.clear();
+
+        for (int index = 0; index < productCount; index++) {
+            productPrices.addPrice(total, products[index], 1);
+        }
 
+        return total;
+    }
 }
@@ -0,0 +1,53 @@
+package calculators;
+
+import metrics.StageTimer;
+import utils.InputSource;
+import utils.ProductPriceIndex;
+
+import java.io.IOException;
+
+//The price index of a calculator: opened on first use and kept, so its price cache stays warm across calculations,
+//and reopened if products.csv changes
+class PriceIndexHolder {
+
+    private final InputSource products;
+    private ProductPriceIndex productPriceIndex;
+    //Cache counters when the current lookups started
+    private long startHits;
+    private long startMisses;
+
+    PriceIndexHolder(final InputSource products) {
+        this.products = products;
+    }
+
+    ProductPriceIndex get() throws IOException {
+        if (products.getFile() == null) {
+            throw new IllegalStateException("There is no price index for " + products + ", it isn't a plain file");
+        }
+        if (productPriceIndex == null || productPriceIndex.isStale()) {
+            if (productPriceIndex != null) {
+                productPriceIndex.close();
+            }
+            productPriceIndex = ProductPriceIndex.open(products.getFile());
+        }
+        return productPriceIndex;
+    }
+
+    //The cache is kept across calculations, so a stage only reports the hits and misses from here on
+    void startLookups() {
+        startHits = getCacheHits();
+        startMisses = getCacheMisses();
+    }
+
+    StageTimer reportLookups(final StageTimer stage) {
+        return stage.cacheHits(getCacheHits() - startHits).cacheMisses(getCacheMisses() - startMisses);
+    }
+
+    private long getCacheHits() {
+        return productPriceIndex == null ? 0 : productPriceIndex.getCache().getHits();
+    }
+
+    private long getCacheMisses() {
+        return productPriceIndex == null ? 0 : productPriceIndex.getCache().getMisses();
+    }
+}
@@ -1,102 +1,197 @@
 package calculators;
 
-import org.apache.commons.lang3.tuple.Pair;
+import metrics.MetricsListener;
+import metrics.Stage;
+import metrics.StageTimer;
+import model.DistinctCustomerSketches;
+import model.IngestedOrders;
+import structures.LongBitmap;
+import structures.LongObjectMap;
+import utils.CustomerListEncoding;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ProductCustomersBinary;
+import utils.ReadMode;
+import utils.ReportOutput;
 import utils.Utils;
+import utils.VarintWriter;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.stream.Stream;
-
-import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.Collectors.toSet;
-import static utils.Utils.splitProducts;
 
 public class ProductCustomerCalculator {
-    private final File orders;
+    private static final String FILE_NAME = "product_customers";
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String HEADER = "id,customer_ids";
+    private static final String DELTA_HEADER = "id,customer_id_deltas";
+    private static final char SEPARATOR = ' ';
+
+    private static final String ESTIMATES_FILE_NAME = "product_distinct_customers.csv";
+    private static final String ESTIMATES_HEADER = "id,distinct_customers_estimate";
+    //About 1.6% of standard error, in at most 4KB per product
+    public static final int DEFAULT_SKETCH_PRECISION = 12;
+
+    private final InputSource orders;
     private final Path outDirectory;
+    private final ReadMode readMode;
+    private MetricsListener metricsListener = MetricsListener.NOOP;
+    private OutputOptions outputOptions = OutputOptions.PLAIN;
+    private CustomerListEncoding customerListEncoding = CustomerListEncoding.TEXT;
+    private int sketchPrecision = DEFAULT_SKETCH_PRECISION;
 
     public ProductCustomerCalculator(final File orders, final Path outDirectory) {
+        this(orders, outDirectory, ReadMode.BUFFERED_READER);
+    }
+
+    public ProductCustomerCalculator(final File orders, final Path outDirectory, final ReadMode readMode) {
+        this(InputSource.of(orders), outDirectory, readMode);
+    }
 
+    public ProductCustomerCalculator(final InputSource orders, final Path outDirectory, final ReadMode readMode) {
         this.orders = orders;
         this.outDirectory = outDirectory;
+        this.readMode = readMode;
     }
 
     public File calculateProductCustomers() throws IOException {
-        final String header = "id,customer_ids";
-        final String fileName = "product_customers.csv";
-
-        final Map<Long, Set<Long>> customersWhoOrderedProducts = getCustomersWhoOrderedProducts();
-        final List<List<Object>> contents = transformCustomersWhoOrderedProductsToRecords(customersWhoOrderedProducts);
-
-        return Utils.writeCsv(header, fileName, contents, outDirectory);
-    }
-
-    private Map<Long, Set<Long>> getCustomersWhoOrderedProducts() throws IOException {
-        final BufferedReader orders = new BufferedReader(new FileReader(this.orders));
-
-        final Map<Long, Set<Long>> customersWhoOrderedProduct = orders.lines()
-                .skip(1)
-                .map(Utils::splitByComma)
-                //The next flat map converts each order record to a stream of pairs <Product, model.Customer> with all products in the order
-                .flatMap(splittedLine ->
-                        Stream.of(splitProducts(splittedLine))
-                                .map(
-                                        product -> Pair.of(
-                                                Long.parseLong(product),
-                                                getCustomerFromOrderRecord(splittedLine)
-                                        )
-                                )
-                                .collect(toSet())
-                                .stream()
-                )
-                .collect(
-                        toMap(
-                                Pair::getKey,
-                                pair -> Set.of(pair.getValue()),
-                                (alreadyFound, newlyFound) -> {
-                                    final Set<Long> alreadyFoundCustomers = new HashSet<>(alreadyFound);
-                                    alreadyFoundCustomers.addAll(newlyFound);
-                                    return alreadyFoundCustomers;
-                                }
-                        )
+        return writeProductCustomers(getCustomersWhoOrderedProducts());
+    }
+
+    public File calculateProductCustomers(final IngestedOrders ingestedOrders) throws IOException {
+        return writeProductCustomers(ingestedOrders.getCustomersWhoOrderedProducts());
+    }
+
+    //Approximate distinct customer counts of every product, from one sketch per product instead of every customer id
+    public File calculateDistinctCustomerEstimates() throws IOException {
+        return writeDistinctCustomerEstimates(getDistinctCustomerSketches());
+    }
+
+    //For sketches merged from several runs, e.g. one per day
+    public File calculateDistinctCustomerEstimates(final DistinctCustomerSketches sketches) throws IOException {
+        return writeDistinctCustomerEstimates(sketches);
+    }
+
+    public DistinctCustomerSketches getDistinctCustomerSketches() throws IOException {
+        final StageTimer parsing = startStage(Stage.PARSE);
+        final DistinctCustomerSketches sketches = new DistinctCustomerSketches(sketchPrecision);
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) -> {
+            for (int index = 0; index < productCount; index++) {
+                sketches.add(products[index], customerId);
+            }
+        });
+
+        parsing.rows(sketches.size()).bytesRead(this.orders.length()).stop();
+        return sketches;
+    }
+
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    public void setOutputOptions(final OutputOptions outputOptions) {
+        this.outputOptions = outputOptions;
+    }
+
+    public void setCustomerListEncoding(final CustomerListEncoding customerListEncoding) {
+        this.customerListEncoding = customerListEncoding;
+    }
+
+    //Between HyperLogLog.MIN_PRECISION and MAX_PRECISION. Each step up halves the variance and doubles the memory
+    public void setSketchPrecision(final int sketchPrecision) {
+        this.sketchPrecision = sketchPrecision;
+    }
+
+    private File writeProductCustomers(final LongObjectMap<LongBitmap> customersWhoOrderedProducts) throws IOException {
+        final StageTimer sorting = startStage(Stage.SORT);
+        final long[] sortedProducts = customersWhoOrderedProducts.sortedKeys();
+        sorting.rows(sortedProducts.length).stop();
+
+        //Products are written sorted by id, and their customers too, straight from the bitmaps
+        final StageTimer writing = startStage(Stage.WRITE);
+        final ReportOutput output = new ReportOutput(outDirectory, outputOptions);
+        final File file;
+        switch (customerListEncoding) {
+            case VARINT_DELTA:
+                file = output.write(FILE_NAME + ProductCustomersBinary.EXTENSION,
+                        channel -> ProductCustomersBinary.writeMagic(new VarintWriter(channel)),
+                        sortedProducts.length, row -> sortedProducts[row],
+                        () -> new BinaryRowWriter(sortedProducts, customersWhoOrderedProducts));
+                break;
+            case DELTA_TEXT:
+                file = output.write(FILE_NAME + CSV_EXTENSION, DELTA_HEADER, sortedProducts.length, row -> sortedProducts[row], () ->
+                        (writer, row) -> writer.field(sortedProducts[row])
+                                .deltaField(customersWhoOrderedProducts.get(sortedProducts[row]).iterator(), SEPARATOR)
+                                .endRecord()
+                );
+                break;
+            case TEXT:
+            default:
+                file = output.write(FILE_NAME + CSV_EXTENSION, HEADER, sortedProducts.length, row -> sortedProducts[row], () ->
+                        (writer, row) -> writer.field(sortedProducts[row])
+                                .field(customersWhoOrderedProducts.get(sortedProducts[row]).iterator(), SEPARATOR)
+                                .endRecord()
                 );
+        }
+        writing.rows(sortedProducts.length).bytesWritten(ReportOutput.sizeOf(file)).stop();
+
+        return file;
+    }
 
-        orders.close();
+    private File writeDistinctCustomerEstimates(final DistinctCustomerSketches sketches) throws IOException {
+        final StageTimer sorting = startStage(Stage.SORT);
+        final long[] sortedProducts = sketches.sortedProducts();
+        sorting.rows(sortedProducts.length).stop();
 
+        final StageTimer writing = startStage(Stage.WRITE);
+        final File file = new ReportOutput(outDirectory, outputOptions).write(ESTIMATES_FILE_NAME, ESTIMATES_HEADER, sortedProducts.length, row -> sortedProducts[row], () ->
+                (writer, row) -> writer.field(sortedProducts[row])
+                        .field(sketches.estimate(sortedProducts[row]))
+                        .endRecord()
+        );
+        writing.rows(sortedProducts.length).bytesWritten(ReportOutput.sizeOf(file)).stop();
+
+        return file;
+    }
+
+    private LongObjectMap<LongBitmap> getCustomersWhoOrderedProducts() throws IOException {
+        final StageTimer parsing = startStage(Stage.PARSE);
+        final LongObjectMap<LongBitmap> customersWhoOrderedProduct = new LongObjectMap<>();
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customerId, products, productCount) -> {
+            for (int index = 0; index < productCount; index++) {
+                customersWhoOrderedProduct
+                        .computeIfAbsent(products[index], newProduct -> new LongBitmap())
+                        .add(customerId);
+            }
+        });
+
+        parsing.rows(customersWhoOrderedProduct.size()).bytesRead(this.orders.length()).stop();
         return customersWhoOrderedProduct;
     }
 
-    private Long getCustomerFromOrderRecord(List<String> splittedLine) {
-        return Long.parseLong(splittedLine.get(1));
-    }
-
-    private List<List<Object>> transformCustomersWhoOrderedProductsToRecords(final Map<Long, Set<Long>> customersWhoOrderedProducts) {
-        return customersWhoOrderedProducts
-                .entrySet()
-                .stream()
-                .map(
-                        productWithCustomers ->
-                                asList(
-                                        (Object) productWithCustomers.getKey(),
-                                        productWithCustomers
-                                                .getValue()
-                                                .stream()
-                                                .map(Object::toString)
-                                                .collect(
-                                                        joining(" ")
-                                                )
-                                )
-                )
-                .collect(toList());
+    private StageTimer startStage(final Stage stage) {
+        return StageTimer.start(metricsListener, ProductCustomerCalculator.class.getSimpleName(), stage);
+    }
+
+    //Product ids are written as the gap to the previous product of the same file, so each part keeps its own
+    private static class BinaryRowWriter implements ReportOutput.RowWriter<VarintWriter> {
+        private final long[] sortedProducts;
+        private final LongObjectMap<LongBitmap> customersWhoOrderedProducts;
+        private long previousProduct = 0;
+
+        private BinaryRowWriter(final long[] sortedProducts, final LongObjectMap<LongBitmap> customersWhoOrderedProducts) {
+            this.sortedProducts = sortedProducts;
+            this.customersWhoOrderedProducts = customersWhoOrderedProducts;
+        }
+
+        @Override
+        public void write(final VarintWriter writer, final int row) throws IOException {
+            final long product = sortedProducts[row];
+            final LongBitmap customers = customersWhoOrderedProducts.get(product);
+            ProductCustomersBinary.writeRecord(writer, previousProduct, product, customers.cardinality(), customers.iterator());
+            previousProduct = product;
+        }
     }
 }
@@ -0,0 +1,217 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+//Writes customers.csv, products.csv and orders.csv in the format the calculators read.
+//Rows are generated in fixed size blocks, each with its own random seeded from the seed and the block number,
+//so the files are byte for byte the same for a seed whatever the parallelism
+public class DatasetGenerator {
+
+    public static final String CUSTOMERS_CSV = "customers.csv";
+    public static final String PRODUCTS_CSV = "products.csv";
+    public static final String ORDERS_CSV = "orders.csv";
+
+    public static final int DEFAULT_MAX_PRODUCTS_PER_ORDER = 10;
+    public static final double DEFAULT_SKEW = 1.0;
+    //Same precision as the prices in the real catalog
+    public static final int DEFAULT_PRICE_SCALE = 15;
+    public static final long DEFAULT_SEED = 42;
+
+    static final int DEFAULT_ROWS_PER_BLOCK = 1 << 16;
+
+    private static final int MAX_PRICE_SCALE = 16;
+    private static final long MAX_PRICE_EUROS = 100;
+    //Blocks being generated or waiting to be written, per thread
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+    private static final byte[][] FIRST_NAMES = ascii("John", "Jane", "Walter", "Jesse", "Skyler", "Marie", "Hank", "Saul", "Mike", "Gus");
+    private static final byte[][] LAST_NAMES = ascii("Maxwell", "Heisenberg", "White", "Pinkman", "Schrader", "Goodman", "Ehrmantraut", "Fring");
+    private static final byte[][] PRODUCT_NAMES = ascii("screwdriver", "wrench", "hammer", "saw", "drill", "pliers", "chisel", "level");
+
+    //Every file has its own stream of seeds
+    private static final long CUSTOMERS_STREAM = 1;
+    private static final long PRODUCTS_STREAM = 2;
+    private static final long ORDERS_STREAM = 3;
+
+    private final long customerCount;
+    private final long productCount;
+    private final long orderCount;
+    private final int maxProductsPerOrder;
+    private final ZipfSampler productPopularity;
+    private final ZipfSampler customerActivity;
+    private final int priceScale;
+    private final long seed;
+    private final int parallelism;
+    private final int rowsPerBlock;
+
+    public DatasetGenerator(final long customerCount, final long productCount, final long orderCount) {
+        this(customerCount, productCount, orderCount, DEFAULT_MAX_PRODUCTS_PER_ORDER, DEFAULT_SKEW, DEFAULT_SKEW,
+                DEFAULT_PRICE_SCALE, DEFAULT_SEED, Runtime.getRuntime().availableProcessors());
+    }
+
+    //Skews are zipf exponents: 0 is uniform, around 1 a few products (or customers) take most of the orders
+    public DatasetGenerator(final long customerCount, final long productCount, final long orderCount,
+                            final int maxProductsPerOrder, final double productSkew, final double customerSkew,
+                            final int priceScale, final long seed, final int parallelism) {
+        this(customerCount, productCount, orderCount, maxProductsPerOrder, productSkew, customerSkew,
+                priceScale, seed, parallelism, DEFAULT_ROWS_PER_BLOCK);
+    }
+
+    DatasetGenerator(final long customerCount, final long productCount, final long orderCount,
+                     final int maxProductsPerOrder, final double productSkew, final double customerSkew,
+                     final int priceScale, final long seed, final int parallelism, final int rowsPerBlock) {
+        if (customerCount < 1 || productCount < 1 || orderCount < 0 || maxProductsPerOrder < 1) {
+            throw new IllegalArgumentException("Orders need at least one customer and one product to pick from");
+        }
+        if (priceScale < 0 || priceScale > MAX_PRICE_SCALE) {
+            throw new IllegalArgumentException("The price scale must be between 0 and " + MAX_PRICE_SCALE + ", got " + priceScale);
+        }
+
+        this.customerCount = customerCount;
+        this.productCount = productCount;
+        this.orderCount = orderCount;
+        this.maxProductsPerOrder = maxProductsPerOrder;
+        this.productPopularity = new ZipfSampler(productCount, productSkew);
+        this.customerActivity = new ZipfSampler(customerCount, customerSkew);
+        this.priceScale = priceScale;
+        this.seed = seed;
+        this.parallelism = Math.max(1, parallelism);
+        this.rowsPerBlock = rowsPerBlock;
+    }
+
+    public void generate(final Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        writeCustomers(directory.resolve(CUSTOMERS_CSV));
+        writeProducts(directory.resolve(PRODUCTS_CSV));
+        writeOrders(directory.resolve(ORDERS_CSV));
+    }
+
+    public void writeCustomers(final Path file) throws IOException {
+        writeRows(file, "id,firstname,lastname", customerCount, CUSTOMERS_STREAM, (id, random, row) -> row
+                .put(id).put((byte) ',')
+                .put(pick(FIRST_NAMES, random)).put((byte) ',')
+                .put(pick(LAST_NAMES, random))
+        );
+    }
+
+    public void writeProducts(final Path file) throws IOException {
+        final long scaleFactor = pow10(priceScale);
+        //From a cent (or the smallest unit if that's coarser) up to MAX_PRICE_EUROS
+        final long minPrice = Math.max(1, scaleFactor / 100);
+        final long maxPrice = MAX_PRICE_EUROS * scaleFactor;
+
+        writeRows(file, "id,name,cost", productCount, PRODUCTS_STREAM, (id, random, row) -> row
+                .put(id).put((byte) ',')
+                .put(pick(PRODUCT_NAMES, random)).put((byte) ',')
+                .putDecimal(random.nextLong(minPrice, maxPrice), priceScale, scaleFactor)
+        );
+    }
+
+    //Ranks are used as ids, so the most popular product and the most active customer are both 0
+    public void writeOrders(final Path file) throws IOException {
+        writeRows(file, "id,customer,products", orderCount, ORDERS_STREAM, (id, random, row) -> {
+            row.put(id).put((byte) ',')
+                    .put(customerActivity.sample(random) - 1).put((byte) ',');
+
+            final int products = 1 + random.nextInt(maxProductsPerOrder);
+            for (int index = 0; index < products; index++) {
+                if (index > 0) {
+                    row.put((byte) ' ');
+                }
+                row.put(productPopularity.sample(random) - 1);
+            }
+        });
+    }
+
+    //Blocks are generated on a pool and written in order, keeping only a few of them in memory at a time
+    private void writeRows(final Path file, final String header, final long rowCount, final long stream, final RowGenerator rows) throws IOException {
+        final long blockCount = (rowCount + rowsPerBlock - 1) / rowsPerBlock;
+        final ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+
+        try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            new RowBuffer(header.length() + 1).put(header.getBytes(US_ASCII)).put(LINE_SEPARATOR).writeTo(channel);
+
+            final Deque<Future<RowBuffer>> inFlight = new ArrayDeque<>();
+            for (long block = 0; block < blockCount; block++) {
+                final long from = block * rowsPerBlock;
+                final long to = Math.min(rowCount, from + rowsPerBlock);
+                final SplittableRandom random = new SplittableRandom(blockSeed(stream, block));
+                inFlight.add(pool.submit(() -> generateBlock(from, to, random, rows)));
+
+                if (inFlight.size() >= parallelism * BLOCKS_IN_FLIGHT_PER_THREAD) {
+                    inFlight.poll().get().writeTo(channel);
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().get().writeTo(channel);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while generating " + file, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not generate " + file, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private RowBuffer generateBlock(final long from, final long to, final SplittableRandom random, final RowGenerator rows) {
+        //Orders are the longest rows, this is just a first guess
+        final RowBuffer buffer = new RowBuffer((int) (to - from) * 32);
+        for (long id = from; id < to; id++) {
+            rows.write(id, random, buffer);
+            buffer.put(LINE_SEPARATOR);
+        }
+        return buffer;
+    }
+
+    //SplitMix64 finalizer, so nearby blocks don't get correlated seeds
+    private long blockSeed(final long stream, final long block) {
+        long z = seed + stream * 0x9E3779B97F4A7C15L + block * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static byte[] pick(final byte[][] values, final SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long pow10(final int exponent) {
+        long power = 1;
+        for (int index = 0; index < exponent; index++) {
+            power *= 10;
+        }
+        return power;
+    }
+
+    private static byte[][] ascii(final String... values) {
+        final byte[][] bytes = new byte[values.length][];
+        for (int index = 0; index < values.length; index++) {
+            bytes[index] = values[index].getBytes(US_ASCII);
+        }
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface RowGenerator {
+        void write(long id, SplittableRandom random, RowBuffer row);
+    }
+}
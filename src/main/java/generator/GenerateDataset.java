@@ -0,0 +1,37 @@
+package generator;
+
+import utils.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//Command line entry point for DatasetGenerator:
+//  --customers N --products N --orders N [--out DIR] [--max-products-per-order N] [--product-skew S]
+//  [--customer-skew S] [--price-scale N] [--seed N] [--threads N]
+public class GenerateDataset {
+
+    private static final String USAGE = "Usage: --customers N --products N --orders N [--out DIR] [--max-products-per-order N]"
+            + " [--product-skew S] [--customer-skew S] [--price-scale N] [--seed N] [--threads N]";
+
+    public static void main(String[] args) throws IOException {
+        final CommandLineOptions options = CommandLineOptions.parse(args, USAGE);
+
+        final Path out = Paths.get(options.get("out", "."));
+        final DatasetGenerator generator = new DatasetGenerator(
+                Long.parseLong(options.required("customers")),
+                Long.parseLong(options.required("products")),
+                Long.parseLong(options.required("orders")),
+                Integer.parseInt(options.get("max-products-per-order", String.valueOf(DatasetGenerator.DEFAULT_MAX_PRODUCTS_PER_ORDER))),
+                Double.parseDouble(options.get("product-skew", String.valueOf(DatasetGenerator.DEFAULT_SKEW))),
+                Double.parseDouble(options.get("customer-skew", String.valueOf(DatasetGenerator.DEFAULT_SKEW))),
+                Integer.parseInt(options.get("price-scale", String.valueOf(DatasetGenerator.DEFAULT_PRICE_SCALE))),
+                Long.parseLong(options.get("seed", String.valueOf(DatasetGenerator.DEFAULT_SEED))),
+                Integer.parseInt(options.get("threads", String.valueOf(Runtime.getRuntime().availableProcessors())))
+        );
+
+        final long start = System.nanoTime();
+        generator.generate(out);
+        System.out.printf("Generated %s in %d ms%n", out.toAbsolutePath(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,79 @@
+package generator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+//The ascii bytes of a block of rows, formatted without going through strings
+class RowBuffer {
+
+    private static final int MAX_LONG_LENGTH = 20;
+
+    private final byte[] digits = new byte[MAX_LONG_LENGTH];
+    private byte[] bytes;
+    private int length;
+
+    RowBuffer(final int initialCapacity) {
+        this.bytes = new byte[initialCapacity];
+    }
+
+    RowBuffer put(final byte value) {
+        ensureCapacity(1);
+        bytes[length++] = value;
+        return this;
+    }
+
+    RowBuffer put(final byte[] text) {
+        ensureCapacity(text.length);
+        System.arraycopy(text, 0, bytes, length, text.length);
+        length += text.length;
+        return this;
+    }
+
+    //Only for non negative values, which is all the generator writes
+    RowBuffer put(final long value) {
+        ensureCapacity(MAX_LONG_LENGTH);
+        long remaining = value;
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        while (count > 0) {
+            bytes[length++] = digits[--count];
+        }
+        return this;
+    }
+
+    //unscaled * 10^-scale, always with scale decimals
+    RowBuffer putDecimal(final long unscaled, final int scale, final long scaleFactor) {
+        put(unscaled / scaleFactor);
+        if (scale == 0) {
+            return this;
+        }
+
+        ensureCapacity(scale + 1);
+        bytes[length++] = '.';
+        long fraction = unscaled % scaleFactor;
+        for (int index = length + scale - 1; index >= length; index--) {
+            bytes[index] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        length += scale;
+        return this;
+    }
+
+    void writeTo(final FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void ensureCapacity(final int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+        }
+    }
+}
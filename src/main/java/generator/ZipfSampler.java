@@ -0,0 +1,74 @@
+package generator;
+
+import java.util.SplittableRandom;
+
+//Samples ranks in [1, n] with probability proportional to 1 / rank^exponent, in constant time and memory whatever n is
+//Rejection inversion, from Hormann and Derflinger, "Rejection-inversion to generate variates from monotone discrete distributions"
+public class ZipfSampler {
+
+    private final long n;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double s;
+
+    public ZipfSampler(final long n, final double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("There must be at least one element to sample, got " + n);
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("The exponent can't be negative, got " + exponent);
+        }
+
+        this.n = n;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+    }
+
+    public long sample(final SplittableRandom random) {
+        //An exponent of 0 is just uniform, no need to reject anything
+        if (exponent == 0) {
+            return 1 + random.nextLong(n);
+        }
+
+        while (true) {
+            final double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+            final double x = hIntegralInverse(u);
+            final long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(final double x) {
+        final double logX = Math.log(x);
+        return helper2((1 - exponent) * logX) * logX;
+    }
+
+    private double h(final double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(final double x) {
+        final double t = Math.max(-1, x * (1 - exponent));
+        return Math.exp(helper1(t) * x);
+    }
+
+    //log(1 + x) / x, accurate near 0
+    private static double helper1(final double x) {
+        return Math.abs(x) > 1e-8
+                ? Math.log1p(x) / x
+                : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    //(exp(x) - 1) / x, accurate near 0
+    private static double helper2(final double x) {
+        return Math.abs(x) > 1e-8
+                ? Math.expm1(x) / x
+                : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+    }
+}
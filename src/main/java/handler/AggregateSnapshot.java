@@ -0,0 +1,188 @@
+package handler;
+
+import structures.LongBitmap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+//Aggregates of the orders.csv prefix already parsed, plus what is needed to tell whether they still apply:
+//the checksum of products.csv, and the length of the orders prefix they were built from with the checksum of its end
+class AggregateSnapshot {
+
+    //Only the last bytes of the orders prefix are checksummed, so checking a snapshot reads the same bounded window
+    //however big orders.csv grows. A record edited in place further back than that is not caught
+    static final int ORDERS_WINDOW_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x4f524453;
+    //Version 1 checksummed both ends of the orders prefix, version 2 the whole prefix
+    private static final int VERSION = 3;
+
+    private final long productsChecksum;
+    private final long ordersOffset;
+    private final long ordersWindowChecksum;
+    private final LongMoneyMap orderPrices;
+    private final LongMoneyMap customerTotals;
+    private final LongObjectMap<LongBitmap> customersWhoOrderedProducts;
+
+    AggregateSnapshot(final long productsChecksum,
+                      final long ordersOffset,
+                      final long ordersWindowChecksum,
+                      final LongMoneyMap orderPrices,
+                      final LongMoneyMap customerTotals,
+                      final LongObjectMap<LongBitmap> customersWhoOrderedProducts) {
+
+        this.productsChecksum = productsChecksum;
+        this.ordersOffset = ordersOffset;
+        this.ordersWindowChecksum = ordersWindowChecksum;
+        this.orderPrices = orderPrices;
+        this.customerTotals = customerTotals;
+        this.customersWhoOrderedProducts = customersWhoOrderedProducts;
+    }
+
+    long getOrdersOffset() {
+        return ordersOffset;
+    }
+
+    LongMoneyMap getOrderPrices() {
+        return orderPrices;
+    }
+
+    LongMoneyMap getCustomerTotals() {
+        return customerTotals;
+    }
+
+    LongObjectMap<LongBitmap> getCustomersWhoOrderedProducts() {
+        return customersWhoOrderedProducts;
+    }
+
+    //Same products, and orders.csv only got new records after the snapshot prefix. The checksum is the one of the window
+    //ending at getOrdersOffset() in orders.csv as it is now
+    boolean isValidFor(final long productsChecksum, final File orders, final int scale, final long ordersWindowChecksum) throws IOException {
+        if (productsChecksum != this.productsChecksum || orderPrices.getScale() != scale || orders.length() < ordersOffset) {
+            return false;
+        }
+        if (orders.length() > ordersOffset && !endsWithNewLine(orders.toPath(), ordersOffset)) {
+            return false;
+        }
+        return ordersWindowChecksum == this.ordersWindowChecksum;
+    }
+
+    //Written next to the target and moved over it, so a failed run never leaves a half written snapshot
+    void write(final Path file) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(productsChecksum);
+            output.writeLong(ordersOffset);
+            output.writeLong(ordersWindowChecksum);
+            orderPrices.writeTo(output);
+            customerTotals.writeTo(output);
+            output.writeInt(customersWhoOrderedProducts.size());
+            for (long product : customersWhoOrderedProducts.keys()) {
+                output.writeLong(product);
+                customersWhoOrderedProducts.get(product).writeTo(output);
+            }
+        }
+
+        Files.move(temporary, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    //Null if there is no snapshot, or it is from another version
+    static AggregateSnapshot read(final Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+
+            final long productsChecksum = input.readLong();
+            final long ordersOffset = input.readLong();
+            final long ordersWindowChecksum = input.readLong();
+            final LongMoneyMap orderPrices = LongMoneyMap.readFrom(input);
+            final LongMoneyMap customerTotals = LongMoneyMap.readFrom(input);
+            final int productCount = input.readInt();
+            final LongObjectMap<LongBitmap> customersWhoOrderedProducts = new LongObjectMap<>(productCount);
+            for (int index = 0; index < productCount; index++) {
+                customersWhoOrderedProducts.put(input.readLong(), LongBitmap.readFrom(input));
+            }
+
+            return new AggregateSnapshot(productsChecksum, ordersOffset, ordersWindowChecksum, orderPrices, customerTotals, customersWhoOrderedProducts);
+        }
+    }
+
+    static long checksumProducts(final File products) throws IOException {
+        final CRC32 checksum = new CRC32();
+        final byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream input = Files.newInputStream(products.toPath())) {
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                checksum.update(buffer, 0, read);
+            }
+        }
+
+        return checksum.getValue();
+    }
+
+    //Checksum of the last ORDERS_WINDOW_SIZE bytes (or fewer, for a shorter file) of orders.csv before the given offset.
+    //Every byte of the window counts, so a record in it edited in place is caught even if the length stays the same
+    static long checksumOrdersWindow(final Path orders, final long end) throws IOException {
+        final CRC32 checksum = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocate(ordersWindowLength(end));
+        final long start = end - buffer.capacity();
+
+        try (FileChannel channel = FileChannel.open(orders, READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException(orders + " is shorter than " + end + " bytes");
+                }
+            }
+        }
+
+        buffer.flip();
+        checksum.update(buffer);
+        return checksum.getValue();
+    }
+
+    static int ordersWindowLength(final long end) {
+        return (int) Math.min(end, ORDERS_WINDOW_SIZE);
+    }
+
+    //A prefix that didn't end in a new line has had its last record extended
+    private static boolean endsWithNewLine(final Path orders, final long prefixLength) throws IOException {
+        if (prefixLength == 0) {
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(orders, READ)) {
+            final ByteBuffer lastByte = ByteBuffer.allocate(1);
+            while (lastByte.hasRemaining()) {
+                if (channel.read(lastByte, prefixLength - 1) < 0) {
+                    return false;
+                }
+            }
+            return lastByte.get(0) == '\n';
+        }
+    }
+}
@@ -4,14 +4,29 @@ import calculators.CustomerRankingCalculator;
 import calculators.OrderPriceCalculator;
 import calculators.ProductCustomerCalculator;
 
+import metrics.MetricsListener;
+import model.IngestedOrders;
+import utils.OutputOptions;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import static java.util.Arrays.asList;
 
 public class FileCalculator {
 
     private CustomerRankingCalculator customerRankingCalculator;
     private ProductCustomerCalculator productCustomerCalculator;
     private OrderPriceCalculator orderPriceCalculator;
+    private SharedIngestion sharedIngestion;
 
     public FileCalculator(final OrderPriceCalculator orderPriceCalculator, final ProductCustomerCalculator productCustomerCalculator, final CustomerRankingCalculator customerRankingCalculator) {
 
@@ -20,6 +35,12 @@ public class FileCalculator {
         this.customerRankingCalculator = customerRankingCalculator;
     }
 
+    public FileCalculator(final OrderPriceCalculator orderPriceCalculator, final ProductCustomerCalculator productCustomerCalculator, final CustomerRankingCalculator customerRankingCalculator, final SharedIngestion sharedIngestion) {
+
+        this(orderPriceCalculator, productCustomerCalculator, customerRankingCalculator);
+        this.sharedIngestion = sharedIngestion;
+    }
+
     public FileCalculator(final OrderPriceCalculator orderPriceCalculator) {
 
         this.orderPriceCalculator = orderPriceCalculator;
@@ -35,6 +56,34 @@ public class FileCalculator {
         this.customerRankingCalculator = customerRankingCalculator;
     }
 
+    //Every calculator this one has reports its stages to the listener
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        if (orderPriceCalculator != null) {
+            orderPriceCalculator.setMetricsListener(metricsListener);
+        }
+        if (productCustomerCalculator != null) {
+            productCustomerCalculator.setMetricsListener(metricsListener);
+        }
+        if (customerRankingCalculator != null) {
+            customerRankingCalculator.setMetricsListener(metricsListener);
+        }
+        if (sharedIngestion != null) {
+            sharedIngestion.setMetricsListener(metricsListener);
+        }
+    }
+
+    public void setOutputOptions(final OutputOptions outputOptions) {
+        if (orderPriceCalculator != null) {
+            orderPriceCalculator.setOutputOptions(outputOptions);
+        }
+        if (productCustomerCalculator != null) {
+            productCustomerCalculator.setOutputOptions(outputOptions);
+        }
+        if (customerRankingCalculator != null) {
+            customerRankingCalculator.setOutputOptions(outputOptions);
+        }
+    }
+
     public File calculateOrderPrices() throws IOException {
 
         return orderPriceCalculator.calculateOrderPrices();
@@ -48,4 +97,83 @@ public class FileCalculator {
         return customerRankingCalculator.calculateCustomerRanking();
     }
 
+    public File calculateTopCustomerRanking(final int k) throws IOException {
+        return customerRankingCalculator.calculateTopCustomerRanking(k);
+    }
+
+    //Orders and products are parsed once and the three reports are generated from the same ingested data
+    public List<File> calculateAllReports() throws IOException {
+        final IngestedOrders ingestedOrders = sharedIngestion.ingest();
+
+        return asList(
+                orderPriceCalculator.calculateOrderPrices(ingestedOrders),
+                customerRankingCalculator.calculateCustomerRanking(ingestedOrders),
+                productCustomerCalculator.calculateProductCustomers(ingestedOrders)
+        );
+    }
+
+    //Same reports, but the three of them are written at the same time on the given executor (a thread per report is enough,
+    //virtual threads work too). Without a shared ingestion, each calculator parses the files it needs on its own thread.
+    //If a report fails the others are cancelled, and the first failure is thrown
+    public List<File> calculateAllReports(final Executor executor) throws IOException {
+        final List<Callable<File>> reports = new ArrayList<>();
+
+        if (sharedIngestion != null) {
+            final IngestedOrders ingestedOrders = sharedIngestion.ingest();
+            reports.add(() -> orderPriceCalculator.calculateOrderPrices(ingestedOrders));
+            reports.add(() -> customerRankingCalculator.calculateCustomerRanking(ingestedOrders));
+            reports.add(() -> productCustomerCalculator.calculateProductCustomers(ingestedOrders));
+        } else {
+            reports.add(orderPriceCalculator::calculateOrderPrices);
+            reports.add(customerRankingCalculator::calculateCustomerRanking);
+            reports.add(productCustomerCalculator::calculateProductCustomers);
+        }
+
+        return runConcurrently(reports, executor);
+    }
+
+    //Results are waited for in completion order, so a failure is seen as soon as it happens and not after the slower reports
+    private List<File> runConcurrently(final List<Callable<File>> reports, final Executor executor) throws IOException {
+        final ExecutorCompletionService<File> completionService = new ExecutorCompletionService<>(executor);
+        final List<Future<File>> futures = new ArrayList<>();
+
+        try {
+            for (Callable<File> report : reports) {
+                futures.add(completionService.submit(report));
+            }
+            for (int completed = 0; completed < futures.size(); completed++) {
+                completionService.take().get();
+            }
+
+            final List<File> results = new ArrayList<>();
+            for (Future<File> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calculating the reports", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } finally {
+            //Nothing to do when everything went well, otherwise it interrupts the reports still running
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static IOException unwrap(final Throwable failure) {
+        if (failure instanceof IOException) {
+            return (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            return ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return new IOException("Could not calculate the reports", failure);
+    }
 }
@@ -0,0 +1,393 @@
+package handler;
+
+import metrics.MetricsListener;
+import metrics.Stage;
+import metrics.StageTimer;
+import model.IngestedOrders;
+import model.Money;
+import model.PriceTable;
+import structures.LongBitmap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+import utils.CsvTokenizer;
+import utils.FileChunk;
+import utils.InputSource;
+import utils.MappedCsvTokenizer;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+//Reads products.csv and orders.csv exactly once and keeps what every report needs from them
+public class SharedIngestion {
+
+    //More chunks than threads, so a slow chunk doesn't leave the other threads idle
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final InputSource products;
+    private final InputSource orders;
+    private final ReadMode readMode;
+    private final int parallelism;
+    private final Path snapshot;
+    private MetricsListener metricsListener = MetricsListener.NOOP;
+    private boolean keepLastRun = false;
+
+    //Prices and checksum of products.csv as of the last run, with the length and modification time it had then
+    private long productsLength = -1;
+    private long productsLastModified = -1;
+    private LongObjectMap<BigDecimal> lastPrices;
+    private PriceTable lastPriceTable;
+    private long lastProductsChecksum;
+    private boolean lastProductsChecksummed = false;
+
+    //The aggregates of the last run, as they would be in its snapshot
+    private AggregateSnapshot lastRun;
+
+    public SharedIngestion(final File products, final File orders) {
+        this(products, orders, ReadMode.BUFFERED_READER);
+    }
+
+    public SharedIngestion(final File products, final File orders, final ReadMode readMode) {
+        this(products, orders, readMode, 1);
+    }
+
+    //With a parallelism over 1, orders.csv is split in line aligned byte ranges that are memory mapped and parsed on a fork join pool
+    public SharedIngestion(final File products, final File orders, final ReadMode readMode, final int parallelism) {
+        this(products, orders, readMode, parallelism, null);
+    }
+
+    //With a snapshot file, the aggregates are saved after each run. As long as products.csv is the same and orders.csv
+    //was only appended to, the next run starts from them and only parses the new records
+    public SharedIngestion(final File products, final File orders, final ReadMode readMode, final int parallelism, final Path snapshot) {
+        this(InputSource.of(products), InputSource.of(orders), readMode, parallelism, snapshot);
+    }
+
+    //Chunking and snapshots need orders.csv and products.csv as plain files. Otherwise, orders are parsed sequentially
+    //as they are streamed, reading each source exactly once, and the snapshot is ignored
+    public SharedIngestion(final InputSource products, final InputSource orders, final ReadMode readMode, final int parallelism, final Path snapshot) {
+        this.products = products;
+        this.orders = orders;
+        this.readMode = readMode;
+        this.parallelism = parallelism;
+        this.snapshot = snapshot;
+    }
+
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    //For repeated runs (see CalculationService): while products.csv keeps its length and modification time, its price
+    //table and checksum are kept from the run before instead of reading it again. With a snapshot file, the aggregates
+    //of the run before are kept too, and the next run adds the appended orders to a copy of them instead of reading the
+    //snapshot back, so the orders returned before don't change. Those runs don't write the snapshot file
+    public void setKeepLastRun(final boolean keepLastRun) {
+        this.keepLastRun = keepLastRun;
+        this.lastRun = null;
+    }
+
+    //Allocations of the parallel chunks happen on the pool threads, so they are not in the ingest stage metrics.
+    //Bytes read are -1 when a source is streamed, as its length isn't known
+    public IngestedOrders ingest() throws IOException {
+        final StageTimer loadingPrices = startStage(Stage.PRICE_LOOKUP);
+        final boolean productsUnchanged = areProductsUnchanged();
+        if (!productsUnchanged) {
+            loadProducts();
+        }
+        final LongObjectMap<BigDecimal> prices = lastPrices;
+        final PriceTable productPrices = lastPriceTable;
+        final long productsBytesRead = productsUnchanged ? 0 : this.products.length();
+        loadingPrices.rows(prices.size()).bytesRead(productsBytesRead).stop();
+
+        final StageTimer ingesting = startStage(Stage.INGEST);
+        final IngestedOrders ingestedOrders = ingestOrders(productPrices, productsBytesRead);
+        ingesting.rows(ingestedOrders.getOrderPrices().size())
+                .bytesRead(areFiles() ? ingestedOrders.getBytesRead() - productsBytesRead : -1)
+                .stop();
+
+        return ingestedOrders;
+    }
+
+    private IngestedOrders ingestOrders(final PriceTable productPrices, final long productsBytesRead) throws IOException {
+        if (!areFiles()) {
+            return toIngestedOrders(aggregate(productPrices), -1);
+        }
+        return snapshot != null
+                ? ingestFromSnapshot(productPrices, productsBytesRead)
+                : ingestAll(productPrices, productsBytesRead);
+    }
+
+    private IngestedOrders ingestAll(final PriceTable productPrices, final long productsBytesRead) throws IOException {
+        //The columnar cache is already parsed, there is nothing to split
+        final Aggregates aggregates = parallelism > 1 && readMode != ReadMode.COLUMNAR_CACHE
+                ? aggregateInParallel(productPrices, getFirstRecordOffset(), Long.MAX_VALUE, new Aggregates(productPrices))
+                : aggregate(productPrices);
+
+        return toIngestedOrders(aggregates, productsBytesRead + this.orders.length());
+    }
+
+    private boolean areFiles() {
+        return this.products.getFile() != null && this.orders.getFile() != null;
+    }
+
+    //Orders are only read up to the length they had when the run started, which is where the next run will go on from
+    //The checksums count as bytes read too: products.csv when it isn't reused, and a bounded window of orders.csv before
+    //the offset the snapshot was built from and before the one this run builds
+    private IngestedOrders ingestFromSnapshot(final PriceTable productPrices, final long productsBytesRead) throws IOException {
+        final long productsChecksumBytesRead = lastProductsChecksummed ? 0 : this.products.length();
+        final long productsChecksum = getProductsChecksum();
+        final long ordersLength = this.orders.length();
+        final Path ordersPath = this.orders.getFile().toPath();
+
+        //If the last run doesn't match the inputs anymore, the older snapshot file wouldn't either
+        final boolean fromLastRun = lastRun != null;
+        final AggregateSnapshot stored = fromLastRun ? lastRun : readSnapshot();
+        final long storedOffset = stored != null ? Math.min(stored.getOrdersOffset(), ordersLength) : 0;
+        final long storedWindowChecksum = stored != null ? AggregateSnapshot.checksumOrdersWindow(ordersPath, storedOffset) : 0;
+        final long ordersWindowChecksum = AggregateSnapshot.checksumOrdersWindow(ordersPath, ordersLength);
+        final long checksumBytesRead = productsChecksumBytesRead
+                + (stored != null ? AggregateSnapshot.ordersWindowLength(storedOffset) : 0)
+                + AggregateSnapshot.ordersWindowLength(ordersLength);
+
+        final AggregateSnapshot previous = isValid(stored, productsChecksum, productPrices, storedWindowChecksum) ? stored : null;
+        final long from = previous != null ? previous.getOrdersOffset() : getFirstRecordOffset();
+        final Aggregates appended = new Aggregates(productPrices);
+
+        if (parallelism > 1) {
+            aggregateInParallel(productPrices, from, ordersLength, appended);
+        } else {
+            aggregateChunk(new FileChunk(from, ordersLength), productPrices, appended);
+        }
+
+        final Aggregates aggregates;
+        if (previous == null) {
+            aggregates = appended;
+        } else if (fromLastRun) {
+            aggregates = new Aggregates(previous.getOrderPrices(), previous.getCustomerTotals(), previous.getCustomersWhoOrderedProducts())
+                    .mergedCopy(appended);
+        } else {
+            aggregates = new Aggregates(previous.getOrderPrices(), previous.getCustomerTotals(), previous.getCustomersWhoOrderedProducts());
+            aggregates.merge(appended);
+        }
+
+        final AggregateSnapshot current = new AggregateSnapshot(
+                productsChecksum,
+                ordersLength,
+                ordersWindowChecksum,
+                aggregates.orderPrices,
+                aggregates.customerTotals,
+                aggregates.customersWhoOrderedProducts
+        );
+        if (!fromLastRun || previous == null) {
+            current.write(snapshot);
+        }
+        lastRun = keepLastRun ? current : null;
+
+        return new IngestedOrders(
+                aggregates.orderPrices,
+                aggregates.customerTotals,
+                aggregates.customersWhoOrderedProducts,
+                productsBytesRead + checksumBytesRead + ordersLength - from,
+                previous != null && fromLastRun ? appended.customerTotals.keys() : null
+        );
+    }
+
+    //A snapshot that can't be read just means a full recompute
+    private AggregateSnapshot readSnapshot() {
+        try {
+            return AggregateSnapshot.read(snapshot);
+        } catch (IOException | RuntimeException invalidSnapshot) {
+            return null;
+        }
+    }
+
+    //And so does one that doesn't match the inputs anymore
+    private boolean isValid(final AggregateSnapshot stored, final long productsChecksum, final PriceTable productPrices, final long ordersWindowChecksum) {
+        try {
+            return stored != null && stored.isValidFor(productsChecksum, this.orders.getFile(), productPrices.getScale(), ordersWindowChecksum);
+        } catch (IOException | RuntimeException invalidSnapshot) {
+            return false;
+        }
+    }
+
+    private IngestedOrders toIngestedOrders(final Aggregates aggregates, final long bytesRead) {
+        return new IngestedOrders(
+                aggregates.orderPrices,
+                aggregates.customerTotals,
+                aggregates.customersWhoOrderedProducts,
+                bytesRead
+        );
+    }
+
+    private Aggregates aggregate(final PriceTable productPrices) throws IOException {
+        final Aggregates aggregates = new Aggregates(productPrices);
+        final Money orderTotal = productPrices.newAmount();
+
+        Utils.forEachOrder(this.orders, readMode, (orderId, customer, products, productCount) ->
+                aggregates.add(orderId, customer, calculateOrderTotal(products, productCount, productPrices, orderTotal), products, productCount)
+        );
+
+        return aggregates;
+    }
+
+    //Records in [from, to) are parsed in parallel and added to the given aggregates
+    private Aggregates aggregateInParallel(final PriceTable productPrices, final long from, final long to, final Aggregates aggregates) throws IOException {
+        final List<FileChunk> chunks = FileChunk.split(this.orders.getFile().toPath(), from, to, parallelism * CHUNKS_PER_THREAD);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            final List<ForkJoinTask<Aggregates>> partials = new ArrayList<>();
+            for (FileChunk chunk : chunks) {
+                partials.add(pool.submit(() -> aggregateChunk(chunk, productPrices, new Aggregates(productPrices))));
+            }
+
+            //Partials are merged in file order, so a repeated order id keeps its last total as in the sequential pass
+            for (ForkJoinTask<Aggregates> partial : partials) {
+                aggregates.merge(partial.get());
+            }
+
+            return aggregates;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing " + this.orders, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not parse " + this.orders, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Aggregates aggregateChunk(final FileChunk chunk, final PriceTable productPrices, final Aggregates aggregates) throws IOException {
+        final Money orderTotal = productPrices.newAmount();
+
+        try (CsvTokenizer tokenizer = new MappedCsvTokenizer(this.orders.getFile().toPath(), chunk.getStart(), chunk.getEnd(), MappedCsvTokenizer.DEFAULT_WINDOW_SIZE)) {
+            Utils.forEachOrder(tokenizer, (orderId, customer, products, productCount) ->
+                    aggregates.add(orderId, customer, calculateOrderTotal(products, productCount, productPrices, orderTotal), products, productCount)
+            );
+        }
+
+        return aggregates;
+    }
+
+    private long getFirstRecordOffset() throws IOException {
+        try (MappedCsvTokenizer tokenizer = new MappedCsvTokenizer(this.orders.getFile())) {
+            //Header
+            tokenizer.endRecord();
+            return tokenizer.getPosition();
+        }
+    }
+
+    private boolean areProductsUnchanged() {
+        final File file = this.products.getFile();
+        return keepLastRun
+                && lastPriceTable != null
+                && file != null
+                && file.length() == productsLength
+                && file.lastModified() == productsLastModified;
+    }
+
+    //The version is taken before reading, so a file changing while loading just means loading it again on the next run
+    private void loadProducts() throws IOException {
+        final File file = this.products.getFile();
+        productsLength = file != null ? file.length() : -1;
+        productsLastModified = file != null ? file.lastModified() : -1;
+        lastPriceTable = null;
+        lastProductsChecksummed = false;
+
+        lastPrices = getProductPrices();
+        lastPriceTable = PriceTable.of(lastPrices);
+    }
+
+    private long getProductsChecksum() throws IOException {
+        if (!lastProductsChecksummed) {
+            lastProductsChecksum = AggregateSnapshot.checksumProducts(this.products.getFile());
+            lastProductsChecksummed = true;
+        }
+        return lastProductsChecksum;
+    }
+
+    //Unlike the calculators, we don't know beforehand which products are ordered, so the whole price table is kept
+    private LongObjectMap<BigDecimal> getProductPrices() throws IOException {
+        final LongObjectMap<BigDecimal> productPrices = new LongObjectMap<>();
+
+        Utils.forEachProductPrice(this.products, readMode, productPrices::put);
+
+        return productPrices;
+    }
+
+    private StageTimer startStage(final Stage stage) {
+        return StageTimer.start(metricsListener, SharedIngestion.class.getSimpleName(), stage);
+    }
+
+    //The same amount is cleared and reused for every order of the pass
+    private Money calculateOrderTotal(final long[] products, final int productCount, final PriceTable productPrices, final Money total) {
+        total.clear();
+
+        for (int index = 0; index < productCount; index++) {
+            productPrices.addPrice(total, products[index], 1);
+        }
+
+        return total;
+    }
+
+    //Per order totals, per customer totals and per product customers, either for the whole file or for a chunk of it
+    private static class Aggregates {
+        private final LongMoneyMap orderPrices;
+        private final LongMoneyMap customerTotals;
+        private final LongObjectMap<LongBitmap> customersWhoOrderedProducts;
+
+        private Aggregates(final PriceTable productPrices) {
+            this(productPrices.newTotals(), productPrices.newTotals(), new LongObjectMap<>());
+        }
+
+        private Aggregates(final LongMoneyMap orderPrices, final LongMoneyMap customerTotals, final LongObjectMap<LongBitmap> customersWhoOrderedProducts) {
+            this.orderPrices = orderPrices;
+            this.customerTotals = customerTotals;
+            this.customersWhoOrderedProducts = customersWhoOrderedProducts;
+        }
+
+        private void add(final long orderId, final long customer, final Money orderTotal, final long[] products, final int productCount) {
+            orderPrices.put(orderId, orderTotal);
+            customerTotals.add(customer, orderTotal);
+            for (int index = 0; index < productCount; index++) {
+                customersWhoOrderedProducts
+                        .computeIfAbsent(products[index], newProduct -> new LongBitmap())
+                        .add(customer);
+            }
+        }
+
+        private void merge(final Aggregates partial) {
+            orderPrices.putAll(partial.orderPrices);
+            customerTotals.addAll(partial.customerTotals);
+            partial.customersWhoOrderedProducts.forEach((product, customers) ->
+                    customersWhoOrderedProducts
+                            .computeIfAbsent(product, newProduct -> new LongBitmap())
+                            .or(customers)
+            );
+        }
+
+        //These aggregates may still be in use, so they are left as they are: the maps are copied, and the bitmaps of
+        //the products in the partial are new ones. The bitmaps of the other products are shared
+        private Aggregates mergedCopy(final Aggregates partial) {
+            final Aggregates copy = new Aggregates(orderPrices.copy(), customerTotals.copy(), customersWhoOrderedProducts.copy());
+            copy.orderPrices.putAll(partial.orderPrices);
+            copy.customerTotals.addAll(partial.customerTotals);
+            //The partial's bitmaps are its own, so the customers from before can be added to them
+            partial.customersWhoOrderedProducts.forEach((product, customers) -> {
+                final LongBitmap previous = customersWhoOrderedProducts.get(product);
+                if (previous != null) {
+                    customers.or(previous);
+                }
+                copy.customersWhoOrderedProducts.put(product, customers);
+            });
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static utils.Json.quote;
+
+//Keeps every stage of a run and writes them as run_metrics.json, next to the reports
+public class JsonRunReport implements MetricsListener {
+
+    public static final String FILE_NAME = "run_metrics.json";
+
+    private final List<StageMetrics> stages = new ArrayList<>();
+
+    @Override
+    public synchronized void onStage(final StageMetrics metrics) {
+        stages.add(metrics);
+    }
+
+    public synchronized List<StageMetrics> getStages() {
+        return new ArrayList<>(stages);
+    }
+
+    public File writeTo(final Path outDirectory) throws IOException {
+        final File file = outDirectory.resolve(FILE_NAME).toFile();
+        Files.write(file.toPath(), toJson().getBytes(UTF_8));
+        return file;
+    }
+
+    public String toJson() {
+        final StringBuilder json = new StringBuilder("{\n  \"stages\": [");
+
+        final List<StageMetrics> recorded = getStages();
+        for (int index = 0; index < recorded.size(); index++) {
+            final StageMetrics stage = recorded.get(index);
+            json.append(index == 0 ? "\n" : ",\n")
+                    .append("    {\"component\": ").append(quote(stage.getComponent()))
+                    .append(", \"stage\": ").append(quote(stage.getStage().name()))
+                    .append(", \"thread\": ").append(quote(stage.getThread()))
+                    .append(", \"durationNanos\": ").append(stage.getDurationNanos())
+                    .append(", \"rows\": ").append(stage.getRows())
+                    .append(", \"bytesRead\": ").append(stage.getBytesRead())
+                    .append(", \"bytesWritten\": ").append(stage.getBytesWritten())
+                    .append(", \"allocatedBytes\": ").append(stage.getAllocatedBytes())
+                    .append(", \"cacheHits\": ").append(stage.getCacheHits())
+                    .append(", \"cacheMisses\": ").append(stage.getCacheMisses())
+                    .append('}');
+        }
+
+        return json.append(recorded.isEmpty() ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+}
@@ -0,0 +1,11 @@
+package metrics;
+
+//Receives the metrics of every stage as it finishes. Reports can run on several threads at the same time, so implementations must be thread safe
+@FunctionalInterface
+public interface MetricsListener {
+
+    //Nothing is measured at all with it, see StageTimer
+    MetricsListener NOOP = metrics -> { };
+
+    void onStage(StageMetrics metrics);
+}
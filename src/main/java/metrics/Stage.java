@@ -0,0 +1,14 @@
+package metrics;
+
+public enum Stage {
+    //Orders and products parsed once for every report (see SharedIngestion)
+    INGEST,
+    //Reading a csv into the structure the report works on
+    PARSE,
+    //Pricing the ordered products and adding up the totals
+    PRICE_LOOKUP,
+    //Reading the names of the customers in the ranking
+    CUSTOMER_LOOKUP,
+    SORT,
+    WRITE
+}
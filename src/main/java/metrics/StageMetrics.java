@@ -0,0 +1,77 @@
+package metrics;
+
+//What a stage of a calculation took. Allocated bytes are those of the thread that ran it, or -1 if the JVM can't tell.
+//Cache hits and misses are those of the product price index, for the stages that look prices up in it
+public class StageMetrics {
+
+    private final String component;
+    private final Stage stage;
+    private final String thread;
+    private final long durationNanos;
+    private final long rows;
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final long allocatedBytes;
+    private final long cacheHits;
+    private final long cacheMisses;
+
+    public StageMetrics(final String component, final Stage stage, final String thread, final long durationNanos,
+                        final long rows, final long bytesRead, final long bytesWritten, final long allocatedBytes) {
+        this(component, stage, thread, durationNanos, rows, bytesRead, bytesWritten, allocatedBytes, 0, 0);
+    }
+
+    public StageMetrics(final String component, final Stage stage, final String thread, final long durationNanos,
+                        final long rows, final long bytesRead, final long bytesWritten, final long allocatedBytes,
+                        final long cacheHits, final long cacheMisses) {
+        this.component = component;
+        this.stage = stage;
+        this.thread = thread;
+        this.durationNanos = durationNanos;
+        this.rows = rows;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.allocatedBytes = allocatedBytes;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+}
@@ -0,0 +1,118 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+//Measures a stage from start to stop. With the NOOP listener a shared timer that does nothing is returned,
+//so a disabled stage costs a comparison and a few empty calls. Being shared by every thread, it never keeps any value
+public class StageTimer {
+
+    private static final long UNKNOWN = -1;
+    private static final StageTimer DISABLED = new StageTimer(null, null, null, 0, UNKNOWN);
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+    private final MetricsListener listener;
+    private final String component;
+    private final Stage stage;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    private long rows;
+    private long bytesRead;
+    private long bytesWritten;
+    private long cacheHits;
+    private long cacheMisses;
+
+    private StageTimer(final MetricsListener listener, final String component, final Stage stage, final long startNanos, final long startAllocatedBytes) {
+        this.listener = listener;
+        this.component = component;
+        this.stage = stage;
+        this.startNanos = startNanos;
+        this.startAllocatedBytes = startAllocatedBytes;
+    }
+
+    public static StageTimer start(final MetricsListener listener, final String component, final Stage stage) {
+        if (listener == MetricsListener.NOOP) {
+            return DISABLED;
+        }
+        return new StageTimer(listener, component, stage, System.nanoTime(), allocatedBytes());
+    }
+
+    public StageTimer rows(final long rows) {
+        if (this == DISABLED) {
+            return this;
+        }
+        this.rows = rows;
+        return this;
+    }
+
+    public StageTimer bytesRead(final long bytesRead) {
+        if (this == DISABLED) {
+            return this;
+        }
+        this.bytesRead = bytesRead;
+        return this;
+    }
+
+    public StageTimer bytesWritten(final long bytesWritten) {
+        if (this == DISABLED) {
+            return this;
+        }
+        this.bytesWritten = bytesWritten;
+        return this;
+    }
+
+    public StageTimer cacheHits(final long cacheHits) {
+        if (this == DISABLED) {
+            return this;
+        }
+        this.cacheHits = cacheHits;
+        return this;
+    }
+
+    public StageTimer cacheMisses(final long cacheMisses) {
+        if (this == DISABLED) {
+            return this;
+        }
+        this.cacheMisses = cacheMisses;
+        return this;
+    }
+
+    public void stop() {
+        if (this == DISABLED) {
+            return;
+        }
+
+        final long durationNanos = System.nanoTime() - startNanos;
+        final long endAllocatedBytes = allocatedBytes();
+        listener.onStage(new StageMetrics(
+                component,
+                stage,
+                Thread.currentThread().getName(),
+                durationNanos,
+                rows,
+                bytesRead,
+                bytesWritten,
+                startAllocatedBytes == UNKNOWN || endAllocatedBytes == UNKNOWN ? UNKNOWN : endAllocatedBytes - startAllocatedBytes,
+                cacheHits,
+                cacheMisses
+        ));
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS != null
+                ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId())
+                : UNKNOWN;
+    }
+
+    //Only HotSpot based JVMs count allocations per thread
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+            if (allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+                return allocations;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package model;
+
+import structures.HyperLogLog;
+import structures.LongObjectMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//A HyperLogLog sketch of the customers of every product. Sketches built from different chunks of orders.csv, or from
+//the orders of different days, merge into the sketches of all of them
+public class DistinctCustomerSketches {
+
+    private static final int MAGIC = 0x44435331;
+
+    private final int precision;
+    private final LongObjectMap<HyperLogLog> sketches = new LongObjectMap<>();
+
+    public DistinctCustomerSketches(final int precision) {
+        this.precision = precision;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(final long product, final long customer) {
+        sketches.computeIfAbsent(product, newProduct -> new HyperLogLog(precision)).add(customer);
+    }
+
+    public void merge(final DistinctCustomerSketches other) {
+        other.sketches.forEach((product, sketch) ->
+                sketches.computeIfAbsent(product, newProduct -> new HyperLogLog(precision)).merge(sketch)
+        );
+    }
+
+    public long estimate(final long product) {
+        final HyperLogLog sketch = sketches.get(product);
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    public long[] sortedProducts() {
+        return sketches.sortedKeys();
+    }
+
+    public int size() {
+        return sketches.size();
+    }
+
+    public long sizeInBytes() {
+        final long[] size = {0};
+        sketches.forEach((product, sketch) -> size[0] += sketch.sizeInBytes());
+        return size[0];
+    }
+
+    public void write(final Path file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(precision);
+            output.writeInt(sketches.size());
+            for (long product : sketches.sortedKeys()) {
+                output.writeLong(product);
+                sketches.get(product).writeTo(output);
+            }
+        }
+    }
+
+    public static DistinctCustomerSketches read(final Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " doesn't hold distinct customer sketches");
+            }
+
+            final DistinctCustomerSketches read = new DistinctCustomerSketches(input.readByte());
+            final int productCount = input.readInt();
+            for (int index = 0; index < productCount; index++) {
+                final long product = input.readLong();
+                read.sketches.put(product, HyperLogLog.readFrom(input));
+            }
+            return read;
+        }
+    }
+}
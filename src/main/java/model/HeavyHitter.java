@@ -0,0 +1,33 @@
+package model;
+
+import java.util.Comparator;
+
+//A product or customer among the most frequent ones. Its real count is between count - maxError and count
+public class HeavyHitter {
+
+    public static final Comparator<HeavyHitter> BY_COUNT_THEN_ID =
+            Comparator.comparingLong(HeavyHitter::getCount).reversed()
+                    .thenComparingLong(HeavyHitter::getId);
+
+    private final long id;
+    private final long count;
+    private final long maxError;
+
+    public HeavyHitter(final long id, final long count, final long maxError) {
+        this.id = id;
+        this.count = count;
+        this.maxError = maxError;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxError() {
+        return maxError;
+    }
+}
@@ -0,0 +1,59 @@
+package model;
+
+import structures.LongBitmap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+
+
+//Everything the three reports need, gathered in a single pass over orders.csv and products.csv
+public class IngestedOrders {
+
+    private final LongMoneyMap orderPrices;
+    private final LongMoneyMap customerTotals;
+    private final LongObjectMap<LongBitmap> customersWhoOrderedProducts;
+    private final long bytesRead;
+    private final long[] changedCustomers;
+
+    public IngestedOrders(final LongMoneyMap orderPrices,
+                          final LongMoneyMap customerTotals,
+                          final LongObjectMap<LongBitmap> customersWhoOrderedProducts,
+                          final long bytesRead) {
+
+        this(orderPrices, customerTotals, customersWhoOrderedProducts, bytesRead, null);
+    }
+
+    public IngestedOrders(final LongMoneyMap orderPrices,
+                          final LongMoneyMap customerTotals,
+                          final LongObjectMap<LongBitmap> customersWhoOrderedProducts,
+                          final long bytesRead,
+                          final long[] changedCustomers) {
+
+        this.orderPrices = orderPrices;
+        this.customerTotals = customerTotals;
+        this.customersWhoOrderedProducts = customersWhoOrderedProducts;
+        this.bytesRead = bytesRead;
+        this.changedCustomers = changedCustomers;
+    }
+
+    public LongMoneyMap getOrderPrices() {
+        return orderPrices;
+    }
+
+    public LongMoneyMap getCustomerTotals() {
+        return customerTotals;
+    }
+
+    public LongObjectMap<LongBitmap> getCustomersWhoOrderedProducts() {
+        return customersWhoOrderedProducts;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    //Customers whose totals changed since the orders these were built on (see SharedIngestion.setKeepLastRun),
+    //or null if every total was computed again
+    public long[] getChangedCustomers() {
+        return changedCustomers;
+    }
+}
@@ -0,0 +1,86 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+//Mutable money amount kept as a long count of 10^-scale units, so adding prices doesn't allocate.
+//If the amount stops fitting in a long it carries on as a BigDecimal.
+//It also remembers the biggest scale it was built from: that's the scale BigDecimal arithmetic would have given the
+//same sum, so the formatted amount is byte for byte what adding BigDecimals used to print
+public class Money {
+
+    private final int scale;
+
+    private long unscaled;
+    private int displayScale;
+    private BigDecimal exact;
+
+    public Money(final int scale) {
+        this.scale = scale;
+    }
+
+    public void clear() {
+        unscaled = 0;
+        displayScale = 0;
+        exact = null;
+    }
+
+    public void set(final long unscaled, final int displayScale, final BigDecimal exact) {
+        this.unscaled = unscaled;
+        this.displayScale = displayScale;
+        this.exact = exact;
+    }
+
+    public void add(final long unscaledAmount, final int amountDisplayScale, final long units) {
+        displayScale = Math.max(displayScale, amountDisplayScale);
+        if (exact == null) {
+            try {
+                unscaled = Math.addExact(unscaled, Math.multiplyExact(unscaledAmount, units));
+                return;
+            } catch (ArithmeticException overflow) {
+                exact = BigDecimal.valueOf(unscaled, scale);
+            }
+        }
+        exact = exact.add(BigDecimal.valueOf(unscaledAmount, scale).multiply(BigDecimal.valueOf(units)));
+    }
+
+    //Used when the amount can't be represented with this scale at all
+    public void add(final BigDecimal amount) {
+        displayScale = Math.max(displayScale, amount.scale());
+        exact = toExact().add(amount);
+    }
+
+    public void add(final Money other) {
+        if (other.exact == null) {
+            add(other.unscaled, other.displayScale, 1);
+        } else {
+            displayScale = Math.max(displayScale, other.displayScale);
+            exact = toExact().add(other.exact);
+        }
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getDisplayScale() {
+        return displayScale;
+    }
+
+    //Null while the amount fits in a long
+    public BigDecimal getExact() {
+        return exact;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toExact().setScale(displayScale, RoundingMode.UNNECESSARY);
+    }
+
+    private BigDecimal toExact() {
+        return exact != null ? exact : BigDecimal.valueOf(unscaled, scale);
+    }
+}
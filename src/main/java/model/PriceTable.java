@@ -0,0 +1,110 @@
+package model;
+
+import structures.LongLongMap;
+import structures.LongMoneyMap;
+import structures.LongObjectMap;
+
+import java.math.BigDecimal;
+import java.util.function.LongFunction;
+
+//Product prices as fixed point longs, all with the same scale (by default the biggest one found in products.csv).
+//If some price can't be held exactly that way, the table keeps working with BigDecimal prices instead
+public class PriceTable {
+
+    //Any bigger and even a single unit of a price could overflow a long
+    public static final int MAX_FIXED_POINT_SCALE = 18;
+
+    private final int scale;
+    private final boolean fixedPoint;
+    private final LongLongMap unscaledPrices;
+    private final LongLongMap priceScales;
+    private final LongObjectMap<BigDecimal> exactPrices;
+    private final LongFunction<BigDecimal> priceLoader;
+
+    private PriceTable(final int scale, final boolean fixedPoint, final LongObjectMap<BigDecimal> exactPrices, final LongFunction<BigDecimal> priceLoader) {
+        this.scale = scale;
+        this.fixedPoint = fixedPoint && scale <= MAX_FIXED_POINT_SCALE;
+        this.unscaledPrices = new LongLongMap();
+        this.priceScales = new LongLongMap();
+        this.exactPrices = exactPrices;
+        this.priceLoader = priceLoader;
+    }
+
+    public static PriceTable of(final LongObjectMap<BigDecimal> prices) {
+        final int[] biggestScale = {0};
+        prices.forEach((product, price) -> biggestScale[0] = Math.max(biggestScale[0], price.scale()));
+
+        return of(prices, biggestScale[0]);
+    }
+
+    public static PriceTable of(final LongObjectMap<BigDecimal> prices, final int scale) {
+        final PriceTable table = new PriceTable(scale, true, new LongObjectMap<>(), null);
+
+        for (long product : prices.keys()) {
+            if (!table.putFixedPoint(product, prices.get(product))) {
+                return new PriceTable(scale, false, prices, null);
+            }
+        }
+
+        return table;
+    }
+
+    //Prices are only looked up (once) when their product is first added. Those that can't be held as fixed point
+    //with the given scale are kept as BigDecimal, one by one
+    public static PriceTable lazy(final int scale, final LongFunction<BigDecimal> priceLoader) {
+        return new PriceTable(scale, true, new LongObjectMap<>(), priceLoader);
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public boolean isFixedPoint() {
+        return fixedPoint;
+    }
+
+    public Money newAmount() {
+        return new Money(scale);
+    }
+
+    public LongMoneyMap newTotals() {
+        return new LongMoneyMap(scale);
+    }
+
+    public void addPrice(final Money total, final long product, final long units) {
+        if (fixedPoint) {
+            final long priceScale = priceScales.get(product, -1);
+            if (priceScale >= 0) {
+                total.add(unscaledPrices.get(product, 0), (int) priceScale, units);
+                return;
+            }
+        }
+
+        BigDecimal price = exactPrices.get(product);
+        if (price == null && priceLoader != null) {
+            price = priceLoader.apply(product);
+            if (price != null && putFixedPoint(product, price)) {
+                addPrice(total, product, units);
+                return;
+            }
+            exactPrices.put(product, price);
+        }
+        if (price == null) {
+            throw new IllegalStateException("There is no price for product " + product);
+        }
+        total.add(price.multiply(BigDecimal.valueOf(units)));
+    }
+
+    private boolean putFixedPoint(final long product, final BigDecimal price) {
+        if (!fixedPoint || price.scale() < 0 || price.scale() > scale) {
+            return false;
+        }
+        try {
+            unscaledPrices.put(product, price.movePointRight(scale).longValueExact());
+            priceScales.put(product, price.scale());
+            return true;
+        } catch (ArithmeticException doesNotFit) {
+            return false;
+        }
+    }
+}
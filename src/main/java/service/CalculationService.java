@@ -0,0 +1,144 @@
+package service;
+
+import com.sun.net.httpserver.HttpServer;
+import handler.SharedIngestion;
+import model.IngestedOrders;
+import utils.ReadMode;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Loads the inputs once and answers order prices, customer totals and ranking, and product customers over local HTTP
+//(see ReportHandler) from the state kept in memory. The inputs are checked every poll interval and, when they change,
+//a new state is built next to the one being served and swapped in. Appended orders are all that is parsed, and are added
+//to copies of the orders being served, and only the customers they changed are ranked again. Files that didn't change
+//are not read again
+public class CalculationService implements Closeable {
+
+    public static final long DEFAULT_POLL_MILLIS = 1000;
+
+    //Positions of the files in the InputVersion
+    private static final int CUSTOMERS = 0;
+    private static final int PRODUCTS = 1;
+    private static final int ORDERS = 2;
+
+    private final File customers;
+    private final File products;
+    private final File orders;
+    private final ReadMode readMode;
+    private final SharedIngestion ingestion;
+    private final long pollMillis;
+
+    private volatile WarmState state;
+    //What the ingestion returned last, the orders its next run is appended to
+    private IngestedOrders lastIngested;
+    private volatile Exception lastReloadFailure;
+
+    private HttpServer server;
+    private ExecutorService requests;
+    private ScheduledExecutorService reloads;
+
+    public CalculationService(final File customers, final File products, final File orders, final Path snapshot) {
+        this(customers, products, orders, ReadMode.MEMORY_MAPPED, Runtime.getRuntime().availableProcessors(), snapshot, DEFAULT_POLL_MILLIS);
+    }
+
+    public CalculationService(final File customers, final File products, final File orders, final ReadMode readMode,
+                              final int parallelism, final Path snapshot, final long pollMillis) {
+        this.customers = customers;
+        this.products = products;
+        this.orders = orders;
+        this.readMode = readMode;
+        this.ingestion = new SharedIngestion(products, orders, readMode, parallelism, snapshot);
+        this.ingestion.setKeepLastRun(true);
+        this.pollMillis = pollMillis;
+    }
+
+    //Loads the inputs and starts listening on the loopback interface, port 0 picks any free port
+    public synchronized InetSocketAddress start(final int port) throws IOException {
+        reload();
+
+        requests = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", new ReportHandler(this));
+        server.setExecutor(requests);
+        server.start();
+
+        reloads = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "calculation-service-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloads.scheduleWithFixedDelay(this::reloadQuietly, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+
+        return server.getAddress();
+    }
+
+    //True if the inputs had changed and a new state is being served. What only depends on unchanged files is kept
+    //from the previous state: the orders if only customers.csv changed, the customers if it didn't
+    public synchronized boolean reload() throws IOException {
+        final InputVersion version = InputVersion.of(customers, products, orders);
+        final WarmState previous = state;
+        if (previous != null && previous.getVersion().equals(version)) {
+            return false;
+        }
+
+        final boolean ordersUnchanged = previous != null
+                && version.isUnchanged(previous.getVersion(), PRODUCTS)
+                && version.isUnchanged(previous.getVersion(), ORDERS);
+        final boolean customersUnchanged = previous != null && version.isUnchanged(previous.getVersion(), CUSTOMERS);
+
+        final IngestedOrders appendedTo = lastIngested;
+        final IngestedOrders ingestedOrders = ordersUnchanged ? previous.getIngestedOrders() : ingest();
+        final CustomerTable customerTable = customersUnchanged ? previous.getCustomers() : CustomerTable.load(customers, readMode);
+        //A failed reload may have left the ingestion ahead of the state being served
+        final boolean appended = !ordersUnchanged
+                && customersUnchanged
+                && ingestedOrders.getChangedCustomers() != null
+                && previous.getIngestedOrders() == appendedTo;
+        state = appended
+                ? WarmState.loadAppended(version, ingestedOrders, previous)
+                : WarmState.load(version, ingestedOrders, customerTable);
+        return true;
+    }
+
+    private IngestedOrders ingest() throws IOException {
+        lastIngested = ingestion.ingest();
+        return lastIngested;
+    }
+
+    public WarmState getState() {
+        return state;
+    }
+
+    //Null if the last reload worked. A failed reload keeps the previous state being served
+    public Exception getLastReloadFailure() {
+        return lastReloadFailure;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            requests.shutdownNow();
+            reloads.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+            lastReloadFailure = null;
+        } catch (IOException | RuntimeException e) {
+            lastReloadFailure = e;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package service;
+
+import structures.LongLongMap;
+import structures.LongMoneyMap;
+import utils.JoinedCustomerConsumer;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+//Every customer of customers.csv, in file order and in flat arrays, so the ranking can be joined again with new totals
+//without reading the file again while it doesn't change
+class CustomerTable {
+
+    private long[] customerIds = new long[16];
+    private String[] firstNames = new String[16];
+    private String[] lastNames = new String[16];
+    private int size;
+
+    //The first row of each customer id and, from each row, the next one with the same id (or -1), so a few customers
+    //can be joined without going through all of them
+    private LongLongMap firstRowById;
+    private int[] nextRowWithSameId;
+
+    private CustomerTable() {
+    }
+
+    static CustomerTable load(final File customers, final ReadMode readMode) throws IOException {
+        final CustomerTable table = new CustomerTable();
+        Utils.forEachCustomer(customers, readMode, customerId -> true, table::add);
+        table.indexRows();
+        return table;
+    }
+
+    //The same customers, in the same order, as CustomerJoin.hashJoin over the file
+    void hashJoin(final LongMoneyMap totals, final JoinedCustomerConsumer consumer) throws IOException {
+        for (int row = 0; row < size; row++) {
+            final int totalIndex = totals.indexOf(customerIds[row]);
+            if (totalIndex >= 0) {
+                consumer.accept(customerIds[row], firstNames[row], lastNames[row], totalIndex);
+            }
+        }
+    }
+
+    //The rows of the given customers that have a total, the rows of each customer in file order
+    void join(final long[] customers, final LongMoneyMap totals, final JoinedCustomerConsumer consumer) throws IOException {
+        for (long customerId : customers) {
+            final int totalIndex = totals.indexOf(customerId);
+            if (totalIndex < 0) {
+                continue;
+            }
+            for (int row = (int) firstRowById.get(customerId, -1); row >= 0; row = nextRowWithSameId[row]) {
+                consumer.accept(customerId, firstNames[row], lastNames[row], totalIndex);
+            }
+        }
+    }
+
+    private void add(final long customerId, final String firstName, final String lastName) {
+        if (size == customerIds.length) {
+            final int capacity = size * 2;
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+        }
+
+        customerIds[size] = customerId;
+        firstNames[size] = firstName;
+        lastNames[size] = lastName;
+        size++;
+    }
+
+    //Going backwards, so the chain of each id starts at its first row
+    private void indexRows() {
+        firstRowById = new LongLongMap(size);
+        nextRowWithSameId = new int[size];
+        for (int row = size - 1; row >= 0; row--) {
+            nextRowWithSameId[row] = (int) firstRowById.get(customerIds[row], -1);
+            firstRowById.put(customerIds[row], row);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package service;
+
+import java.io.File;
+import java.util.Arrays;
+
+//Length and modification time of each input file, which is what tells the service they changed
+public class InputVersion {
+
+    private final long[] lengthsAndModificationTimes;
+
+    private InputVersion(final long[] lengthsAndModificationTimes) {
+        this.lengthsAndModificationTimes = lengthsAndModificationTimes;
+    }
+
+    public static InputVersion of(final File... files) {
+        final long[] lengthsAndModificationTimes = new long[files.length * 2];
+        for (int index = 0; index < files.length; index++) {
+            lengthsAndModificationTimes[index * 2] = files[index].length();
+            lengthsAndModificationTimes[index * 2 + 1] = files[index].lastModified();
+        }
+        return new InputVersion(lengthsAndModificationTimes);
+    }
+
+    //Whether the file at that position of InputVersion.of is the same in both versions
+    public boolean isUnchanged(final InputVersion previous, final int file) {
+        return lengthsAndModificationTimes[file * 2] == previous.lengthsAndModificationTimes[file * 2]
+                && lengthsAndModificationTimes[file * 2 + 1] == previous.lengthsAndModificationTimes[file * 2 + 1];
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(lengthsAndModificationTimes, ((InputVersion) o).lengthsAndModificationTimes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(lengthsAndModificationTimes);
+    }
+}
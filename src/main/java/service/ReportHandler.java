@@ -0,0 +1,165 @@
+package service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import structures.LongBitmap;
+import utils.RankingRows;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.PrimitiveIterator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static utils.Json.quote;
+
+//Routes, all answered with JSON:
+//  GET  /orders/{id}               order price
+//  GET  /customers/{id}            customer total and position in the ranking
+//  GET  /ranking?limit={n}         the n biggest spenders (10 by default)
+//  GET  /products/{id}/customers   customers who ordered the product, by id
+//  POST /reload                    checks the inputs for changes right away
+class ReportHandler implements HttpHandler {
+
+    private static final int DEFAULT_RANKING_LIMIT = 10;
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int INTERNAL_ERROR = 500;
+
+    private final CalculationService service;
+
+    ReportHandler(final CalculationService service) {
+        this.service = service;
+    }
+
+    @Override
+    public void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+            final String method = exchange.getRequestMethod();
+
+            if (path.length == 1 && path[0].equals("reload")) {
+                if (!method.equals("POST")) {
+                    respond(exchange, METHOD_NOT_ALLOWED, error("Use POST to reload"));
+                    return;
+                }
+                respond(exchange, OK, "{\"reloaded\": " + service.reload() + "}");
+                return;
+            }
+            if (!method.equals("GET")) {
+                respond(exchange, METHOD_NOT_ALLOWED, error("Only GET is supported"));
+                return;
+            }
+
+            //The same state for the whole request, even if a reload swaps it meanwhile
+            final WarmState state = service.getState();
+            if (path.length == 2 && path[0].equals("orders")) {
+                respondOrder(exchange, state, Long.parseLong(path[1]));
+            } else if (path.length == 2 && path[0].equals("customers")) {
+                respondCustomer(exchange, state, Long.parseLong(path[1]));
+            } else if (path.length == 1 && path[0].equals("ranking")) {
+                respondRanking(exchange, state, getLimit(exchange.getRequestURI().getQuery()));
+            } else if (path.length == 3 && path[0].equals("products") && path[2].equals("customers")) {
+                respondProductCustomers(exchange, state, Long.parseLong(path[1]));
+            } else {
+                respond(exchange, NOT_FOUND, error("No such resource"));
+            }
+        } catch (NumberFormatException e) {
+            respond(exchange, BAD_REQUEST, error("Ids and limits must be numbers"));
+        } catch (IOException | RuntimeException e) {
+            respond(exchange, INTERNAL_ERROR, error(String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respondOrder(final HttpExchange exchange, final WarmState state, final long orderId) throws IOException {
+        final BigDecimal price = state.getOrderPrice(orderId);
+        if (price == null) {
+            respond(exchange, NOT_FOUND, error("No order " + orderId));
+            return;
+        }
+
+        respond(exchange, OK, "{\"id\": " + orderId + ", \"euros\": " + price + "}");
+    }
+
+    private void respondCustomer(final HttpExchange exchange, final WarmState state, final long customerId) throws IOException {
+        final int row = state.getCustomerRow(customerId);
+        if (row < 0) {
+            respond(exchange, NOT_FOUND, error("No ranked customer " + customerId));
+            return;
+        }
+
+        respond(exchange, OK, appendCustomer(new StringBuilder(), state.getRanking(), row).toString());
+    }
+
+    private void respondRanking(final HttpExchange exchange, final WarmState state, final int limit) throws IOException {
+        final RankingRows ranking = state.getRanking();
+        final StringBuilder json = new StringBuilder("{\"customers\": [");
+
+        for (int row = 0; row < Math.min(limit, ranking.size()); row++) {
+            if (row > 0) {
+                json.append(", ");
+            }
+            appendCustomer(json, ranking, row);
+        }
+
+        respond(exchange, OK, json.append("]}").toString());
+    }
+
+    private void respondProductCustomers(final HttpExchange exchange, final WarmState state, final long productId) throws IOException {
+        final LongBitmap customers = state.getProductCustomers(productId);
+        if (customers == null) {
+            respond(exchange, NOT_FOUND, error("Nobody ordered product " + productId));
+            return;
+        }
+
+        final StringBuilder json = new StringBuilder("{\"id\": ").append(productId).append(", \"customer_ids\": [");
+        final PrimitiveIterator.OfLong customerIds = customers.iterator();
+        while (customerIds.hasNext()) {
+            json.append(customerIds.nextLong());
+            if (customerIds.hasNext()) {
+                json.append(", ");
+            }
+        }
+
+        respond(exchange, OK, json.append("]}").toString());
+    }
+
+    //Ranks start at 1, the biggest spender
+    private static StringBuilder appendCustomer(final StringBuilder json, final RankingRows ranking, final int row) {
+        return json.append("{\"id\": ").append(ranking.getCustomerId(row))
+                .append(", \"firstname\": ").append(quote(ranking.getFirstName(row)))
+                .append(", \"lastname\": ").append(quote(ranking.getLastName(row)))
+                .append(", \"total_euros\": ").append(ranking.getTotal(row))
+                .append(", \"rank\": ").append(row + 1)
+                .append('}');
+    }
+
+    private static int getLimit(final String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("limit=")) {
+                    return Integer.parseInt(parameter.substring("limit=".length()));
+                }
+            }
+        }
+        return DEFAULT_RANKING_LIMIT;
+    }
+
+    private static String error(final String message) {
+        return "{\"error\": " + quote(message) + "}";
+    }
+
+    private static void respond(final HttpExchange exchange, final int status, final String json) throws IOException {
+        final byte[] body = json.getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package service;
+
+import utils.CommandLineOptions;
+import utils.ReadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+
+//Command line entry point for CalculationService:
+//  --customers FILE --products FILE --orders FILE [--port N] [--snapshot FILE] [--poll-millis N] [--threads N]
+public class RunService {
+
+    private static final String USAGE = "Usage: --customers FILE --products FILE --orders FILE [--port N] [--snapshot FILE]"
+            + " [--poll-millis N] [--threads N]";
+
+    private static final String DEFAULT_PORT = "8080";
+    private static final String DEFAULT_SNAPSHOT = "service.snapshot";
+
+    public static void main(String[] args) throws IOException {
+        final CommandLineOptions options = CommandLineOptions.parse(args, USAGE);
+
+        final CalculationService service = new CalculationService(
+                new File(options.required("customers")),
+                new File(options.required("products")),
+                new File(options.required("orders")),
+                ReadMode.MEMORY_MAPPED,
+                Integer.parseInt(options.get("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Paths.get(options.get("snapshot", DEFAULT_SNAPSHOT)),
+                Long.parseLong(options.get("poll-millis", String.valueOf(CalculationService.DEFAULT_POLL_MILLIS)))
+        );
+
+        final InetSocketAddress address = service.start(Integer.parseInt(options.get("port", DEFAULT_PORT)));
+        Runtime.getRuntime().addShutdownHook(new Thread(service::close));
+        System.out.printf("Serving reports on http://%s:%d%n", address.getHostString(), address.getPort());
+    }
+}
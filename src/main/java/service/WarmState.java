@@ -0,0 +1,92 @@
+package service;
+
+import model.IngestedOrders;
+import structures.LongBitmap;
+import structures.LongHashSet;
+import structures.LongLongMap;
+import structures.LongMoneyMap;
+import utils.RankingRows;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+//Everything the service answers from, built once per version of the inputs and never changed afterwards,
+//so any number of requests can read it while the next version is being built
+public class WarmState {
+
+    private final InputVersion version;
+    private final IngestedOrders ingestedOrders;
+    private final CustomerTable customers;
+    private final RankingRows ranking;
+    private final LongLongMap rowByCustomer;
+
+    private WarmState(final InputVersion version, final IngestedOrders ingestedOrders, final CustomerTable customers, final RankingRows ranking) {
+        this.version = version;
+        this.ingestedOrders = ingestedOrders;
+        this.customers = customers;
+        this.ranking = ranking;
+        this.rowByCustomer = new LongLongMap(ranking.size());
+        for (int row = 0; row < ranking.size(); row++) {
+            rowByCustomer.put(ranking.getCustomerId(row), row);
+        }
+    }
+
+    //The version is taken before reading, so a file changing while loading just means loading again on the next check.
+    //The orders and customers may come from the previous state, the ranking is joined and sorted again
+    static WarmState load(final InputVersion version, final IngestedOrders ingestedOrders, final CustomerTable customers) throws IOException {
+        final RankingRows ranking = new RankingRows(ingestedOrders.getCustomerTotals());
+        customers.hashJoin(ingestedOrders.getCustomerTotals(), ranking::add);
+        ranking.sortByTotal();
+
+        return new WarmState(version, ingestedOrders, customers, ranking);
+    }
+
+    //For orders appended to the previous state's, with the same customers: only the customers whose totals changed
+    //are joined and sorted, then merged into the previous ranking
+    static WarmState loadAppended(final InputVersion version, final IngestedOrders ingestedOrders, final WarmState previous) throws IOException {
+        final LongMoneyMap totals = ingestedOrders.getCustomerTotals();
+        final long[] changedCustomers = ingestedOrders.getChangedCustomers();
+        final RankingRows changed = new RankingRows(totals);
+        previous.customers.join(changedCustomers, totals, changed::add);
+        changed.sortByTotal();
+
+        final LongHashSet changedSet = new LongHashSet(changedCustomers.length);
+        for (long customer : changedCustomers) {
+            changedSet.add(customer);
+        }
+        final RankingRows ranking = previous.ranking.replaceCustomers(changedSet, changed);
+
+        return new WarmState(version, ingestedOrders, previous.customers, ranking);
+    }
+
+    public InputVersion getVersion() {
+        return version;
+    }
+
+    IngestedOrders getIngestedOrders() {
+        return ingestedOrders;
+    }
+
+    CustomerTable getCustomers() {
+        return customers;
+    }
+
+    //Null if there is no such order
+    public BigDecimal getOrderPrice(final long orderId) {
+        return ingestedOrders.getOrderPrices().get(orderId);
+    }
+
+    //Position in the ranking, starting at 0, or -1 if the customer has no orders or isn't in customers.csv
+    public int getCustomerRow(final long customerId) {
+        return (int) rowByCustomer.get(customerId, -1);
+    }
+
+    public RankingRows getRanking() {
+        return ranking;
+    }
+
+    //Null if nobody ordered the product
+    public LongBitmap getProductCustomers(final long productId) {
+        return ingestedOrders.getCustomersWhoOrderedProducts().get(productId);
+    }
+}
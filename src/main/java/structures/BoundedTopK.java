@@ -0,0 +1,43 @@
+package structures;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Keeps the k best items offered so far. The heap head is the worst of them, so each offer is O(log k) and memory is O(k)
+public class BoundedTopK<T> {
+
+    //Don't preallocate huge heaps for a k that is just "everything"
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+    private final int k;
+    private final Comparator<T> ranking;
+    private final PriorityQueue<T> worstFirst;
+
+    //Ranking sorts the best items first
+    public BoundedTopK(final int k, final Comparator<T> ranking) {
+        this.k = k;
+        this.ranking = ranking;
+        this.worstFirst = new PriorityQueue<>(Math.max(1, Math.min(k, MAX_INITIAL_CAPACITY)), ranking.reversed());
+    }
+
+    public void offer(final T item) {
+        if (worstFirst.size() < k) {
+            worstFirst.add(item);
+        } else if (k > 0 && ranking.compare(item, worstFirst.peek()) < 0) {
+            worstFirst.poll();
+            worstFirst.add(item);
+        }
+    }
+
+    public int size() {
+        return worstFirst.size();
+    }
+
+    public List<T> toSortedList() {
+        final List<T> items = new ArrayList<>(worstFirst);
+        items.sort(ranking);
+        return items;
+    }
+}
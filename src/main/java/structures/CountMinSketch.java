@@ -0,0 +1,87 @@
+package structures;
+
+//Cormode and Muthukrishnan's Count-Min sketch with conservative updates. An estimate is never below the real count, and
+//with probability 1 - delta it's over by at most epsilon * total, in about e / epsilon * ln(1 / delta) longs
+public class CountMinSketch {
+
+    private final int width;
+    private final int mask;
+    private final int depth;
+    private final long[] counters;
+    //Of the item being added, so they are hashed once
+    private final int[] indexes;
+    private long total = 0;
+
+    public CountMinSketch(final double epsilon, final double delta) {
+        if (epsilon <= 0 || epsilon >= 1 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Epsilon and delta must be between 0 and 1, got " + epsilon + " and " + delta);
+        }
+        //Rounded up to a power of two, which only makes the bound tighter, so rows are indexed with a mask
+        this.width = Integer.highestOneBit((int) Math.ceil(Math.E / epsilon) - 1) << 1;
+        this.mask = width - 1;
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[width * depth];
+        this.indexes = new int[depth];
+    }
+
+    public void add(final long item, final long weight) {
+        total += weight;
+
+        //Only the counters that would fall below the new estimate are raised, which keeps collisions from piling up
+        final long hash = mix(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            indexes[row] = indexOf(hash, row);
+            estimate = Math.min(estimate, counters[indexes[row]]);
+        }
+        final long target = estimate + weight;
+        for (int row = 0; row < depth; row++) {
+            if (counters[indexes[row]] < target) {
+                counters[indexes[row]] = target;
+            }
+        }
+    }
+
+    public long estimate(final long item) {
+        final long hash = mix(item);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[indexOf(hash, row)]);
+        }
+        return estimate;
+    }
+
+    //Sum of all the weights added
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long sizeInBytes() {
+        return (long) counters.length * Long.BYTES;
+    }
+
+    //Each row hashes with h1 + row * h2 (Kirsch and Mitzenmacher), from the two halves of a single mixed hash
+    private int indexOf(final long hash, final int row) {
+        final int combined = (int) hash + row * ((int) (hash >>> 32) | 1);
+        return row * width + (combined & mask);
+    }
+
+    //Murmur3's 64 bit finalizer, as in HyperLogLog
+    private static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93e07ec87c5L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
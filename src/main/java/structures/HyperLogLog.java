@@ -0,0 +1,223 @@
+package structures;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+//Estimates how many distinct longs were added, with a relative standard error of about 1.04 / sqrt(2^precision),
+//in 2^precision bytes at most. Sketches of the same precision merge into the sketch of everything added to either.
+//Until enough registers are set, they are kept as a short list instead, so small sets take a few bytes per value
+public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    //Sparse entries are the register index shifted left by 8 and the register value in the low byte
+    private static final int VALUE_BITS = 8;
+    private static final int VALUE_MASK = (1 << VALUE_BITS) - 1;
+    private static final int INITIAL_SPARSE_CAPACITY = 4;
+
+    private final int precision;
+    private byte[] registers;
+    private int[] sparse = new int[INITIAL_SPARSE_CAPACITY];
+    private int sparseSize = 0;
+
+    public HyperLogLog(final int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ", got " + precision);
+        }
+        this.precision = precision;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(final long value) {
+        final long hash = mix(value);
+        final int index = (int) (hash >>> (Long.SIZE - precision));
+        //Leading zeros of the remaining bits, plus one. A sentinel bit keeps it within 64 - precision + 1
+        final int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        set(index, rank);
+    }
+
+    //Everything added to the other sketch counts as added to this one
+    public void merge(final HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Can't merge a sketch of precision " + other.precision + " into one of " + precision);
+        }
+        if (other.registers != null) {
+            for (int index = 0; index < other.registers.length; index++) {
+                if (other.registers[index] != 0) {
+                    set(index, other.registers[index]);
+                }
+            }
+        } else {
+            for (int entry = 0; entry < other.sparseSize; entry++) {
+                set(other.sparse[entry] >>> VALUE_BITS, other.sparse[entry] & VALUE_MASK);
+            }
+        }
+    }
+
+    //Ertl's improved estimator (arXiv:1702.01284), which has no bias to correct between the small and large ranges
+    public long estimate() {
+        final byte[] dense = registers != null ? registers : toRegisters();
+        final int registerCount = dense.length;
+        final int maxRank = Long.SIZE - precision + 1;
+
+        final int[] histogram = new int[maxRank + 1];
+        for (byte register : dense) {
+            histogram[register]++;
+        }
+
+        double z = registerCount * tau(1 - (double) histogram[maxRank] / registerCount);
+        for (int rank = maxRank - 1; rank >= 1; rank--) {
+            z = 0.5 * (z + histogram[rank]);
+        }
+        z += registerCount * sigma((double) histogram[0] / registerCount);
+
+        return Math.round(registerCount / (2 * Math.log(2)) * registerCount / z);
+    }
+
+    //What the sketch takes now, which is what writeTo writes but for a few bytes
+    public int sizeInBytes() {
+        return registers != null ? registers.length : sparseSize * Integer.BYTES;
+    }
+
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeByte(precision);
+        output.writeBoolean(registers != null);
+        if (registers != null) {
+            output.write(registers);
+            return;
+        }
+        output.writeInt(sparseSize);
+        for (int entry = 0; entry < sparseSize; entry++) {
+            output.writeInt(sparse[entry]);
+        }
+    }
+
+    public static HyperLogLog readFrom(final DataInput input) throws IOException {
+        final HyperLogLog sketch = new HyperLogLog(input.readByte());
+        if (input.readBoolean()) {
+            sketch.registers = new byte[1 << sketch.precision];
+            sketch.sparse = null;
+            input.readFully(sketch.registers);
+            return sketch;
+        }
+        final int sparseSize = input.readInt();
+        sketch.sparse = new int[Math.max(sparseSize, INITIAL_SPARSE_CAPACITY)];
+        for (int entry = 0; entry < sparseSize; entry++) {
+            sketch.sparse[entry] = input.readInt();
+        }
+        sketch.sparseSize = sparseSize;
+        return sketch;
+    }
+
+    private void set(final int index, final int rank) {
+        if (registers != null) {
+            if (registers[index] < rank) {
+                registers[index] = (byte) rank;
+            }
+            return;
+        }
+
+        //Entries are kept sorted by index, so a register is found by binary search
+        final int position = findSparse(index);
+        if (position >= 0) {
+            if ((sparse[position] & VALUE_MASK) < rank) {
+                sparse[position] = index << VALUE_BITS | rank;
+            }
+            return;
+        }
+
+        //Past a quarter of the dense size in bytes, the list isn't worth it anymore
+        if ((sparseSize + 1) * Integer.BYTES > (1 << precision) / 4) {
+            registers = toRegisters();
+            sparse = null;
+            sparseSize = 0;
+            set(index, rank);
+            return;
+        }
+
+        final int insertAt = -position - 1;
+        if (sparseSize == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparseSize * 2);
+        }
+        System.arraycopy(sparse, insertAt, sparse, insertAt + 1, sparseSize - insertAt);
+        sparse[insertAt] = index << VALUE_BITS | rank;
+        sparseSize++;
+    }
+
+    //Position of the register, or -(insertion point) - 1
+    private int findSparse(final int index) {
+        int low = 0;
+        int high = sparseSize - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleIndex = sparse[middle] >>> VALUE_BITS;
+            if (middleIndex < index) {
+                low = middle + 1;
+            } else if (middleIndex > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private byte[] toRegisters() {
+        final byte[] dense = new byte[1 << precision];
+        for (int entry = 0; entry < sparseSize; entry++) {
+            dense[sparse[entry] >>> VALUE_BITS] = (byte) (sparse[entry] & VALUE_MASK);
+        }
+        return dense;
+    }
+
+    private static double sigma(final double emptyShare) {
+        if (emptyShare == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double x = emptyShare;
+        double y = 1;
+        double z = emptyShare;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(final double notFullShare) {
+        if (notFullShare == 0 || notFullShare == 1) {
+            return 0;
+        }
+        double x = notFullShare;
+        double y = 1;
+        double z = 1 - notFullShare;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    //Murmur3's 64 bit finalizer, so that close ids end up in unrelated registers
+    private static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93e07ec87c5L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
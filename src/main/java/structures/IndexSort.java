@@ -0,0 +1,57 @@
+package structures;
+
+//Sorts arrays of positions (ints) with a comparator over what they point to, without boxing them
+public class IndexSort {
+
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
+    @FunctionalInterface
+    public interface IndexComparator {
+        int compare(int index, int otherIndex);
+    }
+
+    private IndexSort() {
+    }
+
+    //Stable merge sort, so positions that compare equal keep their order
+    public static void sort(final int[] indexes, final IndexComparator comparator) {
+        if (indexes.length < 2) {
+            return;
+        }
+        mergeSort(indexes, indexes.clone(), 0, indexes.length, comparator);
+    }
+
+    //Sorts target[from, to) using source as scratch, both holding the same values on entry
+    private static void mergeSort(final int[] target, final int[] source, final int from, final int to, final IndexComparator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(target, from, to, comparator);
+            return;
+        }
+
+        final int middle = (from + to) >>> 1;
+        mergeSort(source, target, from, middle, comparator);
+        mergeSort(source, target, middle, to, comparator);
+
+        int left = from;
+        int right = middle;
+        for (int position = from; position < to; position++) {
+            if (right >= to || (left < middle && comparator.compare(source[left], source[right]) <= 0)) {
+                target[position] = source[left++];
+            } else {
+                target[position] = source[right++];
+            }
+        }
+    }
+
+    private static void insertionSort(final int[] indexes, final int from, final int to, final IndexComparator comparator) {
+        for (int position = from + 1; position < to; position++) {
+            final int index = indexes[position];
+            int previous = position - 1;
+            while (previous >= from && comparator.compare(indexes[previous], index) > 0) {
+                indexes[previous + 1] = indexes[previous];
+                previous--;
+            }
+            indexes[previous + 1] = index;
+        }
+    }
+}
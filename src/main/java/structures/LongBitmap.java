@@ -0,0 +1,405 @@
+package structures;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+//Roaring style compressed set of longs. Values are grouped by their 48 high bits, and each group keeps its 16 low bits
+//in a container: a sorted char array while it has up to 4096 values, a 65536 bit bitmap once it has more.
+//Iteration is always in ascending order
+public class LongBitmap {
+
+    private static final int LOW_BITS = 16;
+
+    private long[] highs = new long[4];
+    private Container[] containers = new Container[4];
+    private int containerCount;
+
+    public void add(final long value) {
+        final long high = value >> LOW_BITS;
+        int index = indexOf(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high, new ArrayContainer());
+        }
+        containers[index] = containers[index].add((char) value);
+    }
+
+    public boolean contains(final long value) {
+        final int index = indexOf(value >> LOW_BITS);
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    //Adds every value of the other bitmap to this one. The other bitmap is left untouched
+    public void or(final LongBitmap other) {
+        for (int otherIndex = 0; otherIndex < other.containerCount; otherIndex++) {
+            final long high = other.highs[otherIndex];
+            final int index = indexOf(high);
+            if (index < 0) {
+                insertContainer(-index - 1, high, other.containers[otherIndex].copy());
+            } else {
+                containers[index] = containers[index].or(other.containers[otherIndex]);
+            }
+        }
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int index = 0; index < containerCount; index++) {
+            cardinality += containers[index].cardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return containerCount == 0;
+    }
+
+    public void forEach(final LongConsumer consumer) {
+        for (int index = 0; index < containerCount; index++) {
+            containers[index].forEach(highs[index] << LOW_BITS, consumer);
+        }
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int index = 0;
+            private int nextLow = containerCount > 0 ? containers[0].nextFrom(0) : -1;
+
+            @Override
+            public boolean hasNext() {
+                while (nextLow < 0 && index < containerCount - 1) {
+                    index++;
+                    nextLow = containers[index].nextFrom(0);
+                }
+                return nextLow >= 0;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final long value = highs[index] << LOW_BITS | nextLow;
+                nextLow = nextLow < Character.MAX_VALUE ? containers[index].nextFrom(nextLow + 1) : -1;
+                return value;
+            }
+        };
+    }
+
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeInt(containerCount);
+        for (int index = 0; index < containerCount; index++) {
+            output.writeLong(highs[index]);
+            containers[index].writeTo(output);
+        }
+    }
+
+    public static LongBitmap readFrom(final DataInput input) throws IOException {
+        final LongBitmap bitmap = new LongBitmap();
+        final int containerCount = input.readInt();
+        for (int index = 0; index < containerCount; index++) {
+            final long high = input.readLong();
+            final Container container = input.readBoolean() ? BitmapContainer.readFrom(input) : ArrayContainer.readFrom(input);
+            bitmap.insertContainer(index, high, container);
+        }
+        return bitmap;
+    }
+
+    //Customer ids tend to come in ascending order, so the last container is checked before searching
+    private int indexOf(final long high) {
+        if (containerCount == 0) {
+            return -1;
+        }
+        if (highs[containerCount - 1] == high) {
+            return containerCount - 1;
+        }
+        if (highs[containerCount - 1] < high) {
+            return -containerCount - 1;
+        }
+        return Arrays.binarySearch(highs, 0, containerCount, high);
+    }
+
+    private void insertContainer(final int index, final long high, final Container container) {
+        if (containerCount == highs.length) {
+            highs = Arrays.copyOf(highs, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+        }
+        System.arraycopy(highs, index, highs, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        highs[index] = high;
+        containers[index] = container;
+        containerCount++;
+    }
+
+    //Operations that can change the kind of container return the container to keep
+    private interface Container {
+
+        Container add(char low);
+
+        boolean contains(char low);
+
+        Container or(Container other);
+
+        int cardinality();
+
+        //Smallest value from the given one on, or -1 if there is none
+        int nextFrom(int low);
+
+        void forEach(long base, LongConsumer consumer);
+
+        Container copy();
+
+        //Starts with whether it is a bitmap container
+        void writeTo(DataOutput output) throws IOException;
+    }
+
+    private static class ArrayContainer implements Container {
+
+        private static final int MAX_SIZE = 4096;
+
+        private char[] values;
+        private int cardinality;
+
+        private ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        private ArrayContainer(final char[] values, final int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(final char low) {
+            final int position = cardinality == 0 || values[cardinality - 1] < low
+                    ? -cardinality - 1
+                    : Arrays.binarySearch(values, 0, cardinality, low);
+            if (position >= 0) {
+                return this;
+            }
+            if (cardinality == MAX_SIZE) {
+                return toBitmap().add(low);
+            }
+
+            final int insertion = -position - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(MAX_SIZE, cardinality * 2));
+            }
+            System.arraycopy(values, insertion, values, insertion + 1, cardinality - insertion);
+            values[insertion] = low;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        public boolean contains(final char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        public Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.copy().or(this);
+            }
+
+            final ArrayContainer otherArray = (ArrayContainer) other;
+            final char[] merged = new char[cardinality + otherArray.cardinality];
+            int mine = 0;
+            int theirs = 0;
+            int size = 0;
+            while (mine < cardinality && theirs < otherArray.cardinality) {
+                final char value = values[mine];
+                final char otherValue = otherArray.values[theirs];
+                if (value < otherValue) {
+                    merged[size++] = value;
+                    mine++;
+                } else if (value > otherValue) {
+                    merged[size++] = otherValue;
+                    theirs++;
+                } else {
+                    merged[size++] = value;
+                    mine++;
+                    theirs++;
+                }
+            }
+            while (mine < cardinality) {
+                merged[size++] = values[mine++];
+            }
+            while (theirs < otherArray.cardinality) {
+                merged[size++] = otherArray.values[theirs++];
+            }
+
+            if (size > MAX_SIZE) {
+                final BitmapContainer bitmap = new BitmapContainer();
+                for (int index = 0; index < size; index++) {
+                    bitmap.add(merged[index]);
+                }
+                return bitmap;
+            }
+            values = merged;
+            cardinality = size;
+            return this;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int nextFrom(final int low) {
+            final int position = Arrays.binarySearch(values, 0, cardinality, (char) low);
+            final int next = position >= 0 ? position : -position - 1;
+            return next < cardinality ? values[next] : -1;
+        }
+
+        @Override
+        public void forEach(final long base, final LongConsumer consumer) {
+            for (int index = 0; index < cardinality; index++) {
+                consumer.accept(base | values[index]);
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        public void writeTo(final DataOutput output) throws IOException {
+            output.writeBoolean(false);
+            output.writeShort(cardinality - 1);
+            for (int index = 0; index < cardinality; index++) {
+                output.writeChar(values[index]);
+            }
+        }
+
+        private static ArrayContainer readFrom(final DataInput input) throws IOException {
+            final int cardinality = input.readUnsignedShort() + 1;
+            final char[] values = new char[cardinality];
+            for (int index = 0; index < cardinality; index++) {
+                values[index] = input.readChar();
+            }
+            return new ArrayContainer(values, cardinality);
+        }
+
+        private BitmapContainer toBitmap() {
+            final BitmapContainer bitmap = new BitmapContainer();
+            for (int index = 0; index < cardinality; index++) {
+                bitmap.add(values[index]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static class BitmapContainer implements Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer() {
+            this(new long[1 << (LOW_BITS - 6)], 0);
+        }
+
+        private BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        public Container add(final char low) {
+            final long word = words[low >>> 6];
+            final long updated = word | 1L << low;
+            if (updated != word) {
+                words[low >>> 6] = updated;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        public boolean contains(final char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        public Container or(final Container other) {
+            if (other instanceof ArrayContainer) {
+                final ArrayContainer otherArray = (ArrayContainer) other;
+                for (int index = 0; index < otherArray.cardinality; index++) {
+                    add(otherArray.values[index]);
+                }
+                return this;
+            }
+
+            final long[] otherWords = ((BitmapContainer) other).words;
+            int newCardinality = 0;
+            for (int index = 0; index < words.length; index++) {
+                words[index] |= otherWords[index];
+                newCardinality += Long.bitCount(words[index]);
+            }
+            cardinality = newCardinality;
+            return this;
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public int nextFrom(final int low) {
+            int wordIndex = low >>> 6;
+            if (wordIndex >= words.length) {
+                return -1;
+            }
+            long word = words[wordIndex] & -1L << low;
+            while (word == 0) {
+                if (++wordIndex == words.length) {
+                    return -1;
+                }
+                word = words[wordIndex];
+            }
+            return wordIndex << 6 | Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public void forEach(final long base, final LongConsumer consumer) {
+            for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+                long word = words[wordIndex];
+                while (word != 0) {
+                    consumer.accept(base | wordIndex << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, words.length), cardinality);
+        }
+
+        @Override
+        public void writeTo(final DataOutput output) throws IOException {
+            output.writeBoolean(true);
+            for (long word : words) {
+                output.writeLong(word);
+            }
+        }
+
+        private static BitmapContainer readFrom(final DataInput input) throws IOException {
+            final long[] words = new long[1 << (LOW_BITS - 6)];
+            int cardinality = 0;
+            for (int index = 0; index < words.length; index++) {
+                words[index] = input.readLong();
+                cardinality += Long.bitCount(words[index]);
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+}
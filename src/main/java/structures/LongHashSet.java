@@ -0,0 +1,103 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+//Open addressing set of longs, without boxing
+public class LongHashSet {
+
+    //Marks an empty slot. The value itself, if ever added, is kept apart
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasFreeValue;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(final int expectedSize) {
+        allocate(LongHashing.capacityFor(expectedSize));
+    }
+
+    //True if the value wasn't in the set yet
+    public boolean add(final long value) {
+        if (value == FREE) {
+            final boolean added = !hasFreeValue;
+            if (added) {
+                hasFreeValue = true;
+                size++;
+            }
+            return added;
+        }
+        int index = LongHashing.slot(value, mask);
+        while (values[index] != FREE) {
+            if (values[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size + 1 > resizeAt) {
+            grow();
+            return add(value);
+        }
+        values[index] = value;
+        size++;
+        return true;
+    }
+
+    public boolean contains(final long value) {
+        if (value == FREE) {
+            return hasFreeValue;
+        }
+        int index = LongHashing.slot(value, mask);
+        while (values[index] != FREE) {
+            if (values[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(final LongConsumer consumer) {
+        if (hasFreeValue) {
+            consumer.accept(FREE);
+        }
+        for (long value : values) {
+            if (value != FREE) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    private void grow() {
+        final long[] oldValues = values;
+
+        allocate(LongHashing.grow(oldValues.length, size));
+        for (long value : oldValues) {
+            if (value != FREE) {
+                int index = LongHashing.slot(value, mask);
+                while (values[index] != FREE) {
+                    index = (index + 1) & mask;
+                }
+                values[index] = value;
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        values = new long[capacity];
+        Arrays.fill(values, FREE);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongHashing.LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,33 @@
+package structures;
+
+//Shared bits of the open addressing tables: power of two capacities and a multiplicative hash so sequential ids spread out
+final class LongHashing {
+
+    static final float LOAD_FACTOR = 0.6f;
+    //The largest power of two an int array length can take
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private LongHashing() {
+    }
+
+    static int capacityFor(final int expectedSize) {
+        final long needed = (long) Math.ceil(Math.max(expectedSize, 2) / LOAD_FACTOR);
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Too many keys: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    //Twice the current capacity, or a clear failure instead of an overflowed length once there is no room left to double
+    static int grow(final int capacity, final int size) {
+        if (capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Can't hold more than " + size + " keys, the table is already at its maximum capacity of " + MAX_CAPACITY);
+        }
+        return capacity * 2;
+    }
+
+    static int slot(final long key, final int mask) {
+        final long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,7 @@
+package structures;
+
+@FunctionalInterface
+public interface LongLongConsumer {
+
+    void accept(long key, long value);
+}
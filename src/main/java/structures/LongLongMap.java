@@ -0,0 +1,219 @@
+package structures;
+
+import java.util.Arrays;
+
+//Open addressing long -> long map. Keys and values live in two flat arrays, so there is no boxing and no node per entry
+public class LongLongMap {
+
+    //Marks an empty slot. The key itself, if ever used, is kept apart
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasFreeKey;
+    private long freeKeyValue;
+
+    public LongLongMap() {
+        this(16);
+    }
+
+    public LongLongMap(final int expectedSize) {
+        allocate(LongHashing.capacityFor(expectedSize));
+    }
+
+    private LongLongMap(final LongLongMap other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeAt = other.resizeAt;
+        this.hasFreeKey = other.hasFreeKey;
+        this.freeKeyValue = other.freeKeyValue;
+    }
+
+    public long get(final long key, final long defaultValue) {
+        if (key == FREE) {
+            return hasFreeKey ? freeKeyValue : defaultValue;
+        }
+        final int index = indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    public boolean containsKey(final long key) {
+        return key == FREE ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    public void put(final long key, final long value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        final int index = slotFor(key);
+        values[index] = value;
+    }
+
+    //Adds delta to the value of the key (missing keys start at 0) and returns the new value
+    public long addTo(final long key, final long delta) {
+        if (key == FREE) {
+            put(key, get(key, 0) + delta);
+            return freeKeyValue;
+        }
+        final int index = slotFor(key);
+        values[index] += delta;
+        return values[index];
+    }
+
+    //Returns the value the key had, or defaultValue if it wasn't there
+    public long remove(final long key, final long defaultValue) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                return defaultValue;
+            }
+            hasFreeKey = false;
+            size--;
+            return freeKeyValue;
+        }
+        final int index = indexOf(key);
+        if (index < 0) {
+            return defaultValue;
+        }
+        final long value = values[index];
+        closeGap(index);
+        size--;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, FREE);
+            Arrays.fill(values, 0);
+            size = 0;
+            hasFreeKey = false;
+        }
+    }
+
+    public void forEach(final LongLongConsumer consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE, freeKeyValue);
+        }
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != FREE) {
+                consumer.accept(keys[index], values[index]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        final long[] result = new long[size];
+        int next = 0;
+        if (hasFreeKey) {
+            result[next++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                result[next++] = key;
+            }
+        }
+        return result;
+    }
+
+    public long[] sortedKeys() {
+        final long[] result = keys();
+        Arrays.sort(result);
+        return result;
+    }
+
+    //Same entries in tables of its own, changing either map afterwards doesn't change the other
+    public LongLongMap copy() {
+        return new LongLongMap(this);
+    }
+
+    //Slot holding the key, claiming a free one (and growing the table) if it wasn't there yet
+    private int slotFor(final long key) {
+        int index = LongHashing.slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size + 1 > resizeAt) {
+            grow();
+            return slotFor(key);
+        }
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    private int indexOf(final long key) {
+        int index = LongHashing.slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    //Shifts back the keys that probed past the removed one, so no tombstones are needed and lookups still find them
+    private void closeGap(final int removed) {
+        int gap = removed;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            final int home = LongHashing.slot(keys[next], mask);
+            //The key can fill the gap if the gap lies between its home slot and where it is now
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+        values[gap] = 0;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final long[] oldValues = values;
+
+        allocate(LongHashing.grow(oldKeys.length, size));
+        for (int index = 0; index < oldKeys.length; index++) {
+            final long key = oldKeys[index];
+            if (key != FREE) {
+                int newIndex = LongHashing.slot(key, mask);
+                while (keys[newIndex] != FREE) {
+                    newIndex = (newIndex + 1) & mask;
+                }
+                keys[newIndex] = key;
+                values[newIndex] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongHashing.LOAD_FACTOR);
+    }
+}
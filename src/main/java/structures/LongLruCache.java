@@ -0,0 +1,64 @@
+package structures;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Size bounded long -> value cache that evicts the least recently used entry, counting hits, misses and evictions
+public class LongLruCache<V> {
+
+    private final int capacity;
+    private final LinkedHashMap<Long, V> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LongLruCache(final int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Long, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Long, V> eldest) {
+                if (size() > LongLruCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    //Null on a miss
+    public V get(final long key) {
+        final V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    public void put(final long key, final V value) {
+        entries.put(key, value);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
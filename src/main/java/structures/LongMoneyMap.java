@@ -0,0 +1,226 @@
+package structures;
+
+import model.Money;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+//long -> money amount, with the amounts kept as fixed point longs in flat arrays.
+//Only the amounts that overflowed a long are kept as BigDecimal, so adding to a total doesn't allocate
+public class LongMoneyMap {
+
+    private final int scale;
+    private final LongLongMap indexes;
+    private final LongObjectMap<BigDecimal> overflowedByIndex;
+
+    private long[] keys = new long[16];
+    private long[] unscaled = new long[16];
+    private int[] displayScales = new int[16];
+    private int size;
+
+    //Same scale as the amounts that will be put or added
+    public LongMoneyMap(final int scale) {
+        this.scale = scale;
+        this.indexes = new LongLongMap();
+        this.overflowedByIndex = new LongObjectMap<>();
+    }
+
+    private LongMoneyMap(final LongMoneyMap other) {
+        this.scale = other.scale;
+        this.indexes = other.indexes.copy();
+        this.overflowedByIndex = other.overflowedByIndex.copy();
+        this.keys = other.keys.clone();
+        this.unscaled = other.unscaled.clone();
+        this.displayScales = other.displayScales.clone();
+        this.size = other.size;
+    }
+
+    //Same amounts at the same positions, so positions taken from this map are still valid in the copy.
+    //Changing either map afterwards doesn't change the other
+    public LongMoneyMap copy() {
+        return new LongMoneyMap(this);
+    }
+
+    public void put(final long key, final Money amount) {
+        final int index = indexFor(key);
+        unscaled[index] = amount.getUnscaled();
+        displayScales[index] = amount.getDisplayScale();
+        if (amount.getExact() != null || getOverflowed(index) != null) {
+            overflowedByIndex.put(index, amount.getExact());
+        }
+    }
+
+    public void add(final long key, final Money amount) {
+        add(indexFor(key), amount.getUnscaled(), amount.getDisplayScale(), amount.getExact());
+    }
+
+    public void putAll(final LongMoneyMap other) {
+        for (int otherIndex = 0; otherIndex < other.size; otherIndex++) {
+            final int index = indexFor(other.keys[otherIndex]);
+            final BigDecimal overflowed = other.getOverflowed(otherIndex);
+            unscaled[index] = other.unscaled[otherIndex];
+            displayScales[index] = other.displayScales[otherIndex];
+            if (overflowed != null || getOverflowed(index) != null) {
+                overflowedByIndex.put(index, overflowed);
+            }
+        }
+    }
+
+    public void addAll(final LongMoneyMap other) {
+        for (int otherIndex = 0; otherIndex < other.size; otherIndex++) {
+            add(
+                    indexFor(other.keys[otherIndex]),
+                    other.unscaled[otherIndex],
+                    other.displayScales[otherIndex],
+                    other.getOverflowed(otherIndex)
+            );
+        }
+    }
+
+    public BigDecimal get(final long key) {
+        final long index = indexes.get(key, -1);
+        return index >= 0 ? getAt((int) index) : null;
+    }
+
+    //Copies the amount into a reusable Money instead of building a BigDecimal, returns null if there is no such key
+    public Money get(final long key, final Money into) {
+        final long index = indexes.get(key, -1);
+        if (index < 0) {
+            return null;
+        }
+
+        return getAt((int) index, into);
+    }
+
+    //Position of the key in the flat arrays, or -1 if there is no such key. Positions don't change as keys are added
+    public int indexOf(final long key) {
+        return (int) indexes.get(key, -1);
+    }
+
+    public long keyAt(final int index) {
+        return keys[index];
+    }
+
+    public BigDecimal getAt(final int index) {
+        final BigDecimal overflowed = getOverflowed(index);
+        final BigDecimal amount = overflowed != null ? overflowed : BigDecimal.valueOf(unscaled[index], scale);
+
+        return amount.setScale(displayScales[index], RoundingMode.UNNECESSARY);
+    }
+
+    public Money getAt(final int index, final Money into) {
+        into.set(unscaled[index], displayScales[index], getOverflowed(index));
+        return into;
+    }
+
+    //Compares the amounts at two positions, only building BigDecimals if one of them overflowed
+    public int compareAt(final int index, final int otherIndex) {
+        final BigDecimal overflowed = getOverflowed(index);
+        final BigDecimal otherOverflowed = getOverflowed(otherIndex);
+        if (overflowed == null && otherOverflowed == null) {
+            return Long.compare(unscaled[index], unscaled[otherIndex]);
+        }
+
+        return (overflowed != null ? overflowed : BigDecimal.valueOf(unscaled[index], scale))
+                .compareTo(otherOverflowed != null ? otherOverflowed : BigDecimal.valueOf(unscaled[otherIndex], scale));
+    }
+
+    public boolean containsKey(final long key) {
+        return indexes.containsKey(key);
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long[] keys() {
+        return Arrays.copyOf(keys, size);
+    }
+
+    public long[] sortedKeys() {
+        final long[] sortedKeys = keys();
+        Arrays.sort(sortedKeys);
+        return sortedKeys;
+    }
+
+    public void writeTo(final DataOutput output) throws IOException {
+        output.writeInt(scale);
+        output.writeInt(size);
+        for (int index = 0; index < size; index++) {
+            final BigDecimal overflowed = getOverflowed(index);
+            output.writeLong(keys[index]);
+            output.writeLong(unscaled[index]);
+            output.writeInt(displayScales[index]);
+            output.writeBoolean(overflowed != null);
+            if (overflowed != null) {
+                output.writeUTF(overflowed.toString());
+            }
+        }
+    }
+
+    public static LongMoneyMap readFrom(final DataInput input) throws IOException {
+        final LongMoneyMap map = new LongMoneyMap(input.readInt());
+        final int size = input.readInt();
+        for (int entry = 0; entry < size; entry++) {
+            final int index = map.indexFor(input.readLong());
+            map.unscaled[index] = input.readLong();
+            map.displayScales[index] = input.readInt();
+            if (input.readBoolean()) {
+                map.overflowedByIndex.put(index, new BigDecimal(input.readUTF()));
+            }
+        }
+        return map;
+    }
+
+    private void add(final int index, final long unscaledAmount, final int displayScale, final BigDecimal overflowedAmount) {
+        displayScales[index] = Math.max(displayScales[index], displayScale);
+
+        BigDecimal overflowed = getOverflowed(index);
+        if (overflowed == null && overflowedAmount == null) {
+            try {
+                unscaled[index] = Math.addExact(unscaled[index], unscaledAmount);
+                return;
+            } catch (ArithmeticException overflow) {
+                overflowed = BigDecimal.valueOf(unscaled[index], scale);
+            }
+        } else if (overflowed == null) {
+            overflowed = BigDecimal.valueOf(unscaled[index], scale);
+        }
+
+        overflowedByIndex.put(index, overflowed.add(overflowedAmount != null ? overflowedAmount : BigDecimal.valueOf(unscaledAmount, scale)));
+    }
+
+    //Nothing to look up as long as no amount has overflowed
+    private BigDecimal getOverflowed(final int index) {
+        return overflowedByIndex.isEmpty() ? null : overflowedByIndex.get(index);
+    }
+
+    private int indexFor(final long key) {
+        final long index = indexes.get(key, -1);
+        if (index >= 0) {
+            return (int) index;
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            unscaled = Arrays.copyOf(unscaled, size * 2);
+            displayScales = Arrays.copyOf(displayScales, size * 2);
+        }
+        keys[size] = key;
+        indexes.put(key, size);
+
+        return size++;
+    }
+}
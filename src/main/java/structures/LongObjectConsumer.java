@@ -0,0 +1,7 @@
+package structures;
+
+@FunctionalInterface
+public interface LongObjectConsumer<V> {
+
+    void accept(long key, V value);
+}
@@ -0,0 +1,175 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+//Open addressing long -> object map. Keys aren't boxed and there is no node per entry, only the two backing arrays
+public class LongObjectMap<V> {
+
+    //Marks an empty slot. The key itself, if ever used, is kept apart
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasFreeKey;
+    private V freeKeyValue;
+
+    public LongObjectMap() {
+        this(16);
+    }
+
+    public LongObjectMap(final int expectedSize) {
+        allocate(LongHashing.capacityFor(expectedSize));
+    }
+
+    private LongObjectMap(final LongObjectMap<V> other) {
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+        this.mask = other.mask;
+        this.size = other.size;
+        this.resizeAt = other.resizeAt;
+        this.hasFreeKey = other.hasFreeKey;
+        this.freeKeyValue = other.freeKeyValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(final long key) {
+        if (key == FREE) {
+            return freeKeyValue;
+        }
+        final int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(final long key) {
+        return key == FREE ? hasFreeKey : indexOf(key) >= 0;
+    }
+
+    public void put(final long key, final V value) {
+        if (key == FREE) {
+            if (!hasFreeKey) {
+                size++;
+            }
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return;
+        }
+        //The slot has to be found first: claiming it may grow the table and replace the values array
+        final int index = slotFor(key);
+        values[index] = value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(final long key, final LongFunction<V> mappingFunction) {
+        final V current = get(key);
+        if (current != null || containsKey(key)) {
+            return current;
+        }
+        final V value = mappingFunction.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(final LongObjectConsumer<V> consumer) {
+        if (hasFreeKey) {
+            consumer.accept(FREE, freeKeyValue);
+        }
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != FREE) {
+                consumer.accept(keys[index], (V) values[index]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        final long[] result = new long[size];
+        int next = 0;
+        if (hasFreeKey) {
+            result[next++] = FREE;
+        }
+        for (long key : keys) {
+            if (key != FREE) {
+                result[next++] = key;
+            }
+        }
+        return result;
+    }
+
+    public long[] sortedKeys() {
+        final long[] result = keys();
+        Arrays.sort(result);
+        return result;
+    }
+
+    //Same entries in tables of its own, changing either map afterwards doesn't change the other. The values are shared
+    public LongObjectMap<V> copy() {
+        return new LongObjectMap<>(this);
+    }
+
+    private int slotFor(final long key) {
+        int index = LongHashing.slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size + 1 > resizeAt) {
+            grow();
+            return slotFor(key);
+        }
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    private int indexOf(final long key) {
+        int index = LongHashing.slot(key, mask);
+        while (keys[index] != FREE) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+
+        allocate(LongHashing.grow(oldKeys.length, size));
+        for (int index = 0; index < oldKeys.length; index++) {
+            final long key = oldKeys[index];
+            if (key != FREE) {
+                int newIndex = LongHashing.slot(key, mask);
+                while (keys[newIndex] != FREE) {
+                    newIndex = (newIndex + 1) & mask;
+                }
+                keys[newIndex] = key;
+                values[newIndex] = oldValues[index];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LongHashing.LOAD_FACTOR);
+    }
+}
@@ -0,0 +1,142 @@
+package structures;
+
+//Metwally et al.'s Space-Saving: keeps a counter for at most capacity items, handing the smallest counter to a new item
+//once full. Every count is an overestimate by at most its error, the error is at most total / capacity, and every item
+//added more than total / capacity times is always kept
+public class SpaceSaving {
+
+    private final int capacity;
+    //Min heap on counts, so the counter to hand over is always at the root
+    private final long[] items;
+    private final long[] counts;
+    private final long[] errors;
+    //Where each kept item is in the heap
+    private final LongLongMap positions;
+    private int size = 0;
+    private long total = 0;
+
+    public interface CounterConsumer {
+        void accept(long item, long count, long error);
+    }
+
+    public SpaceSaving(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.items = new long[capacity];
+        this.counts = new long[capacity];
+        this.errors = new long[capacity];
+        this.positions = new LongLongMap(capacity);
+    }
+
+    public void add(final long item, final long weight) {
+        total += weight;
+
+        final long position = positions.get(item, -1);
+        if (position >= 0) {
+            counts[(int) position] += weight;
+            siftDown((int) position);
+            return;
+        }
+
+        if (size < capacity) {
+            items[size] = item;
+            counts[size] = weight;
+            errors[size] = 0;
+            siftUp(size++);
+            return;
+        }
+
+        //The new item may have been added as many times as the one it replaces, so that's its error
+        positions.remove(items[0], -1);
+        items[0] = item;
+        errors[0] = counts[0];
+        counts[0] += weight;
+        positions.put(item, 0);
+        siftDown(0);
+    }
+
+    //Upper bound of how many times the item was added, 0 if it isn't kept
+    public long count(final long item) {
+        final long position = positions.get(item, -1);
+        return position >= 0 ? counts[(int) position] : 0;
+    }
+
+    //How much the count may be over, 0 if the item isn't kept
+    public long error(final long item) {
+        final long position = positions.get(item, -1);
+        return position >= 0 ? errors[(int) position] : 0;
+    }
+
+    //Kept items in no particular order
+    public void forEach(final CounterConsumer consumer) {
+        for (int index = 0; index < size; index++) {
+            consumer.accept(items[index], counts[index], errors[index]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    //Sum of all the weights added
+    public long getTotal() {
+        return total;
+    }
+
+    //Sifts move the others over the counter and write it once where it ends up, so each step updates one position
+    private void siftUp(final int start) {
+        final long item = items[start];
+        final long count = counts[start];
+        final long error = errors[start];
+        int hole = start;
+        while (hole > 0) {
+            final int parent = (hole - 1) >>> 1;
+            if (counts[parent] <= count) {
+                break;
+            }
+            moveTo(parent, hole);
+            hole = parent;
+        }
+        place(hole, item, count, error);
+    }
+
+    private void siftDown(final int start) {
+        final long item = items[start];
+        final long count = counts[start];
+        final long error = errors[start];
+        int hole = start;
+        while (true) {
+            final int left = 2 * hole + 1;
+            if (left >= size) {
+                break;
+            }
+            final int right = left + 1;
+            final int smallest = right < size && counts[right] < counts[left] ? right : left;
+            if (count <= counts[smallest]) {
+                break;
+            }
+            moveTo(smallest, hole);
+            hole = smallest;
+        }
+        if (hole != start) {
+            place(hole, item, count, error);
+        }
+    }
+
+    private void moveTo(final int from, final int to) {
+        place(to, items[from], counts[from], errors[from]);
+    }
+
+    private void place(final int position, final long item, final long count, final long error) {
+        items[position] = item;
+        counts[position] = count;
+        errors[position] = error;
+        positions.put(item, position);
+    }
+}
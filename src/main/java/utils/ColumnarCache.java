@@ -0,0 +1,340 @@
+package utils;
+
+import structures.LongObjectMap;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+//Parsed csv files kept as binary columns in a "<file>.columns" directory next to them, one file per column.
+//The columns are built on the first read and reused while the csv keeps the same size and modification time.
+//They are read back through memory mapped windows, so a warm start doesn't parse any text. When the columns can't be
+//written (a read only directory, a full disk) the csv is read memory mapped instead
+public class ColumnarCache {
+
+    private static final int MAGIC = 0x434f4c53;
+    private static final int VERSION = 2;
+    private static final String DIRECTORY_SUFFIX = ".columns";
+    //Written last, so a cache that was left half built is never taken as valid
+    private static final String META = "meta.bin";
+
+    private static final String ORDER_IDS = "order_ids.bin";
+    private static final String CUSTOMER_IDS = "customer_ids.bin";
+    private static final String PRODUCT_OFFSETS = "product_offsets.bin";
+    private static final String PRODUCT_IDS = "product_ids.bin";
+
+    private static final String PRICE_PRODUCT_IDS = "product_ids.bin";
+    private static final String PRICE_UNSCALED = "price_unscaled.bin";
+    private static final String PRICE_SCALES = "price_scales.bin";
+    //Prices that don't fit a long unscaled value, as text after their count
+    private static final String PRICE_OVERFLOW = "price_overflow.bin";
+    private static final long OVERFLOWED_SCALE = Long.MIN_VALUE;
+
+    private static final String CUSTOMER_IDS_COLUMN = "customer_ids.bin";
+    private static final String NAME_OFFSETS = "name_offsets.bin";
+    private static final String NAME_BYTES = "names.bin";
+
+    private ColumnarCache() {
+    }
+
+    public static void forEachOrder(final File orders, final OrderRecordConsumer consumer) throws IOException {
+        final Path columns = ensureBuilt(orders, ColumnarCache::buildOrders);
+        if (columns == null) {
+            Utils.forEachOrder(orders, ReadMode.MEMORY_MAPPED, consumer);
+            return;
+        }
+
+        try (LongColumn orderIds = new LongColumn(columns.resolve(ORDER_IDS));
+             LongColumn customerIds = new LongColumn(columns.resolve(CUSTOMER_IDS));
+             LongColumn productOffsets = new LongColumn(columns.resolve(PRODUCT_OFFSETS));
+             LongColumn productIds = new LongColumn(columns.resolve(PRODUCT_IDS))) {
+
+            long[] products = new long[16];
+            long productStart = productOffsets.next();
+            while (orderIds.hasNext()) {
+                final long productEnd = productOffsets.next();
+                final int productCount = (int) (productEnd - productStart);
+                if (productCount > products.length) {
+                    products = Arrays.copyOf(products, Math.max(productCount, products.length * 2));
+                }
+                for (int index = 0; index < productCount; index++) {
+                    products[index] = productIds.next();
+                }
+                productStart = productEnd;
+
+                consumer.accept(orderIds.next(), customerIds.next(), products, productCount);
+            }
+        }
+    }
+
+    public static void forEachProductPrice(final File products, final ProductPriceConsumer consumer) throws IOException {
+        final Path columns = ensureBuilt(products, ColumnarCache::buildProducts);
+        if (columns == null) {
+            Utils.forEachProductPrice(products, ReadMode.MEMORY_MAPPED, consumer);
+            return;
+        }
+        final LongObjectMap<BigDecimal> overflowedPrices = readOverflowedPrices(columns.resolve(PRICE_OVERFLOW));
+
+        try (LongColumn productIds = new LongColumn(columns.resolve(PRICE_PRODUCT_IDS));
+             LongColumn unscaledPrices = new LongColumn(columns.resolve(PRICE_UNSCALED));
+             LongColumn priceScales = new LongColumn(columns.resolve(PRICE_SCALES))) {
+
+            long row = 0;
+            while (productIds.hasNext()) {
+                final long productId = productIds.next();
+                final long unscaled = unscaledPrices.next();
+                final long scale = priceScales.next();
+                consumer.accept(productId, scale == OVERFLOWED_SCALE ? overflowedPrices.get(row) : BigDecimal.valueOf(unscaled, (int) scale));
+                row++;
+            }
+        }
+    }
+
+    //Names are only decoded for the customers that pass the filter
+    public static void forEachCustomer(final File customers, final LongPredicate customerFilter, final CustomerRecordConsumer consumer) throws IOException {
+        final Path columns = ensureBuilt(customers, ColumnarCache::buildCustomers);
+        if (columns == null) {
+            Utils.forEachCustomer(customers, ReadMode.MEMORY_MAPPED, customerFilter, consumer);
+            return;
+        }
+
+        try (LongColumn customerIds = new LongColumn(columns.resolve(CUSTOMER_IDS_COLUMN));
+             LongColumn nameOffsets = new LongColumn(columns.resolve(NAME_OFFSETS));
+             ByteColumn names = new ByteColumn(columns.resolve(NAME_BYTES))) {
+
+            long nameStart = nameOffsets.next();
+            while (customerIds.hasNext()) {
+                final long customerId = customerIds.next();
+                final long firstNameEnd = nameOffsets.next();
+                final long lastNameEnd = nameOffsets.next();
+                if (customerFilter.test(customerId)) {
+                    consumer.accept(customerId, names.read(nameStart, firstNameEnd), names.read(firstNameEnd, lastNameEnd));
+                }
+                nameStart = lastNameEnd;
+            }
+        }
+    }
+
+    //Synchronized so reports running at the same time don't build the same columns twice over each other.
+    //Null when the columns couldn't be written, so the caller reads the csv itself
+    private static synchronized Path ensureBuilt(final File source, final Builder builder) throws IOException {
+        final Path columns = source.toPath().resolveSibling(source.getName() + DIRECTORY_SUFFIX);
+        if (isValid(columns.resolve(META), source)) {
+            return columns;
+        }
+
+        final long length = source.length();
+        final long lastModified = source.lastModified();
+        try {
+            Files.createDirectories(columns);
+            Files.deleteIfExists(columns.resolve(META));
+
+            builder.build(source, columns);
+
+            try (DataOutputStream meta = openColumn(columns.resolve(META))) {
+                meta.writeInt(MAGIC);
+                meta.writeInt(VERSION);
+                meta.writeLong(length);
+                meta.writeLong(lastModified);
+            }
+        } catch (IOException unwritable) {
+            //Without meta the half written columns are never taken as valid
+            return null;
+        }
+
+        return columns;
+    }
+
+    private static boolean isValid(final Path meta, final File source) throws IOException {
+        if (!Files.isRegularFile(meta)) {
+            return false;
+        }
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(meta))) {
+            return input.readInt() == MAGIC
+                    && input.readInt() == VERSION
+                    && input.readLong() == source.length()
+                    && input.readLong() == source.lastModified();
+        } catch (IOException unreadable) {
+            return false;
+        }
+    }
+
+    private static void buildOrders(final File orders, final Path columns) throws IOException {
+        try (DataOutputStream orderIds = openColumn(columns.resolve(ORDER_IDS));
+             DataOutputStream customerIds = openColumn(columns.resolve(CUSTOMER_IDS));
+             DataOutputStream productOffsets = openColumn(columns.resolve(PRODUCT_OFFSETS));
+             DataOutputStream productIds = openColumn(columns.resolve(PRODUCT_IDS))) {
+
+            final long[] productOffset = {0};
+            productOffsets.writeLong(0);
+
+            Utils.forEachOrder(orders, ReadMode.MEMORY_MAPPED, (orderId, customerId, products, productCount) -> {
+                orderIds.writeLong(orderId);
+                customerIds.writeLong(customerId);
+                for (int index = 0; index < productCount; index++) {
+                    productIds.writeLong(products[index]);
+                }
+                productOffset[0] += productCount;
+                productOffsets.writeLong(productOffset[0]);
+            });
+        }
+    }
+
+    //Prices are kept as fixed point: unscaled value and scale
+    private static void buildProducts(final File products, final Path columns) throws IOException {
+        try (DataOutputStream productIds = openColumn(columns.resolve(PRICE_PRODUCT_IDS));
+             DataOutputStream unscaledPrices = openColumn(columns.resolve(PRICE_UNSCALED));
+             DataOutputStream priceScales = openColumn(columns.resolve(PRICE_SCALES));
+             DataOutputStream overflowedPrices = openColumn(columns.resolve(PRICE_OVERFLOW))) {
+
+            final long[] row = {0};
+            //They are few, so they are kept until their count is known
+            final LongObjectMap<BigDecimal> overflowedByRow = new LongObjectMap<>();
+
+            Utils.forEachProductPrice(products, ReadMode.MEMORY_MAPPED, (productId, price) -> {
+                productIds.writeLong(productId);
+                if (price.unscaledValue().bitLength() < Long.SIZE) {
+                    unscaledPrices.writeLong(price.unscaledValue().longValue());
+                    priceScales.writeLong(price.scale());
+                } else {
+                    unscaledPrices.writeLong(0);
+                    priceScales.writeLong(OVERFLOWED_SCALE);
+                    overflowedByRow.put(row[0], price);
+                }
+                row[0]++;
+            });
+
+            overflowedPrices.writeInt(overflowedByRow.size());
+            for (long overflowedRow : overflowedByRow.keys()) {
+                overflowedPrices.writeLong(overflowedRow);
+                overflowedPrices.writeUTF(overflowedByRow.get(overflowedRow).toString());
+            }
+        }
+    }
+
+    //First and last names are stored back to back as utf-8, with the end offset of each one
+    private static void buildCustomers(final File customers, final Path columns) throws IOException {
+        try (DataOutputStream customerIds = openColumn(columns.resolve(CUSTOMER_IDS_COLUMN));
+             DataOutputStream nameOffsets = openColumn(columns.resolve(NAME_OFFSETS));
+             DataOutputStream names = openColumn(columns.resolve(NAME_BYTES))) {
+
+            final long[] nameOffset = {0};
+            nameOffsets.writeLong(0);
+
+            Utils.forEachCustomer(customers, ReadMode.MEMORY_MAPPED, customerId -> true, (customerId, firstName, lastName) -> {
+                customerIds.writeLong(customerId);
+                for (String name : new String[]{firstName, lastName}) {
+                    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    names.write(bytes);
+                    nameOffset[0] += bytes.length;
+                    nameOffsets.writeLong(nameOffset[0]);
+                }
+            });
+        }
+    }
+
+    private static LongObjectMap<BigDecimal> readOverflowedPrices(final Path column) throws IOException {
+        final LongObjectMap<BigDecimal> overflowedPrices = new LongObjectMap<>();
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(column))) {
+            final int count = input.readInt();
+            for (int entry = 0; entry < count; entry++) {
+                overflowedPrices.put(input.readLong(), new BigDecimal(input.readUTF()));
+            }
+        }
+
+        return overflowedPrices;
+    }
+
+    private static DataOutputStream openColumn(final Path column) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(column), 1 << 16));
+    }
+
+    @FunctionalInterface
+    private interface Builder {
+        void build(File source, Path columns) throws IOException;
+    }
+
+    //Sequential reader of a column of longs, mapped a window at a time since a single mapping can't go over 2GB
+    private static class LongColumn implements Closeable {
+
+        private static final long WINDOW_SIZE = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        private LongColumn(final Path column) throws IOException {
+            this.channel = FileChannel.open(column, READ);
+            this.size = channel.size();
+        }
+
+        private boolean hasNext() {
+            return windowStart + (window == null ? 0 : window.position()) < size;
+        }
+
+        private long next() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                windowStart += window == null ? 0 : window.position();
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(WINDOW_SIZE, size - windowStart));
+            }
+            return window.getLong();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    //Random access to byte ranges of a column, through the same kind of windows
+    private static class ByteColumn implements Closeable {
+
+        private static final long WINDOW_SIZE = 1L << 30;
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] bytes = new byte[64];
+
+        private ByteColumn(final Path column) throws IOException {
+            this.channel = FileChannel.open(column, READ);
+            this.size = channel.size();
+        }
+
+        private String read(final long from, final long to) throws IOException {
+            final int length = (int) (to - from);
+            if (window == null || from < windowStart || to > windowStart + window.capacity()) {
+                windowStart = from;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(Math.max(WINDOW_SIZE, length), size - from));
+            }
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            window.position((int) (from - windowStart));
+            window.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
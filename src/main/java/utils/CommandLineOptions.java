@@ -0,0 +1,41 @@
+package utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//--name value pairs, as taken by the command line entry points
+public class CommandLineOptions {
+
+    private final Map<String, String> options;
+    private final String usage;
+
+    private CommandLineOptions(final Map<String, String> options, final String usage) {
+        this.options = options;
+        this.usage = usage;
+    }
+
+    public static CommandLineOptions parse(final String[] args, final String usage) {
+        final Map<String, String> options = new HashMap<>();
+
+        for (int index = 0; index < args.length; index += 2) {
+            if (!args[index].startsWith("--") || index + 1 >= args.length) {
+                throw new IllegalArgumentException(usage);
+            }
+            options.put(args[index].substring(2), args[index + 1]);
+        }
+
+        return new CommandLineOptions(options, usage);
+    }
+
+    public String get(final String name, final String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public String required(final String name) {
+        final String value = options.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing --" + name + ". " + usage);
+        }
+        return value;
+    }
+}
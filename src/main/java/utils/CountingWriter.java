@@ -0,0 +1,9 @@
+package utils;
+
+import java.io.Closeable;
+
+//A report writer that knows how many bytes it has been given so far, buffered ones included
+public interface CountingWriter extends Closeable {
+
+    long getBytesWritten();
+}
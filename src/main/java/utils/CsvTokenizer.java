@@ -0,0 +1,25 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+//Pull parser over csv records. Values inside a record are separated by commas or spaces (the products list)
+public interface CsvTokenizer extends Closeable {
+
+    boolean hasNextRecord() throws IOException;
+
+    //True while the current record still has values to read
+    boolean hasNextValue() throws IOException;
+
+    long nextLong() throws IOException;
+
+    BigDecimal nextDecimal() throws IOException;
+
+    String nextField() throws IOException;
+
+    void skipField() throws IOException;
+
+    //Skips whatever is left of the current record, line terminator included
+    void endRecord() throws IOException;
+}
@@ -0,0 +1,275 @@
+package utils;
+
+import model.Money;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.PrimitiveIterator;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+//Writes csv records field by field into a reusable byte buffer that is flushed to a file channel when full.
+//Numbers are formatted straight into the buffer, so writing a record doesn't build any String
+public class CsvWriter implements CountingWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    //Longest long is 19 digits and a sign
+    private static final int MAX_LONG_LENGTH = 20;
+    //Plain BigDecimal.toString is only used while the adjusted exponent is at least this
+    private static final int MIN_PLAIN_EXPONENT = -6;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int power = 1; power < POWERS_OF_TEN.length; power++) {
+            POWERS_OF_TEN[power] = POWERS_OF_TEN[power - 1] * 10;
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long flushedBytes = 0;
+    private final byte[] digits = new byte[MAX_LONG_LENGTH];
+
+    private boolean firstField = true;
+
+    public CsvWriter(final File file) throws IOException {
+        this(file, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvWriter(final File file, final int bufferSize) throws IOException {
+        this(FileChannel.open(file.toPath(), CREATE, WRITE, TRUNCATE_EXISTING), bufferSize);
+    }
+
+    //Any channel, e.g. one that compresses what is written to it. It is closed with the writer
+    public CsvWriter(final WritableByteChannel channel, final int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(Math.max(bufferSize, MAX_LONG_LENGTH * 2));
+    }
+
+    public CsvWriter writeHeader(final String header) throws IOException {
+        writeText(header);
+        return endRecord();
+    }
+
+    public CsvWriter field(final long value) throws IOException {
+        startField();
+        writeLong(value);
+        return this;
+    }
+
+    public CsvWriter field(final String value) throws IOException {
+        startField();
+        writeText(value);
+        return this;
+    }
+
+    public CsvWriter field(final BigDecimal value) throws IOException {
+        startField();
+        if (value.scale() >= 0 && value.scale() < POWERS_OF_TEN.length && value.precision() < POWERS_OF_TEN.length) {
+            writeDecimal(value.unscaledValue().longValue(), value.scale());
+        } else {
+            writeText(value.toString());
+        }
+        return this;
+    }
+
+    //Same text as money.toBigDecimal().toString()
+    public CsvWriter field(final Money money) throws IOException {
+        if (money.getExact() != null || money.getScale() >= POWERS_OF_TEN.length || money.getDisplayScale() > money.getScale()) {
+            return field(money.toBigDecimal());
+        }
+
+        startField();
+        writeDecimal(money.getUnscaled() / POWERS_OF_TEN[money.getScale() - money.getDisplayScale()], money.getDisplayScale());
+        return this;
+    }
+
+    //A single field with every value, one separator between each
+    public CsvWriter field(final PrimitiveIterator.OfLong values, final char separator) throws IOException {
+        startField();
+        boolean first = true;
+        while (values.hasNext()) {
+            if (!first) {
+                writeByte((byte) separator);
+            }
+            writeLong(values.nextLong());
+            first = false;
+        }
+        return this;
+    }
+
+    //A single field with the first value and then the gap from each value to the previous one, for ascending values
+    public CsvWriter deltaField(final PrimitiveIterator.OfLong values, final char separator) throws IOException {
+        startField();
+        boolean first = true;
+        long previous = 0;
+        while (values.hasNext()) {
+            final long value = values.nextLong();
+            if (!first) {
+                writeByte((byte) separator);
+            }
+            writeLong(value - previous);
+            previous = value;
+            first = false;
+        }
+        return this;
+    }
+
+    public CsvWriter field(final Object value) throws IOException {
+        if (value instanceof Long || value instanceof Integer) {
+            return field(((Number) value).longValue());
+        }
+        if (value instanceof BigDecimal) {
+            return field((BigDecimal) value);
+        }
+        return field(value.toString());
+    }
+
+    public CsvWriter endRecord() throws IOException {
+        ensureCapacity(LINE_SEPARATOR.length);
+        buffer.put(LINE_SEPARATOR);
+        firstField = true;
+        return this;
+    }
+
+    //What reaches the channel once flushed, so it grows with every field and not only with every flush
+    @Override
+    public long getBytesWritten() {
+        return flushedBytes + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void startField() throws IOException {
+        if (!firstField) {
+            writeByte((byte) ',');
+        }
+        firstField = false;
+    }
+
+    private void writeByte(final byte value) throws IOException {
+        ensureCapacity(1);
+        buffer.put(value);
+    }
+
+    private void writeLong(final long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeText(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(MAX_LONG_LENGTH);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        long remaining = Math.abs(value);
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        while (length > 0) {
+            buffer.put(digits[--length]);
+        }
+    }
+
+    //Formats unscaled * 10^-scale the way BigDecimal.toString does, falling back to it for exponential notation
+    private void writeDecimal(final long unscaled, final int scale) throws IOException {
+        if (scale == 0) {
+            writeLong(unscaled);
+            return;
+        }
+
+        final int precision = countDigits(unscaled);
+        if (precision - 1 - scale < MIN_PLAIN_EXPONENT || unscaled == Long.MIN_VALUE) {
+            writeText(BigDecimal.valueOf(unscaled, scale).toString());
+            return;
+        }
+
+        final long magnitude = Math.abs(unscaled);
+        ensureCapacity(MAX_LONG_LENGTH * 2);
+        if (unscaled < 0) {
+            buffer.put((byte) '-');
+        }
+        writeLong(magnitude / POWERS_OF_TEN[scale]);
+        buffer.put((byte) '.');
+        long fraction = magnitude % POWERS_OF_TEN[scale];
+        for (int index = scale - 1; index >= 0; index--) {
+            digits[index] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        buffer.put(digits, 0, scale);
+    }
+
+    private static int countDigits(final long value) {
+        long remaining = Math.abs(value);
+        int count = 1;
+        while (remaining >= 10) {
+            remaining /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    //Plain ascii goes byte by byte, anything else is encoded as utf-8
+    private void writeText(final String text) throws IOException {
+        final int length = text.length();
+        for (int index = 0; index < length; index++) {
+            if (text.charAt(index) >= 0x80) {
+                writeBytes(text.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+
+        int index = 0;
+        while (index < length) {
+            ensureCapacity(1);
+            final int chunkEnd = Math.min(length, index + buffer.remaining());
+            while (index < chunkEnd) {
+                buffer.put((byte) text.charAt(index++));
+            }
+        }
+    }
+
+    private void writeBytes(final byte[] text) throws IOException {
+        int offset = 0;
+        while (offset < text.length) {
+            ensureCapacity(1);
+            final int length = Math.min(text.length - offset, buffer.remaining());
+            buffer.put(text, offset, length);
+            offset += length;
+        }
+    }
+
+    private void ensureCapacity(final int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        flushedBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,43 @@
+package utils;
+
+import structures.LongMoneyMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.LongPredicate;
+
+//Joins customers.csv with the customer totals, handing each matching customer over without building intermediate objects
+public class CustomerJoin {
+
+    private CustomerJoin() {
+    }
+
+    //Every customer id is probed in the totals hash table
+    public static void hashJoin(final File customers, final ReadMode readMode, final LongMoneyMap totals, final JoinedCustomerConsumer consumer) throws IOException {
+        hashJoin(InputSource.of(customers), readMode, totals, consumer);
+    }
+
+    public static void hashJoin(final InputSource customers, final ReadMode readMode, final LongMoneyMap totals, final JoinedCustomerConsumer consumer) throws IOException {
+        final HashProbe probe = new HashProbe(totals);
+
+        Utils.forEachCustomer(customers, readMode, probe, (customerId, firstName, lastName) ->
+                consumer.accept(customerId, firstName, lastName, probe.matchedIndex)
+        );
+    }
+
+    //The filter runs right before the consumer for the same customer, so the matched index is kept in between
+    private static class HashProbe implements LongPredicate {
+        private final LongMoneyMap totals;
+        private int matchedIndex;
+
+        private HashProbe(final LongMoneyMap totals) {
+            this.totals = totals;
+        }
+
+        @Override
+        public boolean test(final long customerId) {
+            matchedIndex = totals.indexOf(customerId);
+            return matchedIndex >= 0;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package utils;
+
+//How the customers of each product are written in product_customers, always sorted by id
+public enum CustomerListEncoding {
+    //product_customers.csv with the customer ids, space separated
+    TEXT,
+    //product_customers.csv with the first customer id followed by the gaps between consecutive ids, space separated
+    DELTA_TEXT,
+    //product_customers.bin with varint encoded gaps, see ProductCustomersBinary
+    VARINT_DELTA
+}
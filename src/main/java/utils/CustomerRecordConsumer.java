@@ -0,0 +1,9 @@
+package utils;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface CustomerRecordConsumer {
+
+    void accept(long customerId, String firstName, String lastName) throws IOException;
+}
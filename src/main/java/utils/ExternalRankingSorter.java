@@ -0,0 +1,298 @@
+package utils;
+
+import model.Money;
+import structures.IndexSort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Sorts ranked customers (biggest total first, ties broken by customer id) within a memory budget: whenever the buffered
+//customers would go over it, they are sorted and spilled to a temporary run file. The runs are then k-way merged, so only
+//one customer per run is held at a time. When there are more runs than read buffers fit in the budget (or than files
+//should be open at once), groups of them are first merged into longer runs, as many passes as needed.
+//Customers are buffered in flat arrays, like RankingRows, with their totals as fixed point amounts of the given scale
+public class ExternalRankingSorter implements Closeable {
+
+    //Rough heap cost of a buffered customer besides the characters of its names: its array slots and two Strings
+    private static final long CUSTOMER_OVERHEAD_BYTES = 112;
+    private static final int MIN_RUN_BUFFER_SIZE = 4096;
+    public static final int DEFAULT_MAX_OPEN_RUNS = 128;
+
+    private final long memoryBudget;
+    private final int scale;
+    private final Path tempDirectory;
+    //Runs merged at once
+    private final int fanIn;
+
+    private long[] customerIds = new long[16];
+    private String[] firstNames = new String[16];
+    private String[] lastNames = new String[16];
+    private long[] unscaledTotals = new long[16];
+    private int[] displayScales = new int[16];
+    //Only for the totals that overflowed a long
+    private BigDecimal[] exactTotals = new BigDecimal[16];
+    private int size = 0;
+
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes = 0;
+    private int mergePasses = 0;
+
+    public ExternalRankingSorter(final long memoryBudget, final int scale, final Path tempDirectory) {
+        this(memoryBudget, scale, tempDirectory, DEFAULT_MAX_OPEN_RUNS);
+    }
+
+    public ExternalRankingSorter(final long memoryBudget, final int scale, final Path tempDirectory, final int maxOpenRuns) {
+        this.memoryBudget = memoryBudget;
+        this.scale = scale;
+        this.tempDirectory = tempDirectory;
+        this.fanIn = (int) Math.max(2, Math.min(maxOpenRuns, memoryBudget / MIN_RUN_BUFFER_SIZE));
+    }
+
+    //The total is copied, so the same amount can be reused for every customer
+    public void add(final long customerId, final String firstName, final String lastName, final Money total) throws IOException {
+        final long customerBytes = CUSTOMER_OVERHEAD_BYTES + 2L * (firstName.length() + lastName.length());
+        if (size > 0 && bufferedBytes + customerBytes > memoryBudget) {
+            spill();
+        }
+
+        if (size == customerIds.length) {
+            final int capacity = size * 2;
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            unscaledTotals = Arrays.copyOf(unscaledTotals, capacity);
+            displayScales = Arrays.copyOf(displayScales, capacity);
+            exactTotals = Arrays.copyOf(exactTotals, capacity);
+        }
+
+        customerIds[size] = customerId;
+        firstNames[size] = firstName;
+        lastNames[size] = lastName;
+        unscaledTotals[size] = total.getUnscaled();
+        displayScales[size] = total.getDisplayScale();
+        exactTotals[size] = total.getExact();
+        size++;
+        bufferedBytes += customerBytes;
+    }
+
+    public int getRunCount() {
+        return runs.size();
+    }
+
+    //Including the last one, the one that hands the customers over. 0 if nothing was spilled
+    public int getMergePasses() {
+        return mergePasses;
+    }
+
+    //If nothing was spilled, the customers never leave the heap. The same amount is handed over for every customer
+    public void forEachSorted(final RankedCustomerConsumer consumer) throws IOException {
+        if (runs.isEmpty()) {
+            final Money total = new Money(scale);
+            for (int row : sortedRows()) {
+                total.set(unscaledTotals[row], displayScales[row], exactTotals[row]);
+                consumer.accept(customerIds[row], firstNames[row], lastNames[row], total);
+            }
+            return;
+        }
+
+        if (size > 0) {
+            spill();
+        }
+        while (runs.size() > fanIn) {
+            mergeIntoLongerRuns();
+        }
+        mergePasses++;
+        merge(runs, consumer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        clearBuffer();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private int[] sortedRows() {
+        final int[] order = new int[size];
+        for (int row = 0; row < size; row++) {
+            order[row] = row;
+        }
+
+        IndexSort.sort(order, (row, otherRow) -> compare(
+                unscaledTotals[row], exactTotals[row], customerIds[row],
+                unscaledTotals[otherRow], exactTotals[otherRow], customerIds[otherRow]
+        ));
+        return order;
+    }
+
+    //Negative when the first customer goes before the other one in the ranking
+    private int compare(final long unscaled, final BigDecimal exact, final long customerId,
+                        final long otherUnscaled, final BigDecimal otherExact, final long otherCustomerId) {
+        final int byTotal = exact == null && otherExact == null
+                ? Long.compare(otherUnscaled, unscaled)
+                : toExact(otherUnscaled, otherExact).compareTo(toExact(unscaled, exact));
+        return byTotal != 0 ? byTotal : Long.compare(customerId, otherCustomerId);
+    }
+
+    private BigDecimal toExact(final long unscaled, final BigDecimal exact) {
+        return exact != null ? exact : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    private void spill() throws IOException {
+        final Path run = Files.createTempFile(tempDirectory, "customer-ranking-run", ".bin");
+        runs.add(run);
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+            for (int row : sortedRows()) {
+                write(output, customerIds[row], firstNames[row], lastNames[row], unscaledTotals[row], displayScales[row], exactTotals[row]);
+            }
+        }
+
+        clearBuffer();
+    }
+
+    //The arrays are kept for the next run, only the names and overflowed totals are let go
+    private void clearBuffer() {
+        Arrays.fill(firstNames, 0, size, null);
+        Arrays.fill(lastNames, 0, size, null);
+        Arrays.fill(exactTotals, 0, size, null);
+        size = 0;
+        bufferedBytes = 0;
+    }
+
+    //One pass: every group of fanIn runs becomes a single run
+    private void mergeIntoLongerRuns() throws IOException {
+        mergePasses++;
+        final List<Path> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                final List<Path> group = runs.subList(from, Math.min(from + fanIn, runs.size()));
+                final Path run = Files.createTempFile(tempDirectory, "customer-ranking-run", ".bin");
+                merged.add(run);
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), MIN_RUN_BUFFER_SIZE))) {
+                    merge(group, (customerId, firstName, lastName, total) ->
+                            write(output, customerId, firstName, lastName, total.getUnscaled(), total.getDisplayScale(), total.getExact())
+                    );
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path run : merged) {
+                Files.deleteIfExists(run);
+            }
+            throw e;
+        }
+
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    private void merge(final List<Path> runsToMerge, final RankedCustomerConsumer consumer) throws IOException {
+        //The budget is shared by the read buffers of the runs merged at once
+        final int runBufferSize = (int) Math.max(MIN_RUN_BUFFER_SIZE, Math.min(Integer.MAX_VALUE, memoryBudget / runsToMerge.size()));
+        final PriorityQueue<RunReader> readers = new PriorityQueue<>(runsToMerge.size(), (a, b) -> compare(
+                a.unscaledTotal, a.exactTotal, a.customerId,
+                b.unscaledTotal, b.exactTotal, b.customerId
+        ));
+        final Money total = new Money(scale);
+
+        try {
+            for (Path run : runsToMerge) {
+                final RunReader reader = new RunReader(new DataInputStream(new BufferedInputStream(Files.newInputStream(run), runBufferSize)));
+                if (reader.advance()) {
+                    readers.add(reader);
+                } else {
+                    reader.input.close();
+                }
+            }
+
+            while (!readers.isEmpty()) {
+                final RunReader reader = readers.poll();
+                total.set(reader.unscaledTotal, reader.displayScale, reader.exactTotal);
+                consumer.accept(reader.customerId, reader.firstName, reader.lastName, total);
+                if (reader.advance()) {
+                    readers.add(reader);
+                } else {
+                    reader.input.close();
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.input.close();
+            }
+        }
+    }
+
+    //Totals that fit a long are written as it, the overflowed ones as the scale and bytes of their unscaled value
+    private static void write(final DataOutputStream output, final long customerId, final String firstName, final String lastName,
+                              final long unscaledTotal, final int displayScale, final BigDecimal exactTotal) throws IOException {
+        output.writeLong(customerId);
+        output.writeUTF(firstName);
+        output.writeUTF(lastName);
+        output.writeInt(displayScale);
+        output.writeBoolean(exactTotal != null);
+        if (exactTotal == null) {
+            output.writeLong(unscaledTotal);
+        } else {
+            final byte[] unscaled = exactTotal.unscaledValue().toByteArray();
+            output.writeInt(exactTotal.scale());
+            output.writeInt(unscaled.length);
+            output.write(unscaled);
+        }
+    }
+
+    //Holds the head customer of a run in its fields
+    private static class RunReader {
+        private final DataInputStream input;
+        private long customerId;
+        private String firstName;
+        private String lastName;
+        private long unscaledTotal;
+        private int displayScale;
+        private BigDecimal exactTotal;
+
+        private RunReader(final DataInputStream input) {
+            this.input = input;
+        }
+
+        private boolean advance() throws IOException {
+            try {
+                customerId = input.readLong();
+            } catch (EOFException endOfRun) {
+                return false;
+            }
+
+            firstName = input.readUTF();
+            lastName = input.readUTF();
+            displayScale = input.readInt();
+            if (input.readBoolean()) {
+                final int exactScale = input.readInt();
+                final byte[] unscaled = new byte[input.readInt()];
+                input.readFully(unscaled);
+                unscaledTotal = 0;
+                exactTotal = new BigDecimal(new BigInteger(unscaled), exactScale);
+            } else {
+                unscaledTotal = input.readLong();
+                exactTotal = null;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+//A byte range of a file that starts at the beginning of a line and ends right after a line terminator (or at the end of the file)
+public class FileChunk {
+
+    private final long start;
+    private final long end;
+
+    public FileChunk(final long start, final long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    //Splits [from, file size) in about chunkCount ranges of similar size, moving every boundary past the next new line
+    public static List<FileChunk> split(final Path file, final long from, final int chunkCount) throws IOException {
+        return split(file, from, Long.MAX_VALUE, chunkCount);
+    }
+
+    //Same, but only up to the given offset
+    public static List<FileChunk> split(final Path file, final long from, final long to, final int chunkCount) throws IOException {
+        final List<FileChunk> chunks = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            final long size = Math.min(to, channel.size());
+            final long chunkSize = Math.max(1, (size - from) / Math.max(1, chunkCount));
+
+            long start = from;
+            while (start < size) {
+                final long end = nextLineStart(channel, Math.min(size, start + chunkSize), size);
+                chunks.add(new FileChunk(start, end));
+                start = end;
+            }
+        }
+
+        return chunks;
+    }
+
+    private static long nextLineStart(final FileChannel channel, final long position, final long size) throws IOException {
+        if (position >= size) {
+            return size;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int index = 0; index < read; index++) {
+                if (buffer.get(index) == '\n') {
+                    return offset + index + 1;
+                }
+            }
+            offset += read;
+        }
+
+        return size;
+    }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+//Where a csv comes from. Plain files keep the memory mapped, columnar cache and parallel paths, anything else
+//(compressed files, resources inside a jar, pipes, stdin) is read once as a stream
+public class InputSource {
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    private static final AtomicBoolean STDIN_OPENED = new AtomicBoolean();
+
+    @FunctionalInterface
+    public interface Opener {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ChannelOpener {
+        ReadableByteChannel open() throws IOException;
+    }
+
+    //Wraps a compressed stream in a decompressing one, e.g. a zstd stream from whichever library the caller ships
+    @FunctionalInterface
+    public interface Decompressor {
+        InputStream decompress(InputStream compressed) throws IOException;
+    }
+
+    private final String name;
+    private final File file;
+    private final Opener opener;
+
+    private InputSource(final String name, final File file, final Opener opener) {
+        this.name = name;
+        this.file = file;
+        this.opener = opener;
+    }
+
+    //Files ending in .gz are decompressed on the fly
+    public static InputSource of(final File file) {
+        final InputSource plain = new InputSource(file.getPath(), file, () -> new FileInputStream(file));
+        return file.getName().endsWith(GZIP_EXTENSION) ? gzip(plain) : plain;
+    }
+
+    public static InputSource of(final String name, final Opener opener) {
+        return new InputSource(name, null, opener);
+    }
+
+    public static InputSource ofChannel(final String name, final ChannelOpener opener) {
+        return of(name, () -> Channels.newInputStream(opener.open()));
+    }
+
+    //Resources are only files when running from the classes directory, inside a jar they have to be streamed
+    public static InputSource ofResource(final Class<?> owner, final String resource) {
+        final URL url = owner.getResource(resource);
+        if (url == null) {
+            throw new IllegalArgumentException("No resource " + resource);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return of(Paths.get(url.toURI()).toFile());
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Invalid resource " + url, e);
+            }
+        }
+        return of(resource, url::openStream);
+    }
+
+    //Standard input can only be read once per run, and it is not closed afterwards
+    public static InputSource stdin() {
+        return of("stdin", () -> {
+            if (STDIN_OPENED.getAndSet(true)) {
+                throw new IllegalStateException("Standard input can only be read once");
+            }
+            return new FilterInputStream(System.in) {
+                @Override
+                public void close() {
+                }
+            };
+        });
+    }
+
+    public static InputSource gzip(final InputSource compressed) {
+        return decompressed(compressed, stream -> new GZIPInputStream(stream, STREAM_BUFFER_SIZE));
+    }
+
+    public static InputSource decompressed(final InputSource compressed, final Decompressor decompressor) {
+        return of(compressed.name, () -> {
+            final InputStream stream = compressed.open();
+            try {
+                return decompressor.decompress(stream);
+            } catch (IOException | RuntimeException e) {
+                stream.close();
+                throw e;
+            }
+        });
+    }
+
+    public InputStream open() throws IOException {
+        return opener.open();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    //Null unless the records can be read straight from a file on disk
+    public File getFile() {
+        return file;
+    }
+
+    //-1 when it is not known before reading
+    public long length() {
+        return file != null ? file.length() : -1;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,10 @@
+package utils;
+
+import java.io.IOException;
+
+//Receives each customer that has a total, with the position of that total in the totals map (see LongMoneyMap.indexOf)
+@FunctionalInterface
+public interface JoinedCustomerConsumer {
+
+    void accept(long customerId, String firstName, String lastName, int totalIndex) throws IOException;
+}
@@ -0,0 +1,218 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+//Scans the file as bytes through memory mapped windows, so plain ascii numbers are parsed without decoding them to chars first.
+//A single mapping can't be bigger than 2GB, so bigger files (or byte ranges) are walked one window at a time
+public class MappedCsvTokenizer implements CsvTokenizer {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    //Longest unscaled value that always fits in a long
+    private static final int MAX_FAST_DECIMAL_DIGITS = 18;
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart = 0;
+    private long windowEnd = 0;
+    private long position;
+
+    private byte[] field = new byte[64];
+
+    public MappedCsvTokenizer(final File file) throws IOException {
+        this(file.toPath(), 0, file.length(), DEFAULT_WINDOW_SIZE);
+    }
+
+    public MappedCsvTokenizer(final Path file, final long start, final long end, final int windowSize) throws IOException {
+        this.channel = FileChannel.open(file, READ);
+        this.end = Math.min(end, channel.size());
+        this.windowSize = windowSize;
+        this.position = start;
+    }
+
+    @Override
+    public boolean hasNextRecord() throws IOException {
+        return peek() != -1;
+    }
+
+    @Override
+    public boolean hasNextValue() throws IOException {
+        final int next = peek();
+        return next != -1 && next != '\n' && next != '\r';
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int next = peek();
+        final boolean negative = next == '-';
+        if (negative) {
+            position++;
+            next = peek();
+        }
+        if (!isDigit(next)) {
+            throw new NumberFormatException("Expected a number at byte " + position + " but found " + describe(next));
+        }
+
+        long value = 0;
+        while (isDigit(next)) {
+            final int digit = next - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Number at byte " + position + " does not fit in a long");
+            }
+            value = value * 10 + digit;
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+
+        return negative ? -value : value;
+    }
+
+    //Prices are built from their unscaled digits and scale. Only values with too many digits (or unusual notation) go through a String
+    @Override
+    public BigDecimal nextDecimal() throws IOException {
+        final long start = position;
+
+        int next = peek();
+        final boolean negative = next == '-';
+        if (negative) {
+            position++;
+            next = peek();
+        }
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean decimals = false;
+        boolean fast = true;
+        while (isFieldByte(next)) {
+            if (isDigit(next) && digits < MAX_FAST_DECIMAL_DIGITS) {
+                unscaled = unscaled * 10 + (next - '0');
+                digits++;
+                if (decimals) {
+                    scale++;
+                }
+            } else if (next == '.' && !decimals) {
+                decimals = true;
+            } else {
+                fast = false;
+            }
+            position++;
+            next = peek();
+        }
+        final long fieldEnd = position;
+        skipSeparator(next);
+
+        if (!fast || digits == 0) {
+            return new BigDecimal(readString(start, fieldEnd));
+        }
+
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    @Override
+    public String nextField() throws IOException {
+        int length = 0;
+        int next = peek();
+        while (isFieldByte(next)) {
+            if (length == field.length) {
+                field = Arrays.copyOf(field, length * 2);
+            }
+            field[length++] = (byte) next;
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+
+        return new String(field, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void skipField() throws IOException {
+        int next = peek();
+        while (isFieldByte(next)) {
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+    }
+
+    @Override
+    public void endRecord() throws IOException {
+        int next = peek();
+        while (next != -1 && next != '\n') {
+            position++;
+            next = peek();
+        }
+        if (next == '\n') {
+            position++;
+        }
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void skipSeparator(final int next) {
+        if (next == ',' || next == ' ') {
+            position++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        if (position >= windowEnd || position < windowStart) {
+            mapWindowAt(position);
+        }
+        return window.get((int) (position - windowStart)) & 0xFF;
+    }
+
+    private void mapWindowAt(final long start) throws IOException {
+        windowStart = start;
+        windowEnd = Math.min(end, start + windowSize);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+    }
+
+    private String readString(final long start, final long end) throws IOException {
+        final ByteBuffer bytes = ByteBuffer.allocate((int) (end - start));
+        //Positional reads may return less than requested
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, start + bytes.position()) < 0) {
+                break;
+            }
+        }
+        return new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean isFieldByte(final int character) {
+        return character != -1 && character != ',' && character != '\n' && character != '\r';
+    }
+
+    private static boolean isDigit(final int character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static String describe(final int character) {
+        return character == -1 ? "end of file" : "'" + (char) character + "'";
+    }
+}
@@ -0,0 +1,10 @@
+package utils;
+
+import java.io.IOException;
+
+//Receives each order record already parsed. The products array is reused between records, only its first productCount values belong to this order
+@FunctionalInterface
+public interface OrderRecordConsumer {
+
+    void accept(long orderId, long customerId, long[] products, int productCount) throws IOException;
+}
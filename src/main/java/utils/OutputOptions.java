@@ -0,0 +1,74 @@
+package utils;
+
+//How reports are written: plain or gzip compressed, as a single file or split in part files
+public class OutputOptions {
+
+    //RANGE writes the rows in order and starts a new part once the current one has reached the part size, so the parts
+    //read one after the other keep the report order and have about the same size however long some rows are.
+    //HASH sends every row to the part its key hashes to, so a given id always lands in the same part
+    public enum Partitioning {
+        RANGE,
+        HASH
+    }
+
+    public static final OutputOptions PLAIN = new OutputOptions(false);
+
+    private static final long UNLIMITED_PART_BYTES = Long.MAX_VALUE;
+
+    private final boolean gzip;
+    private final int partitions;
+    private final Partitioning partitioning;
+    private final long partBytes;
+
+    public OutputOptions(final boolean gzip) {
+        this(gzip, 1, Partitioning.RANGE);
+    }
+
+    //Range parts are cut by size instead (see rangeParts), so more than one partition is only for HASH
+    public OutputOptions(final boolean gzip, final int partitions, final Partitioning partitioning) {
+        this(gzip, partitions, partitioning, UNLIMITED_PART_BYTES);
+        if (partitioning == Partitioning.RANGE && partitions > 1) {
+            throw new IllegalArgumentException("Range parts are cut by size, not by count, got " + partitions + " partitions");
+        }
+    }
+
+    private OutputOptions(final boolean gzip, final int partitions, final Partitioning partitioning, final long partBytes) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("At least one partition is needed, got " + partitions);
+        }
+        if (partBytes < 1) {
+            throw new IllegalArgumentException("Parts need at least one byte, got " + partBytes);
+        }
+        this.gzip = gzip;
+        this.partitions = partitions;
+        this.partitioning = partitioning;
+        this.partBytes = partBytes;
+    }
+
+    //Parts of about partBytes bytes as the report writer takes them, before compression if gzipped. A part goes over it
+    //by at most its last row
+    public static OutputOptions rangeParts(final boolean gzip, final long partBytes) {
+        return new OutputOptions(gzip, 1, Partitioning.RANGE, partBytes);
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    //Of hash partitioning. Range partitioning writes as many parts as the rows need
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    public long getPartBytes() {
+        return partBytes;
+    }
+
+    public boolean isPartitioned() {
+        return partitioning == Partitioning.HASH ? partitions > 1 : partBytes != UNLIMITED_PART_BYTES;
+    }
+}
@@ -0,0 +1,72 @@
+package utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+//Binary product_customers: the magic bytes, then for every product (in id order) a record of varints with
+//  the signed gap to the previous product id (0 before the first), the number of customers,
+//  the first customer id (signed) and the gaps between consecutive customer ids.
+//Sorted ids are mostly small gaps, so a customer takes one or two bytes instead of its digits and a separator
+public class ProductCustomersBinary {
+
+    public static final String EXTENSION = ".bin";
+
+    private static final byte[] MAGIC = {'P', 'C', 'D', '1'};
+
+    private ProductCustomersBinary() {
+    }
+
+    //Starts a file (or a part of a partitioned one), each is decoded on its own
+    public static VarintWriter writeMagic(final VarintWriter writer) throws IOException {
+        return writer.writeBytes(MAGIC);
+    }
+
+    //Customers must come in ascending order, as the bitmap iterates them
+    public static void writeRecord(final VarintWriter writer, final long previousProduct, final long product,
+                                   final long customerCount, final PrimitiveIterator.OfLong customers) throws IOException {
+        writer.writeSignedVarint(product - previousProduct)
+                .writeVarint(customerCount);
+
+        if (customers.hasNext()) {
+            long previous = customers.nextLong();
+            writer.writeSignedVarint(previous);
+            while (customers.hasNext()) {
+                final long customer = customers.nextLong();
+                writer.writeVarint(customer - previous);
+                previous = customer;
+            }
+        }
+    }
+
+    public static void forEach(final InputSource source, final ProductCustomersConsumer consumer) throws IOException {
+        try (InputStream input = source.open();
+             VarintReader reader = new VarintReader(input)) {
+
+            final byte[] magic = new byte[MAGIC.length];
+            reader.readBytes(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(source + " is not a binary product customers file");
+            }
+
+            long product = 0;
+            long[] customers = new long[16];
+            while (reader.hasMore()) {
+                product += reader.readSignedVarint();
+                final int customerCount = Math.toIntExact(reader.readVarint());
+                if (customerCount > customers.length) {
+                    customers = new long[Math.max(customerCount, customers.length * 2)];
+                }
+
+                long customer = 0;
+                for (int index = 0; index < customerCount; index++) {
+                    customer = index == 0 ? reader.readSignedVarint() : customer + reader.readVarint();
+                    customers[index] = customer;
+                }
+
+                consumer.accept(product, customers, customerCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package utils;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface ProductCustomersConsumer {
+
+    //Only the first customerCount customers are the product's, the array is reused from one product to the next
+    void accept(long productId, long[] customers, int customerCount) throws IOException;
+}
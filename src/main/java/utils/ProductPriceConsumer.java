@@ -0,0 +1,10 @@
+package utils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+@FunctionalInterface
+public interface ProductPriceConsumer {
+
+    void accept(long productId, BigDecimal price) throws IOException;
+}
@@ -0,0 +1,280 @@
+package utils;
+
+import model.PriceTable;
+import structures.IndexSort;
+import structures.LongLruCache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+//Sorted product id -> record offset index over products.csv, kept in a "<file>.index" file next to it and rebuilt when
+//the csv size or modification time changes. Prices are read from products.csv on demand, through an LRU cache
+public class ProductPriceIndex implements Closeable {
+
+    public static final int DEFAULT_CACHE_SIZE = 1 << 16;
+
+    private static final int MAGIC = 0x50494458;
+    private static final int VERSION = 1;
+    //magic, version, csv length, csv modification time, product count, biggest price scale
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4;
+    //Longs per mapped window of the index, a single mapping can't go over 2GB
+    private static final int WINDOW_SHIFT = 27;
+
+    private final File products;
+    //Of the csv the index was built from
+    private final long length;
+    private final long lastModified;
+    private final long productCount;
+    private final int scale;
+    private final MappedByteBuffer[] ids;
+    private final MappedByteBuffer[] offsets;
+    private final LongLruCache<BigDecimal> cache;
+    private FileChannel productsChannel;
+    private boolean closed = false;
+
+    private ByteBuffer line = ByteBuffer.allocate(256);
+
+    private ProductPriceIndex(final File products, final Path index, final int cacheSize) throws IOException {
+        this.products = products;
+        this.cache = new LongLruCache<>(cacheSize);
+
+        try (FileChannel indexChannel = FileChannel.open(index, READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            indexChannel.read(header, 0);
+            this.length = header.getLong(8);
+            this.lastModified = header.getLong(16);
+            this.productCount = header.getLong(24);
+            this.scale = header.getInt(32);
+            this.ids = mapLongs(indexChannel, HEADER_SIZE, productCount);
+            this.offsets = mapLongs(indexChannel, HEADER_SIZE + productCount * Long.BYTES, productCount);
+        }
+        this.productsChannel = FileChannel.open(products.toPath(), READ);
+    }
+
+    public static ProductPriceIndex open(final File products) throws IOException {
+        return open(products, DEFAULT_CACHE_SIZE);
+    }
+
+    public static ProductPriceIndex open(final File products, final int cacheSize) throws IOException {
+        final Path index = products.toPath().resolveSibling(products.getName() + ".index");
+        ensureBuilt(products, index);
+        return new ProductPriceIndex(products, index, cacheSize);
+    }
+
+    //Synchronized so calculators running at the same time don't build the same index twice over each other
+    private static synchronized void ensureBuilt(final File products, final Path index) throws IOException {
+        if (!isValid(index, products)) {
+            build(products, index);
+        }
+    }
+
+    //Null if products.csv has no such product
+    public BigDecimal getPrice(final long productId) throws IOException {
+        final BigDecimal cached = cache.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+
+        final long position = search(productId);
+        if (position < 0) {
+            return null;
+        }
+
+        final BigDecimal price = readPrice(getLong(offsets, position));
+        cache.put(productId, price);
+        return price;
+    }
+
+    //Prices are looked up the first time each product is added
+    public PriceTable newPriceTable() {
+        return PriceTable.lazy(scale, productId -> {
+            try {
+                return getPrice(productId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    //The csv changed since the index was opened. It doesn't touch the channel, so it still answers after an interrupt
+    public boolean isStale() {
+        return products.length() != length || products.lastModified() != lastModified;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        productsChannel.close();
+    }
+
+    public long getProductCount() {
+        return productCount;
+    }
+
+    public LongLruCache<BigDecimal> getCache() {
+        return cache;
+    }
+
+    private long search(final long productId) {
+        long low = 0;
+        long high = productCount - 1;
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long id = getLong(ids, middle);
+            if (id < productId) {
+                low = middle + 1;
+            } else if (id > productId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    //id,name,cost: the price is the third field of the line starting at the offset
+    private BigDecimal readPrice(final long offset) throws IOException {
+        while (true) {
+            line.clear();
+            final FileChannel channel = openProductsChannel();
+            final int read = Math.max(0, channel.read(line, offset));
+            final byte[] bytes = line.array();
+
+            int fieldStart = 0;
+            int separators = 0;
+            for (int index = 0; index < read; index++) {
+                final byte next = bytes[index];
+                if (next == '\n' || next == '\r') {
+                    return new BigDecimal(new String(bytes, fieldStart, index - fieldStart, StandardCharsets.US_ASCII));
+                }
+                if (next == ',' && ++separators == 2) {
+                    fieldStart = index + 1;
+                }
+            }
+
+            if (offset + read >= channel.size()) {
+                return new BigDecimal(new String(bytes, fieldStart, read - fieldStart, StandardCharsets.US_ASCII));
+            }
+            //The line didn't fit
+            line = ByteBuffer.allocate(line.capacity() * 2);
+        }
+    }
+
+    //A read interrupted on any thread closes the channel, so it's opened again for the lookups that come after it
+    private FileChannel openProductsChannel() throws IOException {
+        if (!productsChannel.isOpen() && !closed) {
+            productsChannel = FileChannel.open(products.toPath(), READ);
+        }
+        return productsChannel;
+    }
+
+    private static boolean isValid(final Path index, final File products) throws IOException {
+        if (!Files.isRegularFile(index)) {
+            return false;
+        }
+
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(index))) {
+            return input.readInt() == MAGIC
+                    && input.readInt() == VERSION
+                    && input.readLong() == products.length()
+                    && input.readLong() == products.lastModified();
+        } catch (IOException unreadable) {
+            return false;
+        }
+    }
+
+    //One scan of products.csv, remembering where each record starts. If an id is repeated, its last record wins
+    private static void build(final File products, final Path index) throws IOException {
+        final long length = products.length();
+        final long lastModified = products.lastModified();
+
+        long[] ids = new long[1024];
+        long[] offsets = new long[1024];
+        int count = 0;
+        int biggestScale = 0;
+
+        try (MappedCsvTokenizer tokenizer = new MappedCsvTokenizer(products)) {
+            //Header
+            tokenizer.endRecord();
+
+            while (tokenizer.hasNextRecord()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count] = tokenizer.getPosition();
+                ids[count] = tokenizer.nextLong();
+                //Name
+                tokenizer.skipField();
+                biggestScale = Math.max(biggestScale, tokenizer.nextDecimal().scale());
+                tokenizer.endRecord();
+                count++;
+            }
+        }
+
+        final long[] sortedIds = ids;
+        final int[] order = IntStream.range(0, count).toArray();
+        IndexSort.sort(order, (position, otherPosition) -> Long.compare(sortedIds[position], sortedIds[otherPosition]));
+
+        final Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            final int[] kept = keepLastOfEachId(order, ids);
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(length);
+            output.writeLong(lastModified);
+            output.writeLong(kept.length);
+            output.writeInt(biggestScale);
+            for (int position : kept) {
+                output.writeLong(ids[position]);
+            }
+            for (int position : kept) {
+                output.writeLong(offsets[position]);
+            }
+        }
+
+        Files.move(temporary, index, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    //The sort is stable, so the last of a run of equal ids is the one that came last in the file
+    private static int[] keepLastOfEachId(final int[] order, final long[] ids) {
+        return IntStream.range(0, order.length)
+                .filter(index -> index == order.length - 1 || ids[order[index]] != ids[order[index + 1]])
+                .map(index -> order[index])
+                .toArray();
+    }
+
+    private static MappedByteBuffer[] mapLongs(final FileChannel channel, final long start, final long count) throws IOException {
+        final int windowCount = (int) ((count + (1L << WINDOW_SHIFT) - 1) >>> WINDOW_SHIFT);
+        final MappedByteBuffer[] windows = new MappedByteBuffer[windowCount];
+        for (int window = 0; window < windowCount; window++) {
+            final long first = (long) window << WINDOW_SHIFT;
+            final long longs = Math.min(1L << WINDOW_SHIFT, count - first);
+            windows[window] = channel.map(FileChannel.MapMode.READ_ONLY, start + first * Long.BYTES, longs * Long.BYTES);
+        }
+        return windows;
+    }
+
+    private static long getLong(final MappedByteBuffer[] windows, final long position) {
+        return windows[(int) (position >>> WINDOW_SHIFT)].getLong((int) (position & ((1L << WINDOW_SHIFT) - 1)) * Long.BYTES);
+    }
+}
@@ -0,0 +1,12 @@
+package utils;
+
+import model.Money;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RankedCustomerConsumer {
+
+    //The total may be reused for the next customer, so it must be used or copied right away
+    void accept(long customerId, String firstName, String lastName, Money total) throws IOException;
+}
@@ -0,0 +1,141 @@
+package utils;
+
+import model.Money;
+import structures.IndexSort;
+import structures.LongHashSet;
+import structures.LongMoneyMap;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+//The rows of the customer ranking, kept in flat arrays: the totals stay in their map and each row only points to its own
+public class RankingRows {
+
+    private final LongMoneyMap totals;
+
+    private long[] customerIds = new long[16];
+    private String[] firstNames = new String[16];
+    private String[] lastNames = new String[16];
+    private int[] totalIndexes = new int[16];
+    private int size;
+
+    public RankingRows(final LongMoneyMap totals) {
+        this.totals = totals;
+    }
+
+    public void add(final long customerId, final String firstName, final String lastName, final int totalIndex) {
+        if (size == customerIds.length) {
+            final int capacity = size * 2;
+            customerIds = Arrays.copyOf(customerIds, capacity);
+            firstNames = Arrays.copyOf(firstNames, capacity);
+            lastNames = Arrays.copyOf(lastNames, capacity);
+            totalIndexes = Arrays.copyOf(totalIndexes, capacity);
+        }
+
+        customerIds[size] = customerId;
+        firstNames[size] = firstName;
+        lastNames[size] = lastName;
+        totalIndexes[size] = totalIndex;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getCustomerId(final int row) {
+        return customerIds[row];
+    }
+
+    public String getFirstName(final int row) {
+        return firstNames[row];
+    }
+
+    public String getLastName(final int row) {
+        return lastNames[row];
+    }
+
+    public BigDecimal getTotal(final int row) {
+        return totals.getAt(totalIndexes[row]);
+    }
+
+    //Biggest total first, ties broken by customer id
+    public void sortByTotal() {
+        final int[] order = new int[size];
+        for (int row = 0; row < size; row++) {
+            order[row] = row;
+        }
+
+        IndexSort.sort(order, (row, otherRow) ->
+                compare(totals, totalIndexes[row], customerIds[row], totalIndexes[otherRow], customerIds[otherRow])
+        );
+
+        final long[] sortedCustomerIds = new long[size];
+        final String[] sortedFirstNames = new String[size];
+        final String[] sortedLastNames = new String[size];
+        final int[] sortedTotalIndexes = new int[size];
+        for (int position = 0; position < size; position++) {
+            final int row = order[position];
+            sortedCustomerIds[position] = customerIds[row];
+            sortedFirstNames[position] = firstNames[row];
+            sortedLastNames[position] = lastNames[row];
+            sortedTotalIndexes[position] = totalIndexes[row];
+        }
+
+        customerIds = sortedCustomerIds;
+        firstNames = sortedFirstNames;
+        lastNames = sortedLastNames;
+        totalIndexes = sortedTotalIndexes;
+    }
+
+    //A ranking over the totals of the given rows, which must be sorted by total: the rows of this one, except the given
+    //customers', merged with them. Every customer kept must be at the same position in both totals (see LongMoneyMap.copy)
+    //and have the same total, so the result is in the order sortByTotal would have given
+    public RankingRows replaceCustomers(final LongHashSet customers, final RankingRows sortedRows) {
+        final RankingRows merged = new RankingRows(sortedRows.totals);
+        int row = 0;
+        int otherRow = 0;
+        while (row < size || otherRow < sortedRows.size) {
+            if (row < size && customers.contains(customerIds[row])) {
+                row++;
+            } else if (otherRow == sortedRows.size || row < size && compare(sortedRows.totals,
+                    totalIndexes[row], customerIds[row], sortedRows.totalIndexes[otherRow], sortedRows.customerIds[otherRow]) <= 0) {
+                merged.add(customerIds[row], firstNames[row], lastNames[row], totalIndexes[row]);
+                row++;
+            } else {
+                merged.add(sortedRows.customerIds[otherRow], sortedRows.firstNames[otherRow], sortedRows.lastNames[otherRow], sortedRows.totalIndexes[otherRow]);
+                otherRow++;
+            }
+        }
+        return merged;
+    }
+
+    //In the current order, as id, first name, last name and total
+    public void writeTo(final CsvWriter writer) throws IOException {
+        final Money total = newTotal();
+
+        for (int row = 0; row < size; row++) {
+            writeRow(writer, row, total);
+        }
+    }
+
+    //The given amount is only used to format the total, so rows can be written from several threads, each with its own
+    public void writeRow(final CsvWriter writer, final int row, final Money total) throws IOException {
+        writer.field(customerIds[row])
+                .field(firstNames[row])
+                .field(lastNames[row])
+                .field(totals.getAt(totalIndexes[row], total))
+                .endRecord();
+    }
+
+    public Money newTotal() {
+        return new Money(totals.getScale());
+    }
+
+    //Biggest total first, ties broken by customer id
+    private static int compare(final LongMoneyMap totals, final int totalIndex, final long customerId, final int otherTotalIndex, final long otherCustomerId) {
+        final int byTotal = totals.compareAt(otherTotalIndex, totalIndex);
+        return byTotal != 0 ? byTotal : Long.compare(customerId, otherCustomerId);
+    }
+}
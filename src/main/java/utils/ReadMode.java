@@ -0,0 +1,10 @@
+package utils;
+
+public enum ReadMode {
+    //Decodes the file to chars through a buffered reader
+    BUFFERED_READER,
+    //Scans the raw bytes of the file through memory mapped windows
+    MEMORY_MAPPED,
+    //Reads binary columns parsed from the file on a previous run (see ColumnarCache), building them first if needed
+    COLUMNAR_CACHE
+}
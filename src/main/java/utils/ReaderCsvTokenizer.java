@@ -0,0 +1,135 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+
+//Reads csv values straight from a char buffer, so ids and product lists are parsed without intermediate Strings or Lists
+public class ReaderCsvTokenizer implements CsvTokenizer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    public ReaderCsvTokenizer(final Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean hasNextRecord() throws IOException {
+        return peek() != -1;
+    }
+
+    @Override
+    public boolean hasNextValue() throws IOException {
+        final int next = peek();
+        return next != -1 && next != '\n' && next != '\r';
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int next = peek();
+        final boolean negative = next == '-';
+        if (negative) {
+            position++;
+            next = peek();
+        }
+        if (!isDigit(next)) {
+            throw new NumberFormatException("Expected a number but found " + describe(next));
+        }
+
+        long value = 0;
+        while (isDigit(next)) {
+            final int digit = next - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Number does not fit in a long");
+            }
+            value = value * 10 + digit;
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+
+        return negative ? -value : value;
+    }
+
+    @Override
+    public String nextField() throws IOException {
+        final StringBuilder field = new StringBuilder();
+        int next = peek();
+        while (next != -1 && next != ',' && next != '\n' && next != '\r') {
+            field.append((char) next);
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+
+        return field.toString();
+    }
+
+    @Override
+    public BigDecimal nextDecimal() throws IOException {
+        return new BigDecimal(nextField());
+    }
+
+    @Override
+    public void skipField() throws IOException {
+        int next = peek();
+        while (next != -1 && next != ',' && next != '\n' && next != '\r') {
+            position++;
+            next = peek();
+        }
+        skipSeparator(next);
+    }
+
+    @Override
+    public void endRecord() throws IOException {
+        int next = peek();
+        while (next != -1 && next != '\n') {
+            position++;
+            next = peek();
+        }
+        if (next == '\n') {
+            position++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void skipSeparator(final int next) {
+        if (next == ',' || next == ' ') {
+            position++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        final int read = reader.read(buffer, 0, BUFFER_SIZE);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private static boolean isDigit(final int character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static String describe(final int character) {
+        return character == -1 ? "end of file" : "'" + (char) character + "'";
+    }
+}
@@ -0,0 +1,339 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+//Writes a report the way the output options say. Reports are first written under a hidden temporary name in the out
+//directory and renamed into place once complete, so readers never see a half written report.
+//A partitioned report is a directory named after the report, with one part-NNNNN-of-NNNNN file per partition. That name
+//is a symbolic link to a hidden directory with the parts of the current version, see publish
+public class ReportOutput {
+
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String LINK_EXTENSION = ".link";
+    private static final String PREVIOUS_EXTENSION = ".previous";
+    private static final String PART_NAME = "part-%05d-of-%05d";
+    private static final String UNCOUNTED_PART_NAME = "part-%05d";
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+    //Spreads consecutive ids over the partitions
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    //Starts a file of the report, e.g. a csv writer that has already written the header
+    @FunctionalInterface
+    public interface WriterOpener<W extends CountingWriter> {
+        W open(WritableByteChannel channel) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RowWriter<W> {
+        void write(W writer, int row) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface RecordsWriter<W> {
+        void write(W writer) throws IOException;
+    }
+
+    private final Path outDirectory;
+    private final OutputOptions options;
+
+    public ReportOutput(final Path outDirectory, final OutputOptions options) {
+        this.outDirectory = outDirectory;
+        this.options = options;
+    }
+
+    //Rows are written from 0 to rowCount - 1. Hash parts are written concurrently, each with its own row writer, and keyOfRow
+    //is what hash partitioning looks at. Range parts are written one after the other
+    public File write(final String fileName, final String header, final int rowCount, final IntToLongFunction keyOfRow, final Supplier<RowWriter<CsvWriter>> rowWriters) throws IOException {
+        return write(fileName, csv(header), rowCount, keyOfRow, rowWriters);
+    }
+
+    //Records that come in a single pass, like the ones written while the input is read, always go to a single file
+    public File write(final String fileName, final String header, final RecordsWriter<CsvWriter> records) throws IOException {
+        return write(fileName, csv(header), records);
+    }
+
+    //Same, for any kind of file
+    public <W extends CountingWriter> File write(final String fileName, final WriterOpener<W> opener, final int rowCount, final IntToLongFunction keyOfRow, final Supplier<RowWriter<W>> rowWriters) throws IOException {
+        if (!options.isPartitioned()) {
+            final RowWriter<W> rowWriter = rowWriters.get();
+            return write(fileName, opener, writer -> {
+                for (int row = 0; row < rowCount; row++) {
+                    rowWriter.write(writer, row);
+                }
+            });
+        }
+        return writePartitioned(fileName, opener, rowCount, keyOfRow, rowWriters);
+    }
+
+    public <W extends CountingWriter> File write(final String fileName, final WriterOpener<W> opener, final RecordsWriter<W> records) throws IOException {
+        final Path target = outDirectory.resolve(withCompression(fileName));
+        final Path staging = Files.createTempFile(outDirectory, "." + fileName, TEMPORARY_EXTENSION);
+
+        try {
+            writeFile(staging, opener, records);
+            publish(staging, target);
+        } finally {
+            Files.deleteIfExists(staging);
+        }
+
+        return target.toFile();
+    }
+
+    //The part a key goes to with hash partitioning
+    public static int partitionOf(final long key, final int partitions) {
+        return (int) (((key * HASH_MULTIPLIER) >>> 1) % partitions);
+    }
+
+    //Of the report file, or of all its parts
+    public static long sizeOf(final File report) throws IOException {
+        if (!report.isDirectory()) {
+            return report.length();
+        }
+        try (Stream<Path> parts = Files.list(report.toPath())) {
+            return parts.mapToLong(part -> part.toFile().length()).sum();
+        }
+    }
+
+    private static WriterOpener<CsvWriter> csv(final String header) {
+        return channel -> new CsvWriter(channel, CsvWriter.DEFAULT_BUFFER_SIZE).writeHeader(header);
+    }
+
+    //Parts keep the extension of the report: report.csv is written as report/part-00000-of-00004.csv and so on
+    private <W extends CountingWriter> File writePartitioned(final String fileName, final WriterOpener<W> opener, final int rowCount, final IntToLongFunction keyOfRow, final Supplier<RowWriter<W>> rowWriters) throws IOException {
+        final int extensionStart = fileName.lastIndexOf('.');
+        final String reportName = extensionStart > 0 ? fileName.substring(0, extensionStart) : fileName;
+        final String extension = withCompression(extensionStart > 0 ? fileName.substring(extensionStart) : "");
+
+        final Path target = outDirectory.resolve(reportName);
+        final Path staging = Files.createTempDirectory(outDirectory, "." + reportName);
+        boolean published = false;
+
+        try {
+            if (options.getPartitioning() == OutputOptions.Partitioning.HASH) {
+                writeHashParts(target, staging, extension, opener, rowCount, keyOfRow, rowWriters);
+            } else {
+                writeRangeParts(staging, extension, opener, rowCount, rowWriters.get());
+            }
+
+            publish(staging, target);
+            published = true;
+            return target.toFile();
+        } finally {
+            if (!published) {
+                deleteIfExists(staging);
+            }
+        }
+    }
+
+    private <W extends CountingWriter> void writeHashParts(final Path target, final Path staging, final String extension, final WriterOpener<W> opener, final int rowCount, final IntToLongFunction keyOfRow, final Supplier<RowWriter<W>> rowWriters) throws IOException {
+        final int partitions = options.getPartitions();
+        final int[] partStarts = new int[partitions + 1];
+        final int[] rowsByPart = bucketRows(rowCount, keyOfRow, partStarts);
+        final ForkJoinPool pool = new ForkJoinPool(partitions);
+
+        try {
+            final List<ForkJoinTask<Void>> parts = new ArrayList<>();
+            for (int part = 0; part < partitions; part++) {
+                final int partition = part;
+                final Path partFile = staging.resolve(String.format(PART_NAME, partition, partitions) + extension);
+                parts.add(pool.submit(() -> {
+                    writeFile(partFile, opener, writer -> writeHashPart(writer, rowsByPart, partStarts[partition], partStarts[partition + 1], rowWriters.get()));
+                    return null;
+                }));
+            }
+            for (ForkJoinTask<Void> part : parts) {
+                part.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + target, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not write " + target, e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    //Counting sort of the rows by partition, so each part only goes through its own rows: the rows of partition p are
+    //rowsByPart[partStarts[p], partStarts[p + 1]), still in row order
+    private int[] bucketRows(final int rowCount, final IntToLongFunction keyOfRow, final int[] partStarts) {
+        final int partitions = options.getPartitions();
+        final int[] partitionOfRow = new int[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            partitionOfRow[row] = partitionOf(keyOfRow.applyAsLong(row), partitions);
+            partStarts[partitionOfRow[row] + 1]++;
+        }
+        for (int partition = 0; partition < partitions; partition++) {
+            partStarts[partition + 1] += partStarts[partition];
+        }
+
+        final int[] rowsByPart = new int[rowCount];
+        final int[] nextPosition = Arrays.copyOf(partStarts, partitions);
+        for (int row = 0; row < rowCount; row++) {
+            rowsByPart[nextPosition[partitionOfRow[row]]++] = row;
+        }
+        return rowsByPart;
+    }
+
+    private <W> void writeHashPart(final W writer, final int[] rowsByPart, final int start, final int end, final RowWriter<W> rowWriter) throws IOException {
+        for (int position = start; position < end; position++) {
+            rowWriter.write(writer, rowsByPart[position]);
+        }
+    }
+
+    //Rows go to a part until its writer has taken the part size, then to the next one. As the part count is only known
+    //at the end, parts are renamed to part-NNNNN-of-NNNNN once all are written
+    private <W extends CountingWriter> void writeRangeParts(final Path staging, final String extension, final WriterOpener<W> opener, final int rowCount, final RowWriter<W> rowWriter) throws IOException {
+        final long partBytes = options.getPartBytes();
+        final int[] nextRow = {0};
+        int parts = 0;
+
+        do {
+            //At least a row per part, even if the header alone already fills it
+            final int firstRow = nextRow[0];
+            writeFile(staging.resolve(String.format(UNCOUNTED_PART_NAME, parts) + extension), opener, writer -> {
+                while (nextRow[0] < rowCount && (nextRow[0] == firstRow || writer.getBytesWritten() < partBytes)) {
+                    rowWriter.write(writer, nextRow[0]++);
+                }
+            });
+            parts++;
+        } while (nextRow[0] < rowCount);
+
+        for (int part = 0; part < parts; part++) {
+            Files.move(
+                    staging.resolve(String.format(UNCOUNTED_PART_NAME, part) + extension),
+                    staging.resolve(String.format(PART_NAME, part, parts) + extension)
+            );
+        }
+    }
+
+    private <W extends CountingWriter> void writeFile(final Path file, final WriterOpener<W> opener, final RecordsWriter<W> records) throws IOException {
+        final WritableByteChannel channel = openChannel(FileChannel.open(file, CREATE, WRITE, TRUNCATE_EXISTING));
+        final W writer;
+        try {
+            writer = opener.open(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+
+        try (W opened = writer) {
+            records.write(opened);
+        }
+    }
+
+    private WritableByteChannel openChannel(final FileChannel file) throws IOException {
+        if (!options.isGzip()) {
+            return file;
+        }
+
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(file), GZIP_BUFFER_SIZE));
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private String withCompression(final String fileName) {
+        return options.isGzip() ? fileName + InputSource.GZIP_EXTENSION : fileName;
+    }
+
+    //A partitioned report is published by pointing the report name to its staging directory: a symbolic link to it is
+    //renamed over the previous one, so there is always a complete report under that name. The version it replaces is
+    //kept (and linked from .<report>.previous) until the next one is published, so a reader that got to it just before
+    //the swap can still read all its parts.
+    //A report that is a plain directory (written where symbolic links can't be made) is moved away first instead,
+    //as a directory can't be renamed over another one, which leaves a moment without the report
+    private void publish(final Path staging, final Path target) throws IOException {
+        final Path previousLink = outDirectory.resolve("." + target.getFileName() + PREVIOUS_EXTENSION);
+        final Path previousVersion = versionLinkedBy(target, target);
+        final Path olderVersion = versionLinkedBy(previousLink, target);
+        final Path previousDirectory = Files.isDirectory(target, LinkOption.NOFOLLOW_LINKS)
+                ? outDirectory.resolve("." + target.getFileName() + ".old" + System.nanoTime())
+                : null;
+        if (previousDirectory != null) {
+            move(target, previousDirectory);
+        }
+
+        final Path link = Files.isDirectory(staging) ? linkTo(staging) : null;
+        move(link != null ? link : staging, target);
+
+        final Path linkToPrevious = previousVersion != null ? linkTo(previousVersion) : null;
+        if (linkToPrevious != null) {
+            move(linkToPrevious, previousLink);
+        } else {
+            Files.deleteIfExists(previousLink);
+        }
+        if (olderVersion != null && !olderVersion.equals(previousVersion)) {
+            deleteIfExists(olderVersion);
+        }
+        if (previousDirectory != null) {
+            deleteIfExists(previousDirectory);
+        }
+    }
+
+    //Null unless the link points to a version this class wrote, so what a link made by someone else points to is never deleted
+    private Path versionLinkedBy(final Path link, final Path target) throws IOException {
+        if (!Files.isSymbolicLink(link)) {
+            return null;
+        }
+        final Path version = outDirectory.resolve(Files.readSymbolicLink(link)).normalize();
+        return outDirectory.equals(version.getParent()) && version.getFileName().toString().startsWith("." + target.getFileName()) ? version : null;
+    }
+
+    //Null if symbolic links can't be made here, then the directory itself is published
+    private Path linkTo(final Path directory) throws IOException {
+        final Path link = outDirectory.resolve(directory.getFileName() + LINK_EXTENSION + System.nanoTime());
+        try {
+            //Relative, so the out directory can be moved around
+            return Files.createSymbolicLink(link, directory.getFileName());
+        } catch (UnsupportedOperationException | IOException noLinks) {
+            Files.deleteIfExists(link);
+            return null;
+        }
+    }
+
+    private static void move(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteIfExists(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> contents = Files.walk(path)) {
+            for (Path content : (Iterable<Path>) contents.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(content);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package utils;
+
+import structures.LongMoneyMap;
+
+import java.util.Arrays;
+
+//The k biggest spenders of the ranking, kept in flat arrays like RankingRows. A min heap of slots has the smallest kept
+//total at its root, so a customer is only copied in when it beats it, and nothing is allocated per customer offered
+public class TopRankingRows {
+
+    //Don't preallocate huge arrays for a k that is just "everything"
+    private static final int MAX_INITIAL_CAPACITY = 1 << 16;
+
+    private final LongMoneyMap totals;
+    private final int k;
+
+    private long[] customerIds;
+    private String[] firstNames;
+    private String[] lastNames;
+    private int[] totalIndexes;
+    //Slots, the one ranked last at the root
+    private int[] heap;
+    private int size = 0;
+
+    public TopRankingRows(final LongMoneyMap totals, final int k) {
+        this.totals = totals;
+        this.k = k;
+        allocate(Math.max(1, Math.min(k, MAX_INITIAL_CAPACITY)));
+    }
+
+    public void add(final long customerId, final String firstName, final String lastName, final int totalIndex) {
+        if (size < k) {
+            if (size == heap.length) {
+                allocate(size * 2);
+            }
+            set(size, customerId, firstName, lastName, totalIndex);
+            heap[size] = size;
+            siftUp(size++);
+        } else if (k > 0 && rankedBefore(customerId, totalIndex, heap[0])) {
+            //The slot of the last one is reused
+            set(heap[0], customerId, firstName, lastName, totalIndex);
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Biggest total first, ties broken by customer id
+    public RankingRows toRankingRows() {
+        final RankingRows ranking = new RankingRows(totals);
+        for (int slot = 0; slot < size; slot++) {
+            ranking.add(customerIds[slot], firstNames[slot], lastNames[slot], totalIndexes[slot]);
+        }
+        ranking.sortByTotal();
+        return ranking;
+    }
+
+    private boolean rankedBefore(final long customerId, final int totalIndex, final int slot) {
+        final int byTotal = totals.compareAt(totalIndexes[slot], totalIndex);
+        return byTotal != 0 ? byTotal < 0 : customerId < customerIds[slot];
+    }
+
+    private void siftUp(final int start) {
+        int position = start;
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (!rankedBefore(customerIds[heap[parent]], totalIndexes[heap[parent]], heap[position])) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(final int start) {
+        int position = start;
+        while (true) {
+            final int left = 2 * position + 1;
+            if (left >= size) {
+                break;
+            }
+            final int right = left + 1;
+            //The child ranked last goes up
+            final int last = right < size && rankedBefore(customerIds[heap[left]], totalIndexes[heap[left]], heap[right]) ? right : left;
+            if (!rankedBefore(customerIds[heap[position]], totalIndexes[heap[position]], heap[last])) {
+                break;
+            }
+            swap(position, last);
+            position = last;
+        }
+    }
+
+    private void swap(final int position, final int otherPosition) {
+        final int slot = heap[position];
+        heap[position] = heap[otherPosition];
+        heap[otherPosition] = slot;
+    }
+
+    private void set(final int slot, final long customerId, final String firstName, final String lastName, final int totalIndex) {
+        customerIds[slot] = customerId;
+        firstNames[slot] = firstName;
+        lastNames[slot] = lastName;
+        totalIndexes[slot] = totalIndex;
+    }
+
+    private void allocate(final int capacity) {
+        customerIds = customerIds == null ? new long[capacity] : Arrays.copyOf(customerIds, capacity);
+        firstNames = firstNames == null ? new String[capacity] : Arrays.copyOf(firstNames, capacity);
+        lastNames = lastNames == null ? new String[capacity] : Arrays.copyOf(lastNames, capacity);
+        totalIndexes = totalIndexes == null ? new int[capacity] : Arrays.copyOf(totalIndexes, capacity);
+        heap = heap == null ? new int[capacity] : Arrays.copyOf(heap, capacity);
+    }
+}
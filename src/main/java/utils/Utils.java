@@ -3,14 +3,19 @@ package utils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -37,6 +42,117 @@ public class Utils {
         return Long.parseLong(splittedLine.get(1));
     }
 
+    //The columnar cache isn't text, its files are tokenized memory mapped when building it
+    public static CsvTokenizer openTokenizer(final File file, final ReadMode readMode) throws IOException {
+        switch (readMode) {
+            case MEMORY_MAPPED:
+            case COLUMNAR_CACHE:
+                return new MappedCsvTokenizer(file);
+            case BUFFERED_READER:
+            default:
+                return new ReaderCsvTokenizer(new FileReader(file));
+        }
+    }
+
+    //Sources that aren't plain files can only be streamed, whatever the read mode
+    public static CsvTokenizer openTokenizer(final InputSource source, final ReadMode readMode) throws IOException {
+        if (source.getFile() == null) {
+            return new ReaderCsvTokenizer(new InputStreamReader(source.open(), UTF_8));
+        }
+        return openTokenizer(source.getFile(), readMode);
+    }
+
+    public static void forEachOrder(final File orders, final ReadMode readMode, final OrderRecordConsumer consumer) throws IOException {
+        forEachOrder(InputSource.of(orders), readMode, consumer);
+    }
+
+    public static void forEachOrder(final InputSource orders, final ReadMode readMode, final OrderRecordConsumer consumer) throws IOException {
+        if (readMode == ReadMode.COLUMNAR_CACHE && orders.getFile() != null) {
+            ColumnarCache.forEachOrder(orders.getFile(), consumer);
+            return;
+        }
+
+        try (CsvTokenizer tokenizer = openTokenizer(orders, readMode)) {
+            //Header
+            tokenizer.endRecord();
+
+            forEachOrder(tokenizer, consumer);
+        }
+    }
+
+    //Reads order records until the tokenizer runs out, it's up to the caller to skip the header if there is one
+    public static void forEachOrder(final CsvTokenizer tokenizer, final OrderRecordConsumer consumer) throws IOException {
+        long[] products = new long[16];
+        while (tokenizer.hasNextRecord()) {
+            final long orderId = tokenizer.nextLong();
+            final long customerId = tokenizer.nextLong();
+
+            int productCount = 0;
+            while (tokenizer.hasNextValue()) {
+                if (productCount == products.length) {
+                    products = Arrays.copyOf(products, productCount * 2);
+                }
+                products[productCount++] = tokenizer.nextLong();
+            }
+            tokenizer.endRecord();
+
+            consumer.accept(orderId, customerId, products, productCount);
+        }
+    }
+
+    public static void forEachProductPrice(final File products, final ReadMode readMode, final ProductPriceConsumer consumer) throws IOException {
+        forEachProductPrice(InputSource.of(products), readMode, consumer);
+    }
+
+    public static void forEachProductPrice(final InputSource products, final ReadMode readMode, final ProductPriceConsumer consumer) throws IOException {
+        if (readMode == ReadMode.COLUMNAR_CACHE && products.getFile() != null) {
+            ColumnarCache.forEachProductPrice(products.getFile(), consumer);
+            return;
+        }
+
+        try (CsvTokenizer tokenizer = openTokenizer(products, readMode)) {
+            //Header
+            tokenizer.endRecord();
+
+            while (tokenizer.hasNextRecord()) {
+                final long productId = tokenizer.nextLong();
+                //Name
+                tokenizer.skipField();
+                final BigDecimal price = tokenizer.nextDecimal();
+                tokenizer.endRecord();
+
+                consumer.accept(productId, price);
+            }
+        }
+    }
+
+    //Names are only read for the customers that pass the filter
+    public static void forEachCustomer(final File customers, final ReadMode readMode, final LongPredicate customerFilter, final CustomerRecordConsumer consumer) throws IOException {
+        forEachCustomer(InputSource.of(customers), readMode, customerFilter, consumer);
+    }
+
+    public static void forEachCustomer(final InputSource customers, final ReadMode readMode, final LongPredicate customerFilter, final CustomerRecordConsumer consumer) throws IOException {
+        if (readMode == ReadMode.COLUMNAR_CACHE && customers.getFile() != null) {
+            ColumnarCache.forEachCustomer(customers.getFile(), customerFilter, consumer);
+            return;
+        }
+
+        try (CsvTokenizer tokenizer = openTokenizer(customers, readMode)) {
+            //Header
+            tokenizer.endRecord();
+
+            while (tokenizer.hasNextRecord()) {
+                final long customerId = tokenizer.nextLong();
+                if (customerFilter.test(customerId)) {
+                    final String firstName = tokenizer.nextField();
+                    final String lastName = tokenizer.nextField();
+                    consumer.accept(customerId, firstName, lastName);
+                }
+                tokenizer.endRecord();
+            }
+        }
+    }
+
     public static <T, U extends Comparable<U>> List<Pair<T, U>> sortByValue(final Map<T, U> mapToSortByValue) {
         return mapToSortByValue.entrySet()
                 .stream()
@@ -62,25 +178,20 @@ public class Utils {
     }
 
     public static File writeCsv(String header, String fileName, List<List<Object>> contents, Path outDirectory) throws IOException {
-        final File file = outDirectory.resolve(fileName).toFile();
-
-        final FileWriter fileWriter = new FileWriter(file);
-
-        fileWriter.append(header).append(System.lineSeparator());
-
-        //Can't use streams because File RecordWriter has checked exceptions and becomes ugly
-        for (List<Object> record : contents) {
-            fileWriter.append(generateCsvRecord(record)).append(System.lineSeparator());
-        }
-
-        fileWriter.close();
-
-        return file;
+        return writeCsv(header, fileName, contents.stream(), outDirectory);
     }
 
-    private static String generateCsvRecord(List<Object> record) {
-        return record.stream()
-                .map(Object::toString)
-                .collect(Collectors.joining(","));
+    //Records are pulled from the stream one by one, so a lazy stream is never fully held in memory
+    public static File writeCsv(String header, String fileName, Stream<List<Object>> contents, Path outDirectory) throws IOException {
+        return new ReportOutput(outDirectory, OutputOptions.PLAIN).write(fileName, header, writer -> {
+            //Can't use streams because File RecordWriter has checked exceptions and becomes ugly
+            final Iterator<List<Object>> records = contents.iterator();
+            while (records.hasNext()) {
+                for (Object value : records.next()) {
+                    writer.field(value);
+                }
+                writer.endRecord();
+            }
+        });
     }
 }
@@ -0,0 +1,71 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+//Reads what VarintWriter writes, from any stream, through its own buffer
+public class VarintReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SHIFT = 63;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+
+    public VarintReader(final InputStream input) {
+        this.input = input;
+    }
+
+    public boolean hasMore() throws IOException {
+        return position < limit || fill();
+    }
+
+    public long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift <= MAX_SHIFT; shift += 7) {
+            final int next = readByte();
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint longer than 10 bytes");
+    }
+
+    public long readSignedVarint() throws IOException {
+        final long encoded = readVarint();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    public void readBytes(final byte[] bytes) throws IOException {
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] = (byte) readByte();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private int readByte() throws IOException {
+        if (position == limit && !fill()) {
+            throw new EOFException("Varint cut short");
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        final int read = input.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+package utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+//Writes unsigned LEB128 varints (7 bits per byte, low bits first) into a reusable buffer flushed to a channel when full
+public class VarintWriter implements CountingWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    //A long takes at most 10 bytes
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long flushedBytes = 0;
+
+    public VarintWriter(final WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public VarintWriter(final WritableByteChannel channel, final int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(Math.max(bufferSize, MAX_VARINT_LENGTH));
+    }
+
+    //The value is taken as unsigned, so small non negative values are the short ones
+    public VarintWriter writeVarint(final long value) throws IOException {
+        ensureCapacity(MAX_VARINT_LENGTH);
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            buffer.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        buffer.put((byte) remaining);
+        return this;
+    }
+
+    //Zig zag encoded first, so values close to zero are short whatever their sign
+    public VarintWriter writeSignedVarint(final long value) throws IOException {
+        return writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    public VarintWriter writeBytes(final byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureCapacity(1);
+            final int length = Math.min(bytes.length - offset, buffer.remaining());
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    //What reaches the channel once flushed, so it grows with every value and not only with every flush
+    @Override
+    public long getBytesWritten() {
+        return flushedBytes + buffer.position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensureCapacity(final int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        flushedBytes += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,12 +1,16 @@
 package calculators;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import utils.ReadMode;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.contentOf;
@@ -17,11 +21,15 @@ class CustomerRankingCalculatorShould {
     private final static String ORDERS_CSV = "orders.csv";
     private final static String PRODUCTS_CSV = "products.csv";
     private final static String RESULT_CSV = "result.csv";
+    private final static String CUSTOMER_RANKING_CSV = "customer_ranking.csv";
 
     private static final String TASK = "customerRanking";
 
     private final static Path OUT_DIRECTORY = Paths.get(".");
 
+    //Small enough to spill a run every few customers
+    private final static long TINY_MEMORY_BUDGET = 512;
+
     @ParameterizedTest
     @ValueSource(strings = {
             "whenThereAreNoOrdersTheCustomerRankingWillHaveNoRecords",
@@ -41,6 +49,118 @@ class CustomerRankingCalculatorShould {
                 .isEqualToIgnoringNewLines(contentOf(expected));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersTheCustomerRankingWillHaveNoRecords",
+            "whenThereIsASingleOrderCustomerRankingWillBringThatCustomerWithOrderPrice",
+            "whenThereAreMultipleOrdersForTheSameCustomerItWillBringTheSumOfTheOrderCostsForTheCustomer",
+            "whenThereAreMultipleOrderFromMultiplePeopleItGetsItsExpendingTotalsRightAndOrdersThemDescending"
+    })
+    void customerRankingCalculatorBringsExpectedResultWhenMemoryMapped(String testCase) throws IOException {
+        //Given
+        final CustomerRankingCalculator customerRankingCalculator = buildCalculator(testCase, ReadMode.MEMORY_MAPPED);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = customerRankingCalculator.calculateCustomerRanking();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersTheCustomerRankingWillHaveNoRecords",
+            "whenThereIsASingleOrderCustomerRankingWillBringThatCustomerWithOrderPrice",
+            "whenThereAreMultipleOrdersForTheSameCustomerItWillBringTheSumOfTheOrderCostsForTheCustomer",
+            "whenThereAreMultipleOrderFromMultiplePeopleItGetsItsExpendingTotalsRightAndOrdersThemDescending"
+    })
+    void customerRankingCalculatorBringsExpectedResultWhenReadFromTheColumnarCache(String testCase) throws IOException {
+        //Given
+        final CustomerRankingCalculator customerRankingCalculator = buildCalculator(testCase, ReadMode.COLUMNAR_CACHE);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = customerRankingCalculator.calculateCustomerRanking();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersTheCustomerRankingWillHaveNoRecords",
+            "whenThereIsASingleOrderCustomerRankingWillBringThatCustomerWithOrderPrice",
+            "whenThereAreMultipleOrdersForTheSameCustomerItWillBringTheSumOfTheOrderCostsForTheCustomer",
+            "whenThereAreMultipleOrderFromMultiplePeopleItGetsItsExpendingTotalsRightAndOrdersThemDescending"
+    })
+    void topCustomerRankingBringsEveryCustomerWhenThereAreLessThanK(String testCase) throws IOException {
+        //Given
+        final CustomerRankingCalculator customerRankingCalculator = buildCalculator(testCase);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = customerRankingCalculator.calculateTopCustomerRanking(100);
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersTheCustomerRankingWillHaveNoRecords",
+            "whenThereIsASingleOrderCustomerRankingWillBringThatCustomerWithOrderPrice",
+            "whenThereAreMultipleOrdersForTheSameCustomerItWillBringTheSumOfTheOrderCostsForTheCustomer",
+            "whenThereAreMultipleOrderFromMultiplePeopleItGetsItsExpendingTotalsRightAndOrdersThemDescending"
+    })
+    void customerRankingCalculatorBringsExpectedResultWhenSortedExternally(String testCase) throws IOException {
+        //Given
+        final CustomerRankingCalculator customerRankingCalculator = buildCalculator(testCase, TINY_MEMORY_BUDGET);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = customerRankingCalculator.calculateCustomerRanking();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @Test
+    void externallySortedRankingSpillingManyRunsBringsTheFullRanking() throws IOException {
+        //Given
+        final CustomerRankingCalculator customerRankingCalculator = new CustomerRankingCalculator(
+                getResourceFileOriginal(CUSTOMERS_CSV),
+                getResourceFileOriginal(PRODUCTS_CSV),
+                getResourceFileOriginal(ORDERS_CSV),
+                OUT_DIRECTORY,
+                ReadMode.BUFFERED_READER,
+                TINY_MEMORY_BUDGET
+        );
+        final File expected = getResourceFileOriginal(CUSTOMER_RANKING_CSV);
+        //When
+        final File result = customerRankingCalculator.calculateCustomerRanking();
+        //Then
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @Test
+    void topCustomerRankingBringsTheFirstKLinesOfTheFullRanking() throws IOException {
+        //Given
+        final int k = 5;
+        final CustomerRankingCalculator customerRankingCalculator = new CustomerRankingCalculator(
+                getResourceFileOriginal(CUSTOMERS_CSV),
+                getResourceFileOriginal(PRODUCTS_CSV),
+                getResourceFileOriginal(ORDERS_CSV),
+                OUT_DIRECTORY
+        );
+        final List<String> expected = Files.readAllLines(getResourceFileOriginal(CUSTOMER_RANKING_CSV).toPath()).subList(0, k + 1);
+        //When
+        final File result = customerRankingCalculator.calculateTopCustomerRanking(k);
+        //Then
+        assertThat(Files.readAllLines(result.toPath())).isEqualTo(expected);
+    }
+
     //Task
     private File getResourceFile(final String testName, final String fileName) {
 
@@ -49,10 +169,25 @@ class CustomerRankingCalculatorShould {
         return new File(getClass().getResource(pathToFile).getFile());
     }
 
+    private File getResourceFileOriginal(final String fileName) {
+
+        final String pathToFile = "/originals/" + fileName;
+
+        return new File(getClass().getResource(pathToFile).getFile());
+    }
+
     private CustomerRankingCalculator buildCalculator(final String testName) {
         return new CustomerRankingCalculator(getCustomers(testName), getProducts(testName), getOrders(testName), OUT_DIRECTORY);
     }
 
+    private CustomerRankingCalculator buildCalculator(final String testName, final ReadMode readMode) {
+        return new CustomerRankingCalculator(getCustomers(testName), getProducts(testName), getOrders(testName), OUT_DIRECTORY, readMode);
+    }
+
+    private CustomerRankingCalculator buildCalculator(final String testName, final long rankingMemoryBudget) {
+        return new CustomerRankingCalculator(getCustomers(testName), getProducts(testName), getOrders(testName), OUT_DIRECTORY, ReadMode.BUFFERED_READER, rankingMemoryBudget);
+    }
+
     private File getCustomers(final String testName) {
         return getResourceFile(testName, CUSTOMERS_CSV);
     }
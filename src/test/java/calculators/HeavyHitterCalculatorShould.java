@@ -0,0 +1,114 @@
+package calculators;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HeavyHitterCalculatorShould {
+
+    private static final String ORDERS_HEADER = "id,customer,products";
+
+    @Test
+    void countTopProductsByUnitsAndTopCustomersByOrdersExactly(@TempDir final Path directory) throws IOException {
+        //Given
+        final File orders = writeOrders(directory, Arrays.asList("0,0,0 1", "1,1,0 2 2 5", "2,2,5", "3,1,4 0 1"));
+        final HeavyHitterCalculator calculator = new HeavyHitterCalculator(orders, directory, 3);
+        calculator.setMode(HeavyHitterCalculator.Mode.EXACT);
+        //When
+        final List<File> result = calculator.calculateHeavyHitters();
+        //Then
+        assertThat(Files.readAllLines(result.get(0).toPath())).containsExactly("id,units,max_error", "0,3,0", "1,2,0", "2,2,0");
+        assertThat(Files.readAllLines(result.get(1).toPath())).containsExactly("id,orders,max_error", "1,2,0", "0,1,0", "2,1,0");
+    }
+
+    @Test
+    void approximateReportsAreExactWhileThereAreEnoughCounters(@TempDir final Path directory) throws IOException {
+        //Given
+        final File orders = writeSkewedOrders(directory, 5_000);
+        final HeavyHitterCalculator exact = new HeavyHitterCalculator(orders, directory.resolve("exact"), 10);
+        exact.setMode(HeavyHitterCalculator.Mode.EXACT);
+        final HeavyHitterCalculator approximate = new HeavyHitterCalculator(orders, directory.resolve("approximate"), 10);
+        approximate.setCounters(100_000);
+        Files.createDirectories(directory.resolve("exact"));
+        Files.createDirectories(directory.resolve("approximate"));
+        //When
+        final List<File> expected = exact.calculateHeavyHitters();
+        final List<File> result = approximate.calculateHeavyHitters();
+        //Then
+        assertThat(Files.readAllLines(result.get(0).toPath())).isEqualTo(Files.readAllLines(expected.get(0).toPath()));
+        assertThat(Files.readAllLines(result.get(1).toPath())).isEqualTo(Files.readAllLines(expected.get(1).toPath()));
+    }
+
+    @Test
+    void approximateReportsFindTheHeavyHittersWithinTheirErrorWithFewCounters(@TempDir final Path directory) throws IOException {
+        //Given
+        final File orders = writeSkewedOrders(directory, 50_000);
+        final HeavyHitterCalculator exact = new HeavyHitterCalculator(orders, directory.resolve("exact"), 5);
+        exact.setMode(HeavyHitterCalculator.Mode.EXACT);
+        final HeavyHitterCalculator approximate = new HeavyHitterCalculator(orders, directory.resolve("approximate"), 5);
+        approximate.setCounters(200);
+        Files.createDirectories(directory.resolve("exact"));
+        Files.createDirectories(directory.resolve("approximate"));
+        //When
+        final List<String> expected = records(exact.calculateHeavyHitters().get(0));
+        final List<String> result = records(approximate.calculateHeavyHitters().get(0));
+        //Then
+        assertThat(result).hasSameSizeAs(expected);
+        for (int row = 0; row < expected.size(); row++) {
+            final String[] expectedFields = expected.get(row).split(",");
+            final String[] fields = result.get(row).split(",");
+            final long units = Long.parseLong(fields[1]);
+            assertThat(fields[0]).isEqualTo(expectedFields[0]);
+            assertThat(Long.parseLong(expectedFields[1])).isBetween(units - Long.parseLong(fields[2]), units);
+        }
+    }
+
+    //Utils
+    private List<String> records(final File report) throws IOException {
+        final List<String> lines = Files.readAllLines(report.toPath());
+        return lines.subList(1, lines.size());
+    }
+
+    //Product p is ordered about 1 / (p + 1) as often as product 0, in orders of up to 3 products by skewed customers
+    private File writeSkewedOrders(final Path directory, final int unitsOfTheTopProduct) throws IOException {
+        final Random random = new Random(1234);
+        final List<Long> units = new ArrayList<>();
+        for (long product = 0; product < 2_000; product++) {
+            for (long unit = 0; unit < unitsOfTheTopProduct / (product + 1); unit++) {
+                units.add(product);
+            }
+        }
+        Collections.shuffle(units, random);
+
+        final List<String> lines = new ArrayList<>();
+        int next = 0;
+        for (long order = 0; next < units.size(); order++) {
+            final StringBuilder line = new StringBuilder().append(order).append(',')
+                    .append((long) (Math.pow(random.nextDouble(), 3) * 10_000)).append(',');
+            final int productCount = Math.min(1 + random.nextInt(3), units.size() - next);
+            for (int index = 0; index < productCount; index++) {
+                line.append(index > 0 ? " " : "").append(units.get(next++));
+            }
+            lines.add(line.toString());
+        }
+        return writeOrders(directory, lines);
+    }
+
+    private File writeOrders(final Path directory, final List<String> records) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        lines.add(ORDERS_HEADER);
+        lines.addAll(records);
+        return Files.write(directory.resolve("orders.csv"), lines).toFile();
+    }
+}
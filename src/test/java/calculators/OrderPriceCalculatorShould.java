@@ -2,6 +2,7 @@ package calculators;
 
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import utils.ReadMode;
 
 import java.io.File;
 import java.io.IOException;
@@ -41,6 +42,63 @@ class OrderPriceCalculatorShould {
                 .isEqualToIgnoringNewLines(contentOf(expected));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersOrderPricesWillHaveNoOrders",
+            "whenThereAreOneOrderWithOneItemGetThePriceOfThatItem",
+            "whenThereIsOneOrderWithMultipleProductsThePriceShouldBeTheSumOfPrices",
+            "whenThereIsMultipleOrdersYouGetTheSumPriceOfItsProductsForEachOrder"
+    })
+    void priceOrderIsGeneratedCorrectlyWhenStreaming(String testCase) throws IOException {
+        //Given
+        final OrderPriceCalculator orderPriceCalculator = buildCalculator(testCase);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = orderPriceCalculator.calculateOrderPricesStreaming();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersOrderPricesWillHaveNoOrders",
+            "whenThereAreOneOrderWithOneItemGetThePriceOfThatItem",
+            "whenThereIsOneOrderWithMultipleProductsThePriceShouldBeTheSumOfPrices",
+            "whenThereIsMultipleOrdersYouGetTheSumPriceOfItsProductsForEachOrder"
+    })
+    void priceOrderIsGeneratedCorrectlyWhenMemoryMapped(String testCase) throws IOException {
+        //Given
+        final OrderPriceCalculator orderPriceCalculator = buildCalculator(testCase, ReadMode.MEMORY_MAPPED);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = orderPriceCalculator.calculateOrderPrices();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersOrderPricesWillHaveNoOrders",
+            "whenThereAreOneOrderWithOneItemGetThePriceOfThatItem",
+            "whenThereIsOneOrderWithMultipleProductsThePriceShouldBeTheSumOfPrices",
+            "whenThereIsMultipleOrdersYouGetTheSumPriceOfItsProductsForEachOrder"
+    })
+    void priceOrderIsGeneratedCorrectlyWhenReadFromTheColumnarCache(String testCase) throws IOException {
+        //Given
+        final OrderPriceCalculator orderPriceCalculator = buildCalculator(testCase, ReadMode.COLUMNAR_CACHE);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = orderPriceCalculator.calculateOrderPrices();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
     //Utils
     private File getResourceFile(final String testName, final String fileName) {
 
@@ -53,6 +111,10 @@ class OrderPriceCalculatorShould {
         return new OrderPriceCalculator(getProducts(testName), getOrders(testName), OUT_DIRECTORY);
     }
 
+    private OrderPriceCalculator buildCalculator(final String testName, final ReadMode readMode) {
+        return new OrderPriceCalculator(getProducts(testName), getOrders(testName), OUT_DIRECTORY, readMode);
+    }
+
     private File getProducts(String testName) {
         return getResourceFile(testName, PRODUCTS_CSV);
     }
@@ -1,12 +1,22 @@
 package calculators;
 
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import model.DistinctCustomerSketches;
+import utils.CustomerListEncoding;
+import utils.InputSource;
+import utils.ProductCustomersBinary;
+import utils.ReadMode;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.contentOf;
@@ -40,7 +50,170 @@ class ProductCustomerCalculatorShould {
                 .isEqualToIgnoringNewLines(contentOf(expected));
     }
 
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersYouGetAProductCustomersFileWithNoRecords",
+            "whenThereIsAnOrderWithASingleProductReturnThatProductAssociatedToTheCustomer",
+            "whenThereIsAnOrderWithMultipleProductReturnThoseProductAssociatedToTheCustomer",
+            "whenThereIsMultipleOrdersWithTheSameProductReturnThatProductAssociatedToTheCustomers",
+            "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations"
+    })
+    void productCustomerCalculatorBringsExpectedResultWhenMemoryMapped(String testCase) throws IOException {
+        //Given
+        final ProductCustomerCalculator productCustomerCalculator = buildProductCustomerCalculator(testCase, ReadMode.MEMORY_MAPPED);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = productCustomerCalculator.calculateProductCustomers();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersYouGetAProductCustomersFileWithNoRecords",
+            "whenThereIsAnOrderWithASingleProductReturnThatProductAssociatedToTheCustomer",
+            "whenThereIsAnOrderWithMultipleProductReturnThoseProductAssociatedToTheCustomer",
+            "whenThereIsMultipleOrdersWithTheSameProductReturnThatProductAssociatedToTheCustomers",
+            "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations"
+    })
+    void productCustomerCalculatorBringsExpectedResultWhenReadFromTheColumnarCache(String testCase) throws IOException {
+        //Given
+        final ProductCustomerCalculator productCustomerCalculator = buildProductCustomerCalculator(testCase, ReadMode.COLUMNAR_CACHE);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = productCustomerCalculator.calculateProductCustomers();
+        //Then
+        assertThat(result).exists();
+        assertThat(contentOf(result))
+                .isEqualToIgnoringNewLines(contentOf(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersYouGetAProductCustomersFileWithNoRecords",
+            "whenThereIsAnOrderWithASingleProductReturnThatProductAssociatedToTheCustomer",
+            "whenThereIsAnOrderWithMultipleProductReturnThoseProductAssociatedToTheCustomer",
+            "whenThereIsMultipleOrdersWithTheSameProductReturnThatProductAssociatedToTheCustomers",
+            "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations"
+    })
+    void deltaEncodedTextAddsUpToTheExpectedCustomers(String testCase) throws IOException {
+        //Given
+        final ProductCustomerCalculator productCustomerCalculator = buildProductCustomerCalculator(testCase);
+        productCustomerCalculator.setCustomerListEncoding(CustomerListEncoding.DELTA_TEXT);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = productCustomerCalculator.calculateProductCustomers();
+        //Then
+        final List<String> lines = Files.readAllLines(result.toPath());
+        assertThat(lines.get(0)).isEqualTo("id,customer_id_deltas");
+        assertThat(decodeDeltas(lines.subList(1, lines.size())))
+                .isEqualTo(getExpectedRecords(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersYouGetAProductCustomersFileWithNoRecords",
+            "whenThereIsAnOrderWithASingleProductReturnThatProductAssociatedToTheCustomer",
+            "whenThereIsAnOrderWithMultipleProductReturnThoseProductAssociatedToTheCustomer",
+            "whenThereIsMultipleOrdersWithTheSameProductReturnThatProductAssociatedToTheCustomers",
+            "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations"
+    })
+    void varintDeltaEncodedBinaryDecodesToTheExpectedCustomers(String testCase) throws IOException {
+        //Given
+        final ProductCustomerCalculator productCustomerCalculator = buildProductCustomerCalculator(testCase, ReadMode.MEMORY_MAPPED);
+        productCustomerCalculator.setCustomerListEncoding(CustomerListEncoding.VARINT_DELTA);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = productCustomerCalculator.calculateProductCustomers();
+        //Then
+        final List<String> records = new ArrayList<>();
+        ProductCustomersBinary.forEach(InputSource.of(result), (productId, customers, customerCount) -> {
+            final StringBuilder record = new StringBuilder().append(productId).append(',');
+            for (int index = 0; index < customerCount; index++) {
+                record.append(index > 0 ? " " : "").append(customers[index]);
+            }
+            records.add(record.toString());
+        });
+        assertThat(result).hasName("product_customers.bin");
+        assertThat(records).isEqualTo(getExpectedRecords(expected));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "whenThereAreNoOrdersYouGetAProductCustomersFileWithNoRecords",
+            "whenThereIsAnOrderWithASingleProductReturnThatProductAssociatedToTheCustomer",
+            "whenThereIsAnOrderWithMultipleProductReturnThoseProductAssociatedToTheCustomer",
+            "whenThereIsMultipleOrdersWithTheSameProductReturnThatProductAssociatedToTheCustomers",
+            "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations"
+    })
+    void distinctCustomerEstimatesOfFewCustomersAreExact(String testCase) throws IOException {
+        //Given
+        final ProductCustomerCalculator productCustomerCalculator = buildProductCustomerCalculator(testCase);
+        final File expected = getExpected(testCase);
+        //When
+        final File result = productCustomerCalculator.calculateDistinctCustomerEstimates();
+        //Then
+        final List<String> lines = Files.readAllLines(result.toPath());
+        assertThat(lines.get(0)).isEqualTo("id,distinct_customers_estimate");
+        assertThat(lines.subList(1, lines.size())).isEqualTo(countCustomers(getExpectedRecords(expected)));
+    }
+
+    @Test
+    void distinctCustomerSketchesOfSeveralRunsMergeIntoTheSketchesOfAllOfThem(@TempDir final Path directory) throws IOException {
+        //Given
+        final String testCase = "whenThereAreMultipleOrdersWithMultipleProductsItBringsTheCorrectAssociations";
+        final List<String> orderLines = Files.readAllLines(getOrders(testCase).toPath());
+        final File firstDay = directory.resolve("first.csv").toFile();
+        final File secondDay = directory.resolve("second.csv").toFile();
+        Files.write(firstDay.toPath(), orderLines.subList(0, orderLines.size() / 2));
+        final List<String> secondDayLines = new ArrayList<>(orderLines.subList(orderLines.size() / 2, orderLines.size()));
+        secondDayLines.add(0, orderLines.get(0));
+        Files.write(secondDay.toPath(), secondDayLines);
+
+        new ProductCustomerCalculator(firstDay, directory).getDistinctCustomerSketches().write(directory.resolve("first.hll"));
+        new ProductCustomerCalculator(secondDay, directory).getDistinctCustomerSketches().write(directory.resolve("second.hll"));
+        //When
+        final DistinctCustomerSketches merged = DistinctCustomerSketches.read(directory.resolve("first.hll"));
+        merged.merge(DistinctCustomerSketches.read(directory.resolve("second.hll")));
+        final File result = new ProductCustomerCalculator(firstDay, directory).calculateDistinctCustomerEstimates(merged);
+        //Then
+        final List<String> lines = Files.readAllLines(result.toPath());
+        assertThat(lines.subList(1, lines.size())).isEqualTo(countCustomers(getExpectedRecords(getExpected(testCase))));
+    }
+
     //Utils
+    private List<String> countCustomers(final List<String> records) {
+        final List<String> counts = new ArrayList<>();
+        for (String record : records) {
+            final String[] fields = record.split(",");
+            counts.add(fields[0] + "," + fields[1].split(" ").length);
+        }
+        return counts;
+    }
+
+    private List<String> decodeDeltas(final List<String> deltaRecords) {
+        final List<String> records = new ArrayList<>();
+        for (String deltaRecord : deltaRecords) {
+            final String[] fields = deltaRecord.split(",");
+            final StringBuilder record = new StringBuilder().append(fields[0]).append(',');
+            long customer = 0;
+            final String[] deltas = fields[1].split(" ");
+            for (int index = 0; index < deltas.length; index++) {
+                customer += Long.parseLong(deltas[index]);
+                record.append(index > 0 ? " " : "").append(customer);
+            }
+            records.add(record.toString());
+        }
+        return records;
+    }
+
+    private List<String> getExpectedRecords(final File expected) throws IOException {
+        final List<String> lines = Files.readAllLines(expected.toPath());
+        return new ArrayList<>(lines.subList(1, lines.size()));
+    }
+
     private File getResourceFile(final String testName, final String fileName) {
 
         final String pathToFile = "/" + TASK + "/" + testName + "/" + fileName;
@@ -52,6 +225,10 @@ class ProductCustomerCalculatorShould {
         return new ProductCustomerCalculator(getOrders(testName), OUT_DIRECTORY);
     }
 
+    private ProductCustomerCalculator buildProductCustomerCalculator(final String testName, final ReadMode readMode) {
+        return new ProductCustomerCalculator(getOrders(testName), OUT_DIRECTORY, readMode);
+    }
+
     private File getOrders(String testName) {
         return getResourceFile(testName, ORDERS_CSV);
     }
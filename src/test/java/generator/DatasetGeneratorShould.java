@@ -0,0 +1,84 @@
+package generator;
+
+import calculators.OrderPriceCalculator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.ReadMode;
+import utils.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DatasetGeneratorShould {
+
+    private static final int SMALL_BLOCKS = 7;
+
+    @Test
+    void writeTheSameFilesForTheSameSeedWhateverTheParallelism(@TempDir final Path directory) throws IOException {
+        //Given
+        final Path sequential = Files.createDirectory(directory.resolve("sequential"));
+        final Path parallel = Files.createDirectory(directory.resolve("parallel"));
+        //When
+        generator(42, 1).generate(sequential);
+        generator(42, 4).generate(parallel);
+        //Then
+        for (String file : new String[]{DatasetGenerator.CUSTOMERS_CSV, DatasetGenerator.PRODUCTS_CSV, DatasetGenerator.ORDERS_CSV}) {
+            assertThat(sequential.resolve(file)).hasSameContentAs(parallel.resolve(file));
+        }
+    }
+
+    @Test
+    void writeFilesTheCalculatorsCanRead(@TempDir final Path directory) throws IOException {
+        //Given
+        generator(7, 3).generate(directory);
+        final File orders = directory.resolve(DatasetGenerator.ORDERS_CSV).toFile();
+        final AtomicLong orderCount = new AtomicLong();
+        final AtomicLong unknownReferences = new AtomicLong();
+        //When
+        Utils.forEachOrder(orders, ReadMode.MEMORY_MAPPED, (orderId, customer, products, productCount) -> {
+            orderCount.incrementAndGet();
+            if (customer >= 20) {
+                unknownReferences.incrementAndGet();
+            }
+            for (int index = 0; index < productCount; index++) {
+                if (products[index] >= 10) {
+                    unknownReferences.incrementAndGet();
+                }
+            }
+        });
+        final File orderPrices = new OrderPriceCalculator(directory.resolve(DatasetGenerator.PRODUCTS_CSV).toFile(), orders, directory)
+                .calculateOrderPrices();
+        //Then
+        assertThat(orderCount.get()).isEqualTo(100);
+        assertThat(unknownReferences.get()).isZero();
+        assertThat(Files.readAllLines(orderPrices.toPath())).hasSize(101);
+    }
+
+    @Test
+    void sampleTheFirstRanksMoreOftenTheBiggerTheSkew() {
+        //Given
+        final ZipfSampler sampler = new ZipfSampler(1_000_000, 1.0);
+        final SplittableRandom random = new SplittableRandom(1);
+        final long[] counts = new long[3];
+        //When
+        for (int sample = 0; sample < 100_000; sample++) {
+            final long rank = sampler.sample(random);
+            assertThat(rank).isBetween(1L, 1_000_000L);
+            if (rank <= 2) {
+                counts[(int) rank]++;
+            }
+        }
+        //Then: with an exponent of 1, rank 1 is about twice as likely as rank 2
+        assertThat((double) counts[1] / counts[2]).isBetween(1.8, 2.2);
+    }
+
+    private DatasetGenerator generator(final long seed, final int parallelism) {
+        return new DatasetGenerator(20, 10, 100, 5, 1.2, 0.8, 2, seed, parallelism, SMALL_BLOCKS);
+    }
+}
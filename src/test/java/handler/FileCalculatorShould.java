@@ -3,18 +3,49 @@ package handler;
 import calculators.CustomerRankingCalculator;
 import calculators.OrderPriceCalculator;
 import calculators.ProductCustomerCalculator;
+import model.IngestedOrders;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import utils.InputSource;
+import utils.OutputOptions;
+import utils.ReadMode;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.contentOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class FileCalculatorShould {
 
@@ -124,6 +155,435 @@ class FileCalculatorShould {
                 .isEqualToIgnoringNewLines(contentOf(expected));
     }
 
+    //Shared ingestion
+    @Test
+    void fileCalculatorSharedIngestionBringsTheSameReportsAsEachCalculator() throws IOException {
+        //Given
+        File products = getResourceFileOriginal(PRODUCTS_CSV);
+        File customers = getResourceFileOriginal(CUSTOMERS_CSV);
+        File orders = getResourceFileOriginal(ORDERS_CSV);
+
+        FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, OUT_DIRECTORY),
+                new ProductCustomerCalculator(orders, OUT_DIRECTORY),
+                new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY),
+                new SharedIngestion(products, orders)
+        );
+        //When
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertOriginalReports(results);
+    }
+
+    @Test
+    void sharedIngestionInParallelBringsTheSameReportsAsTheSequentialOne() throws IOException {
+        //Given
+        File products = getResourceFileOriginal(PRODUCTS_CSV);
+        File customers = getResourceFileOriginal(CUSTOMERS_CSV);
+        File orders = getResourceFileOriginal(ORDERS_CSV);
+
+        FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, OUT_DIRECTORY),
+                new ProductCustomerCalculator(orders, OUT_DIRECTORY),
+                new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY),
+                new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4)
+        );
+        //When
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertOriginalReports(results);
+    }
+
+    @Test
+    void sharedIngestionReadsOrdersAndProductsOnlyOnce() throws IOException {
+        //Given
+        final CountingSource products = new CountingSource(getResourceFileOriginal(PRODUCTS_CSV));
+        final CountingSource customers = new CountingSource(getResourceFileOriginal(CUSTOMERS_CSV));
+        final CountingSource orders = new CountingSource(getResourceFileOriginal(ORDERS_CSV));
+
+        final OrderPriceCalculator orderPriceCalculator = spy(new OrderPriceCalculator(products.source, orders.source, OUT_DIRECTORY, ReadMode.BUFFERED_READER));
+        final ProductCustomerCalculator productCustomerCalculator = spy(new ProductCustomerCalculator(orders.source, OUT_DIRECTORY, ReadMode.BUFFERED_READER));
+        final CustomerRankingCalculator customerRankingCalculator = spy(new CustomerRankingCalculator(customers.source, products.source, orders.source, OUT_DIRECTORY, ReadMode.BUFFERED_READER));
+        final FileCalculator fileCalculator = new FileCalculator(
+                orderPriceCalculator,
+                productCustomerCalculator,
+                customerRankingCalculator,
+                new SharedIngestion(products.source, orders.source, ReadMode.BUFFERED_READER, 1, null)
+        );
+        //When
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertOriginalReports(results);
+        verify(orderPriceCalculator, never()).calculateOrderPrices();
+        verify(productCustomerCalculator, never()).calculateProductCustomers();
+        verify(customerRankingCalculator, never()).calculateCustomerRanking();
+        assertThat(products.opens).hasValue(1);
+        assertThat(products.bytesRead).hasValue(products.length);
+        assertThat(orders.opens).hasValue(1);
+        assertThat(orders.bytesRead).hasValue(orders.length);
+        assertThat(customers.opens).hasValue(1);
+    }
+
+    //Concurrent reports
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void concurrentReportsBringTheSameReportsAsTheSequentialOnes(final boolean sharedIngestion) throws IOException {
+        //Given
+        File products = getResourceFileOriginal(PRODUCTS_CSV);
+        File customers = getResourceFileOriginal(CUSTOMERS_CSV);
+        File orders = getResourceFileOriginal(ORDERS_CSV);
+
+        final OrderPriceCalculator orderPriceCalculator = new OrderPriceCalculator(products, orders, OUT_DIRECTORY);
+        final ProductCustomerCalculator productCustomerCalculator = new ProductCustomerCalculator(orders, OUT_DIRECTORY);
+        final CustomerRankingCalculator customerRankingCalculator = new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY);
+        FileCalculator fileCalculator = sharedIngestion
+                ? new FileCalculator(orderPriceCalculator, productCustomerCalculator, customerRankingCalculator, new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4))
+                : new FileCalculator(orderPriceCalculator, productCustomerCalculator, customerRankingCalculator);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        //When
+        final List<File> results;
+        try {
+            results = fileCalculator.calculateAllReports(executor);
+        } finally {
+            executor.shutdownNow();
+        }
+        //Then
+        assertOriginalReports(results);
+    }
+
+    @Test
+    void aFailingConcurrentReportCancelsTheOthers() throws Exception {
+        //Given
+        final OrderPriceCalculator orderPriceCalculator = mock(OrderPriceCalculator.class);
+        final CustomerRankingCalculator customerRankingCalculator = mock(CustomerRankingCalculator.class);
+        final ProductCustomerCalculator productCustomerCalculator = mock(ProductCustomerCalculator.class);
+        final CountDownLatch rankingStarted = new CountDownLatch(1);
+        final CountDownLatch rankingInterrupted = new CountDownLatch(1);
+
+        when(customerRankingCalculator.calculateCustomerRanking()).thenAnswer(invocation -> {
+            rankingStarted.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException cancelled) {
+                rankingInterrupted.countDown();
+            }
+            return null;
+        });
+        when(orderPriceCalculator.calculateOrderPrices()).thenAnswer(invocation -> {
+            rankingStarted.await();
+            throw new IOException("Broken orders");
+        });
+
+        final FileCalculator fileCalculator = new FileCalculator(orderPriceCalculator, productCustomerCalculator, customerRankingCalculator);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        //When
+        final Throwable failure;
+        try {
+            failure = catchThrowable(() -> fileCalculator.calculateAllReports(executor));
+        } finally {
+            executor.shutdown();
+        }
+        //Then
+        assertThat(failure).isInstanceOf(IOException.class).hasMessage("Broken orders");
+        assertThat(rankingInterrupted.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    //Incremental ingestion
+    @Test
+    void snapshotIngestionOnlyParsesTheAppendedOrders(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File customers = getResourceFileOriginal(CUSTOMERS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final Path snapshot = workDirectory.resolve("aggregates.snapshot");
+
+        final List<String> orderLines = Files.readAllLines(getResourceFileOriginal(ORDERS_CSV).toPath());
+        final List<String> firstOrders = orderLines.subList(0, orderLines.size() / 2);
+        final List<String> appendedOrders = orderLines.subList(orderLines.size() / 2, orderLines.size());
+
+        Files.write(orders.toPath(), firstOrders);
+        new SharedIngestion(products, orders, ReadMode.BUFFERED_READER, 1, snapshot).ingest();
+        final long lengthBeforeAppending = orders.length();
+        Files.write(orders.toPath(), appendedOrders, StandardOpenOption.APPEND);
+
+        final FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, OUT_DIRECTORY),
+                new ProductCustomerCalculator(orders, OUT_DIRECTORY),
+                new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY),
+                new SharedIngestion(products, orders, ReadMode.BUFFERED_READER, 1, snapshot)
+        );
+        //When
+        final IngestedOrders ingestedOrders = new SharedIngestion(products, orders, ReadMode.BUFFERED_READER, 1, snapshot).ingest();
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertThat(ingestedOrders.getBytesRead())
+                .isEqualTo(2 * products.length() + checksumWindows(lengthBeforeAppending, orders.length()) + orders.length() - lengthBeforeAppending);
+        assertOriginalReports(results);
+    }
+
+    @Test
+    void snapshotIngestionKeepingTheLastRunOnlyReadsTheAppendedOrders(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final SharedIngestion sharedIngestion = new SharedIngestion(products, orders, ReadMode.BUFFERED_READER, 1, workDirectory.resolve("aggregates.snapshot"));
+        sharedIngestion.setKeepLastRun(true);
+
+        final List<String> orderLines = Files.readAllLines(getResourceFileOriginal(ORDERS_CSV).toPath());
+        Files.write(orders.toPath(), orderLines.subList(0, orderLines.size() / 2));
+        final IngestedOrders firstOrders = sharedIngestion.ingest();
+        final long lengthBeforeAppending = orders.length();
+        Files.write(orders.toPath(), orderLines.subList(orderLines.size() / 2, orderLines.size()), StandardOpenOption.APPEND);
+        //When
+        final IngestedOrders allOrders = sharedIngestion.ingest();
+        //Then
+        assertThat(firstOrders.getBytesRead())
+                .isEqualTo(2 * products.length() + checksumWindows(lengthBeforeAppending) + lengthBeforeAppending - orderLines.get(0).length() - 1);
+        assertThat(allOrders.getBytesRead()).isEqualTo(checksumWindows(lengthBeforeAppending, orders.length()) + orders.length() - lengthBeforeAppending);
+        assertThat(allOrders.getOrderPrices().size()).isEqualTo(orderLines.size() - 1);
+    }
+
+    @Test
+    void snapshotIngestionKeepingTheLastRunAddsTheAppendedOrdersToACopyOfIt(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final Path snapshot = workDirectory.resolve("aggregates.snapshot");
+        final SharedIngestion sharedIngestion = new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, snapshot);
+        sharedIngestion.setKeepLastRun(true);
+
+        final List<String> orderLines = Files.readAllLines(getResourceFileOriginal(ORDERS_CSV).toPath());
+        final List<String> appendedOrders = orderLines.subList(orderLines.size() / 2, orderLines.size());
+        Files.write(orders.toPath(), orderLines.subList(0, orderLines.size() / 2));
+        final IngestedOrders firstOrders = sharedIngestion.ingest();
+        final byte[] firstSnapshot = Files.readAllBytes(snapshot);
+        Files.write(orders.toPath(), appendedOrders, StandardOpenOption.APPEND);
+        //When
+        final IngestedOrders allOrders = sharedIngestion.ingest();
+        //Then
+        final IngestedOrders recomputed = new SharedIngestion(products, orders).ingest();
+        assertThat(firstOrders.getOrderPrices().size()).isEqualTo(orderLines.size() / 2 - 1);
+        assertThat(firstOrders.getChangedCustomers()).isNull();
+        assertThat(allOrders.getChangedCustomers())
+                .containsExactlyInAnyOrder(appendedOrders.stream().mapToLong(line -> Long.parseLong(line.split(",")[1])).distinct().toArray());
+        for (long customer : recomputed.getCustomerTotals().keys()) {
+            assertThat(allOrders.getCustomerTotals().get(customer)).isEqualTo(recomputed.getCustomerTotals().get(customer));
+        }
+        assertThat(Files.readAllBytes(snapshot)).isEqualTo(firstSnapshot);
+    }
+
+    @Test
+    void snapshotIngestionRecomputesEverythingWhenOrdersWereNotJustAppended(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final Path snapshot = workDirectory.resolve("aggregates.snapshot");
+
+        final List<String> orderLines = Files.readAllLines(getResourceFileOriginal(ORDERS_CSV).toPath());
+        Files.write(orders.toPath(), asList(orderLines.get(0), "0,0,0 0 0"));
+        new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, snapshot).ingest();
+        final long snapshotLength = orders.length();
+        Files.write(orders.toPath(), orderLines);
+
+        final SharedIngestion sharedIngestion = new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, snapshot);
+        //When
+        final IngestedOrders ingestedOrders = sharedIngestion.ingest();
+        final File result = new OrderPriceCalculator(products, orders, OUT_DIRECTORY).calculateOrderPrices(ingestedOrders);
+        //Then
+        assertThat(ingestedOrders.getBytesRead()).isEqualTo(2 * products.length() + checksumWindows(snapshotLength, orders.length())
+                + orders.length() - orderLines.get(0).length() - System.lineSeparator().length());
+        assertThat(contentOf(result))
+                .as("Expected order prices are generated")
+                .isEqualToIgnoringNewLines(contentOf(getResourceFileOriginal(ORDER_PRICES_CSV)));
+    }
+
+    @Test
+    void snapshotIngestionRecomputesEverythingWhenAnOrderWasEditedInPlace(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final Path snapshot = workDirectory.resolve("aggregates.snapshot");
+
+        //Big enough that the checksum window is only the end of the file, and the edited record in it but not the last one
+        final List<String> orderLines = repeatOrders(10_000);
+        final int edited = orderLines.size() - 100;
+        final String record = orderLines.get(edited);
+        final List<String> editedLines = new ArrayList<>(orderLines);
+        editedLines.set(edited, record.substring(0, record.lastIndexOf(',')) + record.substring(record.lastIndexOf(',')).replaceAll("[1-9]", "0"));
+        assertThat(editedLines.get(edited)).isNotEqualTo(record).hasSameSizeAs(record);
+
+        Files.write(orders.toPath(), editedLines);
+        new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, snapshot).ingest();
+        final long editedLength = orders.length();
+        Files.write(orders.toPath(), orderLines);
+
+        final Path expectedDirectory = Files.createDirectories(workDirectory.resolve("expected"));
+        final File expected = new OrderPriceCalculator(products, orders, expectedDirectory)
+                .calculateOrderPrices(new SharedIngestion(products, orders).ingest());
+        //When
+        final IngestedOrders ingestedOrders = new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, snapshot).ingest();
+        final File result = new OrderPriceCalculator(products, orders, workDirectory).calculateOrderPrices(ingestedOrders);
+        //Then
+        assertThat(orders.length()).isEqualTo(editedLength).isGreaterThan(AggregateSnapshot.ORDERS_WINDOW_SIZE);
+        assertThat(ingestedOrders.getBytesRead()).isEqualTo(2 * products.length() + checksumWindows(editedLength, orders.length())
+                + orders.length() - orderLines.get(0).length() - System.lineSeparator().length());
+        assertThat(contentOf(result)).isEqualTo(contentOf(expected));
+    }
+
+    @Test
+    void snapshotIngestionOfABigFileOnlyReadsTheChecksumWindowsAndTheAppendedOrders(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File orders = workDirectory.resolve(ORDERS_CSV).toFile();
+        final SharedIngestion sharedIngestion = new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, workDirectory.resolve("aggregates.snapshot"));
+        sharedIngestion.setKeepLastRun(true);
+
+        final List<String> orderLines = repeatOrders(20_000);
+        Files.write(orders.toPath(), orderLines.subList(0, orderLines.size() - 10));
+        sharedIngestion.ingest();
+        final long lengthBeforeAppending = orders.length();
+        Files.write(orders.toPath(), orderLines.subList(orderLines.size() - 10, orderLines.size()), StandardOpenOption.APPEND);
+        //When
+        final IngestedOrders ingestedOrders = sharedIngestion.ingest();
+        //Then
+        assertThat(ingestedOrders.getBytesRead())
+                .isEqualTo(2L * AggregateSnapshot.ORDERS_WINDOW_SIZE + orders.length() - lengthBeforeAppending)
+                .isLessThan(orders.length() / 2);
+        assertThat(ingestedOrders.getOrderPrices().size()).isEqualTo(orderLines.size() - 1);
+    }
+
+    //Input sources
+    @Test
+    void gzippedInputsBringTheSameReportsAsThePlainFiles(@TempDir final Path workDirectory) throws IOException {
+        //Given
+        final InputSource products = InputSource.of(gzip(getResourceFileOriginal(PRODUCTS_CSV), workDirectory));
+        final InputSource customers = InputSource.of(gzip(getResourceFileOriginal(CUSTOMERS_CSV), workDirectory));
+        final InputSource orders = InputSource.of(gzip(getResourceFileOriginal(ORDERS_CSV), workDirectory));
+
+        final FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, OUT_DIRECTORY, ReadMode.MEMORY_MAPPED),
+                new ProductCustomerCalculator(orders, OUT_DIRECTORY, ReadMode.MEMORY_MAPPED),
+                new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY, ReadMode.COLUMNAR_CACHE),
+                new SharedIngestion(products, orders, ReadMode.MEMORY_MAPPED, 4, workDirectory.resolve("aggregates.snapshot"))
+        );
+        //When
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertOriginalReports(results);
+        assertThat(workDirectory.resolve("aggregates.snapshot")).doesNotExist();
+    }
+
+    @Test
+    void streamedInputsBringTheSameReportsAsThePlainFilesWithoutSharedIngestion() throws IOException {
+        //Given
+        final InputSource products = streamOf(getResourceFileOriginal(PRODUCTS_CSV));
+        final InputSource customers = streamOf(getResourceFileOriginal(CUSTOMERS_CSV));
+        final InputSource orders = streamOf(getResourceFileOriginal(ORDERS_CSV));
+
+        final FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, OUT_DIRECTORY, ReadMode.COLUMNAR_CACHE),
+                new ProductCustomerCalculator(orders, OUT_DIRECTORY, ReadMode.COLUMNAR_CACHE),
+                new CustomerRankingCalculator(customers, products, orders, OUT_DIRECTORY, ReadMode.COLUMNAR_CACHE)
+        );
+        //When
+        final File orderPrices = fileCalculator.calculateOrderPrices();
+        final File customerRanking = fileCalculator.calculateCustomerRanking();
+        final File productCustomers = fileCalculator.calculateProductCustomers();
+        //Then
+        assertOriginalReports(asList(orderPrices, customerRanking, productCustomers));
+    }
+
+    //Output options
+    @Test
+    void gzippedRangePartitionsHaveTheSameRecordsAsThePlainReports(@TempDir final Path outDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal(PRODUCTS_CSV);
+        final File customers = getResourceFileOriginal(CUSTOMERS_CSV);
+        final File orders = getResourceFileOriginal(ORDERS_CSV);
+
+        final FileCalculator fileCalculator = new FileCalculator(
+                new OrderPriceCalculator(products, orders, outDirectory),
+                new ProductCustomerCalculator(orders, outDirectory),
+                new CustomerRankingCalculator(customers, products, orders, outDirectory),
+                new SharedIngestion(products, orders)
+        );
+        //A new part after every buffer that reaches the disk
+        fileCalculator.setOutputOptions(OutputOptions.rangeParts(true, 1));
+        //When
+        final List<File> results = fileCalculator.calculateAllReports();
+        //Then
+        assertThat(results.get(0)).isDirectory().hasName("order_prices");
+        assertThat(readParts(results.get(0)))
+                .as("Expected order prices are generated")
+                .isEqualTo(Files.readAllLines(getResourceFileOriginal(ORDER_PRICES_CSV).toPath()));
+        assertThat(readParts(results.get(1)))
+                .as("Expected customer rankings are generated")
+                .isEqualTo(Files.readAllLines(getResourceFileOriginal(CUSTOMER_RANKING_CSV).toPath()));
+        assertThat(readParts(results.get(2)))
+                .as("Expected product customers are generated")
+                .isEqualTo(Files.readAllLines(getResourceFileOriginal(PRODUCT_CUSTOMER_CSV).toPath()));
+    }
+
+    private void assertOriginalReports(final List<File> results) {
+        assertThat(contentOf(results.get(0)))
+                .as("Expected order prices are generated")
+                .isEqualToIgnoringNewLines(contentOf(getResourceFileOriginal(ORDER_PRICES_CSV)));
+        assertThat(contentOf(results.get(1)))
+                .as("Expected customer rankings are generated")
+                .isEqualToIgnoringNewLines(contentOf(getResourceFileOriginal(CUSTOMER_RANKING_CSV)));
+        assertThat(contentOf(results.get(2)))
+                .as("Expected product customers are generated")
+                .isEqualToIgnoringNewLines(contentOf(getResourceFileOriginal(PRODUCT_CUSTOMER_CSV)));
+    }
+
+    //The header of orders.csv, then its records over and over with new order ids
+    //Bytes read to checksum the orders.csv window before each offset
+    private long checksumWindows(final long... offsets) {
+        long bytes = 0;
+        for (long offset : offsets) {
+            bytes += AggregateSnapshot.ordersWindowLength(offset);
+        }
+        return bytes;
+    }
+
+    private List<String> repeatOrders(final int orderCount) throws IOException {
+        final List<String> originalLines = Files.readAllLines(getResourceFileOriginal(ORDERS_CSV).toPath());
+        final List<String> lines = new ArrayList<>();
+        lines.add(originalLines.get(0));
+        for (int order = 0; order < orderCount; order++) {
+            final String record = originalLines.get(1 + order % (originalLines.size() - 1));
+            lines.add(order + record.substring(record.indexOf(',')));
+        }
+        return lines;
+    }
+
+    //The header of the first part, then the records of every part in order
+    private List<String> readParts(final File directory) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        final File[] parts = directory.listFiles();
+        Arrays.sort(parts);
+        for (File part : parts) {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(part.toPath()))) {
+                final List<String> partLines = new BufferedReader(new InputStreamReader(in)).lines().collect(Collectors.toList());
+                lines.addAll(lines.isEmpty() ? partLines : partLines.subList(1, partLines.size()));
+            }
+        }
+        return lines;
+    }
+
+    private File gzip(final File file, final Path directory) throws IOException {
+        final File compressed = directory.resolve(file.getName() + InputSource.GZIP_EXTENSION).toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed.toPath()))) {
+            Files.copy(file.toPath(), out);
+        }
+        return compressed;
+    }
+
+    private InputSource streamOf(final File file) throws IOException {
+        final byte[] contents = Files.readAllBytes(file.toPath());
+        return InputSource.of(file.getName(), () -> new ByteArrayInputStream(contents));
+    }
+
     private File getResourceFileOriginal(final String fileName) {
 
         final String pathToFile = "/originals/" + fileName;
@@ -131,4 +591,37 @@ class FileCalculatorShould {
         return new File(getClass().getResource(pathToFile).getFile());
     }
 
+    //A streamed file that counts how many times it is opened and how many bytes are actually read from it
+    private static class CountingSource {
+        private final AtomicInteger opens = new AtomicInteger();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private final long length;
+        private final InputSource source;
+
+        private CountingSource(final File file) {
+            this.length = file.length();
+            this.source = InputSource.of(file.getName(), () -> {
+                opens.incrementAndGet();
+                return new FilterInputStream(Files.newInputStream(file.toPath())) {
+                    @Override
+                    public int read() throws IOException {
+                        final int read = super.read();
+                        if (read >= 0) {
+                            bytesRead.incrementAndGet();
+                        }
+                        return read;
+                    }
+
+                    @Override
+                    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+                        final int read = super.read(buffer, offset, length);
+                        if (read > 0) {
+                            bytesRead.addAndGet(read);
+                        }
+                        return read;
+                    }
+                };
+            });
+        }
+    }
 }
@@ -0,0 +1,63 @@
+package metrics;
+
+import calculators.OrderPriceCalculator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+
+class JsonRunReportShould {
+
+    @Test
+    void receiveEveryStageOfACalculation(@TempDir final Path outDirectory) throws IOException {
+        //Given
+        final File products = getResourceFileOriginal("products.csv");
+        final File orders = getResourceFileOriginal("orders.csv");
+        final OrderPriceCalculator calculator = new OrderPriceCalculator(products, orders, outDirectory);
+        final JsonRunReport runReport = new JsonRunReport();
+        calculator.setMetricsListener(runReport);
+        //When
+        final File result = calculator.calculateOrderPrices();
+        //Then
+        final List<StageMetrics> stages = runReport.getStages();
+        assertThat(stages.stream().map(StageMetrics::getStage).collect(toList()))
+                .containsExactly(Stage.PARSE, Stage.PRICE_LOOKUP, Stage.SORT, Stage.WRITE);
+        assertThat(stages).allSatisfy(stage -> {
+            assertThat(stage.getComponent()).isEqualTo("OrderPriceCalculator");
+            assertThat(stage.getRows()).isEqualTo(50);
+            assertThat(stage.getDurationNanos()).isPositive();
+        });
+        assertThat(stages.get(0).getBytesRead()).isEqualTo(orders.length());
+        assertThat(stages.get(3).getBytesWritten()).isEqualTo(result.length());
+        //Every product is looked up once in the price index
+        assertThat(stages.get(1).getCacheMisses()).isPositive();
+        assertThat(stages.get(1).getCacheHits()).isZero();
+    }
+
+    @Test
+    void writeTheStagesAsJson(@TempDir final Path outDirectory) throws IOException {
+        //Given
+        final JsonRunReport runReport = new JsonRunReport();
+        runReport.onStage(new StageMetrics("OrderPriceCalculator", Stage.PARSE, "a \"quoted\" thread", 10, 2, 30, 0, -1));
+        runReport.onStage(new StageMetrics("OrderPriceCalculator", Stage.WRITE, "main", 5, 2, 0, 40, 100));
+        //When
+        final File report = runReport.writeTo(outDirectory);
+        //Then
+        assertThat(report).hasName(JsonRunReport.FILE_NAME);
+        assertThat(contentOf(report)).isEqualTo("{\n  \"stages\": [\n"
+                + "    {\"component\": \"OrderPriceCalculator\", \"stage\": \"PARSE\", \"thread\": \"a \\\"quoted\\\" thread\", \"durationNanos\": 10, \"rows\": 2, \"bytesRead\": 30, \"bytesWritten\": 0, \"allocatedBytes\": -1, \"cacheHits\": 0, \"cacheMisses\": 0},\n"
+                + "    {\"component\": \"OrderPriceCalculator\", \"stage\": \"WRITE\", \"thread\": \"main\", \"durationNanos\": 5, \"rows\": 2, \"bytesRead\": 0, \"bytesWritten\": 40, \"allocatedBytes\": 100, \"cacheHits\": 0, \"cacheMisses\": 0}\n"
+                + "  ]\n}\n");
+    }
+
+    private File getResourceFileOriginal(final String fileName) {
+        return new File(getClass().getResource("/originals/" + fileName).getFile());
+    }
+}
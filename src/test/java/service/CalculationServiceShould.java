@@ -0,0 +1,200 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.RankingRows;
+import utils.ReadMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CalculationServiceShould {
+
+    //The background reload is kept out of the way, the tests reload explicitly
+    private static final long NO_BACKGROUND_RELOAD = 3_600_000;
+
+    @TempDir
+    Path workDirectory;
+    private File customers;
+    private File orders;
+    private CalculationService service;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void startService() throws IOException {
+        customers = workDirectory.resolve("customers.csv").toFile();
+        orders = workDirectory.resolve("orders.csv").toFile();
+        Files.copy(getResourceFileOriginal("customers.csv").toPath(), customers.toPath());
+        Files.copy(getResourceFileOriginal("orders.csv").toPath(), orders.toPath());
+
+        service = new CalculationService(
+                customers,
+                getResourceFileOriginal("products.csv"),
+                orders,
+                ReadMode.MEMORY_MAPPED,
+                2,
+                workDirectory.resolve("service.snapshot"),
+                NO_BACKGROUND_RELOAD
+        );
+        address = service.start(0);
+    }
+
+    @AfterEach
+    void stopService() {
+        service.close();
+    }
+
+    @Test
+    void answerWithTheSameFiguresAsTheReports() throws IOException {
+        //Given
+        final String firstOrderPrice = lines("order_prices.csv").get(1).split(",")[1];
+        final String[] topCustomer = lines("customer_ranking.csv").get(1).split(",");
+        final String[] firstProduct = lines("product_customers.csv").get(1).split(",");
+        //When
+        final String order = get("/orders/0");
+        final String customer = get("/customers/" + topCustomer[0]);
+        final String ranking = get("/ranking?limit=1");
+        final String product = get("/products/" + firstProduct[0] + "/customers");
+        //Then
+        assertThat(order).isEqualTo("{\"id\": 0, \"euros\": " + firstOrderPrice + "}");
+        assertThat(customer).isEqualTo("{\"id\": " + topCustomer[0] + ", \"firstname\": \"" + topCustomer[1]
+                + "\", \"lastname\": \"" + topCustomer[2] + "\", \"total_euros\": " + topCustomer[3] + ", \"rank\": 1}");
+        assertThat(ranking).isEqualTo("{\"customers\": [" + customer + "]}");
+        assertThat(product).isEqualTo("{\"id\": " + firstProduct[0] + ", \"customer_ids\": [" + firstProduct[1].replace(" ", ", ") + "]}");
+    }
+
+    @Test
+    void answerNotFoundAndBadRequests() throws IOException {
+        //When
+        final int unknownOrder = status("/orders/123456789");
+        final int notANumber = status("/customers/someone");
+        final int unknownPath = status("/somewhere");
+        //Then
+        assertThat(unknownOrder).isEqualTo(404);
+        assertThat(notANumber).isEqualTo(400);
+        assertThat(unknownPath).isEqualTo(404);
+    }
+
+    @Test
+    void serveAppendedOrdersAfterReloading() throws IOException {
+        //Given
+        Files.write(orders.toPath(), singletonList("1000,0,0 1"), StandardOpenOption.APPEND);
+        //When
+        final int beforeReloading = status("/orders/1000");
+        final boolean reloaded = service.reload();
+        final boolean reloadedAgain = service.reload();
+        //Then
+        assertThat(beforeReloading).isEqualTo(404);
+        assertThat(reloaded).isTrue();
+        assertThat(reloadedAgain).isFalse();
+        assertThat(get("/orders/1000")).startsWith("{\"id\": 1000, \"euros\": ");
+    }
+
+    @Test
+    void keepTheCustomersWhenOnlyTheOrdersChange() throws IOException {
+        //Given
+        final String topCustomer = lines("customer_ranking.csv").get(1).split(",")[0];
+        final WarmState before = service.getState();
+        Files.write(orders.toPath(), singletonList("1000," + topCustomer + ",0 1"), StandardOpenOption.APPEND);
+        //When
+        service.reload();
+        //Then
+        assertThat(service.getState().getCustomers()).isSameAs(before.getCustomers());
+        assertThat(service.getState().getIngestedOrders()).isNotSameAs(before.getIngestedOrders());
+        assertThat(service.getState().getRanking().getTotal(0)).isGreaterThan(before.getRanking().getTotal(0));
+    }
+
+    @Test
+    void rankAppendedOrdersAsAFullReloadWould() throws IOException {
+        //Given
+        final List<String> ranking = lines("customer_ranking.csv");
+        final String top = ranking.get(1).split(",")[0];
+        final String middle = ranking.get(ranking.size() / 2).split(",")[0];
+        final String last = ranking.get(ranking.size() - 1).split(",")[0];
+        final WarmState before = service.getState();
+        final long firstOrderPrices = before.getIngestedOrders().getOrderPrices().size();
+        Files.write(orders.toPath(), asList("1000," + last + ",0 1 2 3 4 5 0 1 2 3 4 5", "1001," + middle + ",0", "1002,999999,1"), StandardOpenOption.APPEND);
+        service.reload();
+        Files.write(orders.toPath(), asList("1003," + top + ",1", "1004," + last + ",2"), StandardOpenOption.APPEND);
+        //When
+        service.reload();
+        //Then
+        final WarmState appended = service.getState();
+        final WarmState recomputed = WarmState.load(appended.getVersion(), appended.getIngestedOrders(), appended.getCustomers());
+        assertThat(appended.getIngestedOrders().getChangedCustomers()).isNotNull();
+        assertThat(rows(appended.getRanking())).isEqualTo(rows(recomputed.getRanking()));
+        assertThat(before.getIngestedOrders().getOrderPrices().size()).isEqualTo(firstOrderPrices);
+        assertThat(rows(before.getRanking())).isEqualTo(ranking.subList(1, ranking.size()));
+    }
+
+    @Test
+    void keepTheOrdersWhenOnlyTheCustomersChange() throws IOException {
+        //Given
+        final String[] topCustomer = lines("customer_ranking.csv").get(1).split(",");
+        final WarmState before = service.getState();
+        final List<String> renamed = new ArrayList<>();
+        for (String line : Files.readAllLines(customers.toPath())) {
+            renamed.add(line.startsWith(topCustomer[0] + ",") ? topCustomer[0] + ",Renamed,Customer" : line);
+        }
+        Files.write(customers.toPath(), renamed);
+        //When
+        service.reload();
+        //Then
+        assertThat(service.getState().getIngestedOrders()).isSameAs(before.getIngestedOrders());
+        assertThat(service.getState().getCustomers()).isNotSameAs(before.getCustomers());
+        assertThat(get("/customers/" + topCustomer[0])).contains("\"firstname\": \"Renamed\", \"lastname\": \"Customer\"");
+    }
+
+    private List<String> rows(final RankingRows ranking) {
+        final List<String> rows = new ArrayList<>();
+        for (int row = 0; row < ranking.size(); row++) {
+            rows.add(ranking.getCustomerId(row) + "," + ranking.getFirstName(row) + "," + ranking.getLastName(row) + "," + ranking.getTotal(row));
+        }
+        return rows;
+    }
+
+    private String get(final String path) throws IOException {
+        final HttpURLConnection connection = open(path);
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        try (InputStream body = connection.getInputStream()) {
+            return new String(body.readAllBytes(), UTF_8);
+        }
+    }
+
+    private int status(final String path) throws IOException {
+        final HttpURLConnection connection = open(path);
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private HttpURLConnection open(final String path) throws IOException {
+        return (HttpURLConnection) new URL("http", address.getHostString(), address.getPort(), path).openConnection();
+    }
+
+    private List<String> lines(final String fileName) throws IOException {
+        return Files.readAllLines(getResourceFileOriginal(fileName).toPath());
+    }
+
+    private File getResourceFileOriginal(final String fileName) {
+        return new File(getClass().getResource("/originals/" + fileName).getFile());
+    }
+}
@@ -0,0 +1,34 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchShould {
+
+    @Test
+    void neverUnderestimateAndStayWithinTheErrorBound() {
+        //Given
+        final CountMinSketch sketch = new CountMinSketch(0.001, 0.01);
+        final long[] exact = new long[100_000];
+        final Random random = new Random(7);
+        //When
+        for (int index = 0; index < 500_000; index++) {
+            final int item = random.nextInt(2) == 0 ? random.nextInt(100) : random.nextInt(exact.length);
+            exact[item]++;
+            sketch.add(item, 1);
+        }
+        //Then
+        final long maxError = (long) Math.ceil(0.001 * sketch.getTotal());
+        int overTheBound = 0;
+        for (int item = 0; item < exact.length; item++) {
+            assertThat(sketch.estimate(item)).isGreaterThanOrEqualTo(exact[item]);
+            if (sketch.estimate(item) > exact[item] + maxError) {
+                overTheBound++;
+            }
+        }
+        assertThat(overTheBound).isLessThanOrEqualTo(exact.length / 100);
+    }
+}
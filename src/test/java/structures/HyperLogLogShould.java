@@ -0,0 +1,74 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogShould {
+
+    @Test
+    void smallSetsAreCountedExactlyWhateverTheRepetitions() {
+        //Given
+        final HyperLogLog sketch = new HyperLogLog(12);
+        //When
+        for (int repetition = 0; repetition < 3; repetition++) {
+            for (long value = 0; value < 50; value++) {
+                sketch.add(value);
+            }
+        }
+        //Then
+        assertThat(sketch.estimate()).isEqualTo(50);
+        assertThat(sketch.sizeInBytes()).isLessThan(1 << 12);
+    }
+
+    @Test
+    void bigSetsAreEstimatedWithinTheExpectedError() {
+        //Given
+        final HyperLogLog sketch = new HyperLogLog(12);
+        final long distinct = 1_000_000;
+        //When
+        for (long value = 0; value < distinct; value++) {
+            sketch.add(value * 7919);
+        }
+        //Then
+        //Three standard errors of 1.04 / sqrt(4096)
+        assertThat((double) sketch.estimate()).isCloseTo(distinct, within(distinct * 0.05));
+        assertThat(sketch.sizeInBytes()).isEqualTo(1 << 12);
+    }
+
+    @Test
+    void mergedSketchesEstimateLikeASketchOfEverything() throws IOException {
+        //Given
+        final HyperLogLog all = new HyperLogLog(10);
+        final HyperLogLog evens = new HyperLogLog(10);
+        final HyperLogLog odds = new HyperLogLog(10);
+        for (long value = 0; value < 100_000; value++) {
+            all.add(value);
+            (value % 2 == 0 ? evens : odds).add(value);
+        }
+        final HyperLogLog sparse = new HyperLogLog(10);
+        sparse.add(-1);
+        //When
+        final HyperLogLog merged = readBack(evens);
+        merged.merge(readBack(odds));
+        merged.merge(readBack(sparse));
+        all.add(-1);
+        //Then
+        assertThat(merged.estimate()).isEqualTo(all.estimate());
+    }
+
+    private HyperLogLog readBack(final HyperLogLog sketch) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            sketch.writeTo(output);
+        }
+        return HyperLogLog.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
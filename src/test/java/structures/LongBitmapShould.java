@@ -0,0 +1,81 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongBitmapShould {
+
+    @Test
+    void iterateItsValuesInAscendingOrder() {
+        //Given
+        final LongBitmap bitmap = new LongBitmap();
+        final long[] values = {42, -1, 7, Long.MIN_VALUE, 1L << 40, 65536, 65535, 42, Long.MAX_VALUE, 0};
+        //When
+        for (long value : values) {
+            bitmap.add(value);
+        }
+        //Then
+        assertThat(toList(bitmap.iterator()))
+                .containsExactly(Long.MIN_VALUE, -1L, 0L, 7L, 42L, 65535L, 65536L, 1L << 40, Long.MAX_VALUE);
+        assertThat(bitmap.cardinality()).isEqualTo(9);
+        assertThat(bitmap.contains(65536)).isTrue();
+        assertThat(bitmap.contains(65537)).isFalse();
+    }
+
+    @Test
+    void keepTheSameValuesWhenSparseContainersBecomeBitmaps() {
+        //Given
+        final LongBitmap bitmap = new LongBitmap();
+        final TreeSet<Long> expected = new TreeSet<>();
+        //When
+        for (long value = 0; value < 200_000; value += 7) {
+            bitmap.add(value);
+            expected.add(value);
+        }
+        //Then
+        final List<Long> forEachValues = new ArrayList<>();
+        bitmap.forEach(forEachValues::add);
+        assertThat(toList(bitmap.iterator())).containsExactlyElementsOf(expected);
+        assertThat(forEachValues).containsExactlyElementsOf(expected);
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void unionInPlaceLeavingTheOtherBitmapUntouched() {
+        //Given
+        final LongBitmap dense = new LongBitmap();
+        final LongBitmap sparse = new LongBitmap();
+        final LongBitmap other = new LongBitmap();
+        for (long value = 0; value < 10_000; value++) {
+            dense.add(value * 2);
+        }
+        sparse.add(1);
+        sparse.add(100_000);
+        other.add(3);
+        other.add(-5);
+        //When
+        sparse.or(dense);
+        sparse.or(other);
+        dense.or(other);
+        //Then
+        assertThat(sparse.cardinality()).isEqualTo(10_000 + 4);
+        assertThat(sparse.contains(19_998)).isTrue();
+        assertThat(sparse.contains(1)).isTrue();
+        assertThat(sparse.contains(-5)).isTrue();
+        assertThat(dense.cardinality()).isEqualTo(10_000 + 2);
+        assertThat(other.cardinality()).isEqualTo(2);
+        assertThat(toList(other.iterator())).containsExactly(-5L, 3L);
+    }
+
+    private List<Long> toList(final PrimitiveIterator.OfLong iterator) {
+        final List<Long> values = new ArrayList<>();
+        iterator.forEachRemaining((long value) -> values.add(value));
+        return values;
+    }
+}
@@ -0,0 +1,65 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class LongLongMapShould {
+
+    @Test
+    void addCountsInPlace() {
+        //Given
+        final LongLongMap map = new LongLongMap(1);
+        //When
+        for (long key = 0; key < 100; key++) {
+            map.addTo(key % 10, 1);
+        }
+        //Then
+        assertThat(map.size()).isEqualTo(10);
+        assertThat(map.get(3, -1)).isEqualTo(10);
+        assertThat(map.get(42, -1)).isEqualTo(-1);
+    }
+
+    @Test
+    void forgetEverythingWhenCleared() {
+        //Given
+        final LongLongMap map = new LongLongMap();
+        map.put(1, 1);
+        map.put(Long.MIN_VALUE, 2);
+        //When
+        map.clear();
+        //Then
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.containsKey(1)).isFalse();
+        assertThat(map.containsKey(Long.MIN_VALUE)).isFalse();
+    }
+
+    @Test
+    void keepFindingTheOtherKeysAfterARemove() {
+        //Given
+        final LongLongMap map = new LongLongMap(1);
+        for (long key = 0; key < 1000; key++) {
+            map.put(key, key * 2);
+        }
+        //When
+        for (long key = 0; key < 1000; key += 3) {
+            assertThat(map.remove(key, -1)).isEqualTo(key * 2);
+        }
+        //Then
+        assertThat(map.size()).isEqualTo(666);
+        assertThat(map.remove(3, -1)).isEqualTo(-1);
+        for (long key = 0; key < 1000; key++) {
+            assertThat(map.get(key, -1)).isEqualTo(key % 3 == 0 ? -1 : key * 2);
+        }
+    }
+
+    @Test
+    void refuseToGrowPastTheMaximumCapacity() {
+        //When
+        final Throwable failure = catchThrowable(() -> LongHashing.grow(LongHashing.MAX_CAPACITY, 644_245_094));
+        //Then
+        assertThat(failure).isInstanceOf(IllegalStateException.class).hasMessageContaining("maximum capacity");
+        assertThat(LongHashing.grow(LongHashing.MAX_CAPACITY / 2, 1)).isEqualTo(LongHashing.MAX_CAPACITY);
+    }
+}
@@ -0,0 +1,100 @@
+package structures;
+
+import model.Money;
+import model.PriceTable;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongMoneyMapShould {
+
+    @Test
+    void keepTheScaleBigDecimalArithmeticWouldHaveGiven() {
+        //Given
+        final LongObjectMap<BigDecimal> prices = new LongObjectMap<>();
+        prices.put(1, new BigDecimal("1.5"));
+        prices.put(2, new BigDecimal("2.25"));
+        prices.put(3, new BigDecimal("3"));
+        final PriceTable priceTable = PriceTable.of(prices);
+        final LongMoneyMap totals = priceTable.newTotals();
+        final Money total = priceTable.newAmount();
+        //When
+        priceTable.addPrice(total, 1, 2);
+        totals.put(10, total);
+        total.clear();
+        priceTable.addPrice(total, 3, 1);
+        totals.put(20, total);
+        total.clear();
+        totals.add(30, total);
+        //Then
+        assertThat(priceTable.isFixedPoint()).isTrue();
+        assertThat(totals.get(10)).hasToString("3.0");
+        assertThat(totals.get(20)).hasToString("3");
+        assertThat(totals.get(30)).hasToString("0");
+        assertThat(totals.get(40)).isNull();
+    }
+
+    @Test
+    void carryOnWithBigDecimalsWhenALongOverflows() {
+        //Given
+        final LongObjectMap<BigDecimal> prices = new LongObjectMap<>();
+        prices.put(1, new BigDecimal("9223372036854775.807"));
+        final PriceTable priceTable = PriceTable.of(prices);
+        final LongMoneyMap totals = priceTable.newTotals();
+        final Money total = priceTable.newAmount();
+        priceTable.addPrice(total, 1, 1);
+        //When
+        totals.add(1, total);
+        totals.add(1, total);
+        //Then
+        assertThat(totals.get(1)).isEqualByComparingTo(new BigDecimal("9223372036854775.807").multiply(BigDecimal.valueOf(2)));
+        assertThat(totals.get(1)).hasToString("18446744073709551.614");
+    }
+
+    @Test
+    void fallBackToBigDecimalPricesWhenAScaleIsTooBig() {
+        //Given
+        final LongObjectMap<BigDecimal> prices = new LongObjectMap<>();
+        prices.put(1, new BigDecimal("0.0000000000000000000001"));
+        final PriceTable priceTable = PriceTable.of(prices);
+        final Money total = priceTable.newAmount();
+        //When
+        priceTable.addPrice(total, 1, 3);
+        //Then
+        assertThat(priceTable.isFixedPoint()).isFalse();
+        assertThat(total.toBigDecimal()).hasToString("3E-22");
+    }
+
+    @Test
+    void keepTheSamePositionsInACopyThatChangesOnItsOwn() {
+        //Given
+        final LongObjectMap<BigDecimal> prices = new LongObjectMap<>();
+        prices.put(1, new BigDecimal("1.50"));
+        prices.put(2, new BigDecimal("9223372036854775.807"));
+        final PriceTable priceTable = PriceTable.of(prices);
+        final Money price = priceTable.newAmount();
+        final Money overflowingPrice = priceTable.newAmount();
+        priceTable.addPrice(price, 1, 1);
+        priceTable.addPrice(overflowingPrice, 2, 1);
+        final LongMoneyMap totals = priceTable.newTotals();
+        totals.add(10, price);
+        totals.add(20, overflowingPrice);
+        totals.add(20, overflowingPrice);
+        //When
+        final LongMoneyMap copy = totals.copy();
+        copy.add(10, price);
+        copy.add(20, overflowingPrice);
+        copy.add(30, price);
+        //Then
+        assertThat(copy.indexOf(10)).isEqualTo(totals.indexOf(10));
+        assertThat(copy.indexOf(20)).isEqualTo(totals.indexOf(20));
+        assertThat(copy.get(10)).hasToString("3.00");
+        assertThat(copy.get(20)).hasToString("27670116110564327.421");
+        assertThat(copy.get(30)).hasToString("1.50");
+        assertThat(totals.get(10)).hasToString("1.50");
+        assertThat(totals.get(20)).hasToString("18446744073709551.614");
+        assertThat(totals.containsKey(30)).isFalse();
+    }
+}
@@ -0,0 +1,46 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectMapShould {
+
+    @Test
+    void keepEveryEntryWhenGrowingPastItsInitialCapacity() {
+        //Given
+        final LongObjectMap<String> map = new LongObjectMap<>(2);
+        //When
+        for (long key = 0; key < 1000; key++) {
+            map.put(key * 31, "value" + key);
+        }
+        //Then
+        assertThat(map.size()).isEqualTo(1000);
+        assertThat(map.get(31 * 999)).isEqualTo("value999");
+        assertThat(map.get(1)).isNull();
+    }
+
+    @Test
+    void acceptTheKeyUsedToMarkEmptySlots() {
+        //Given
+        final LongObjectMap<String> map = new LongObjectMap<>();
+        //When
+        map.put(Long.MIN_VALUE, "min");
+        map.put(0, "zero");
+        //Then
+        assertThat(map.get(Long.MIN_VALUE)).isEqualTo("min");
+        assertThat(map.sortedKeys()).containsExactly(Long.MIN_VALUE, 0);
+    }
+
+    @Test
+    void onlyComputeMissingValues() {
+        //Given
+        final LongObjectMap<StringBuilder> map = new LongObjectMap<>();
+        //When
+        map.computeIfAbsent(7, key -> new StringBuilder()).append("a");
+        map.computeIfAbsent(7, key -> new StringBuilder()).append("b");
+        //Then
+        assertThat(map.get(7).toString()).isEqualTo("ab");
+        assertThat(map.size()).isEqualTo(1);
+    }
+}
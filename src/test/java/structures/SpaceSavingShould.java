@@ -0,0 +1,49 @@
+package structures;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingShould {
+
+    @Test
+    void countExactlyWhileThereAreFreeCounters() {
+        //Given
+        final SpaceSaving counters = new SpaceSaving(10);
+        //When
+        for (long item = 0; item < 10; item++) {
+            counters.add(item, item + 1);
+        }
+        counters.add(3, 5);
+        //Then
+        assertThat(counters.size()).isEqualTo(10);
+        assertThat(counters.count(3)).isEqualTo(9);
+        assertThat(counters.error(3)).isEqualTo(0);
+        assertThat(counters.count(9)).isEqualTo(10);
+        assertThat(counters.getTotal()).isEqualTo(60);
+    }
+
+    @Test
+    void keepTheFrequentItemsWithinTheErrorBoundWhenFull() {
+        //Given
+        final SpaceSaving counters = new SpaceSaving(50);
+        final long[] exact = new long[10_000];
+        final Random random = new Random(42);
+        //When
+        for (int index = 0; index < 200_000; index++) {
+            //Mostly a handful of items, and a long tail of rare ones
+            final int item = random.nextInt(4) == 0 ? random.nextInt(5) : random.nextInt(exact.length);
+            exact[item]++;
+            counters.add(item, 1);
+        }
+        //Then
+        final long maxError = counters.getTotal() / counters.getCapacity();
+        for (long item = 0; item < 5; item++) {
+            assertThat(counters.count(item)).isBetween(exact[(int) item], exact[(int) item] + maxError);
+            assertThat(counters.count(item) - counters.error(item)).isLessThanOrEqualTo(exact[(int) item]);
+        }
+        assertThat(counters.size()).isEqualTo(50);
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarCacheShould {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bringTheSameRecordsAsTheCsv() throws IOException {
+        //Given
+        final File products = write("products.csv", "id,name,cost", "1,Tie,10.50", "2,Huge,123456789012345678901234.5", "3,Cheap,0.0000001");
+        final File customers = write("customers.csv", "id,firstname,lastname", "1,John,Maxwell", "2,Ana,Nunez", "3,,Empty");
+        //When
+        final List<String> firstRead = readAll(products, customers);
+        final List<String> warmRead = readAll(products, customers);
+        //Then
+        assertThat(firstRead).containsExactly(
+                "1 10.50", "2 123456789012345678901234.5", "3 1E-7",
+                "1 John Maxwell", "2 Ana Nunez", "3  Empty"
+        );
+        assertThat(warmRead).isEqualTo(firstRead);
+        assertThat(products.toPath().resolveSibling("products.csv.columns").resolve("meta.bin")).exists();
+    }
+
+    @Test
+    void rebuildTheColumnsWhenTheCsvChanges() throws IOException {
+        //Given
+        final File orders = write("orders.csv", "id,customer,products", "0,1,1 2", "1,2,");
+        final List<String> beforeChange = readOrders(orders);
+        Files.write(orders.toPath(), asList("id,customer,products", "0,1,1 2 3", "1,2,4", "2,3,5 5"));
+        //When
+        final List<String> afterChange = readOrders(orders);
+        //Then
+        assertThat(beforeChange).containsExactly("0 1 [1, 2]", "1 2 []");
+        assertThat(afterChange).containsExactly("0 1 [1, 2, 3]", "1 2 [4]", "2 3 [5, 5]");
+    }
+
+    @Test
+    void readTheCsvWhenTheColumnsCannotBeWritten() throws IOException {
+        //Given
+        final File products = write("products.csv", "id,name,cost", "1,Tie,10.50", "2,Huge,123456789012345678901234.5");
+        final File customers = write("customers.csv", "id,firstname,lastname", "1,John,Maxwell");
+        final File orders = write("orders.csv", "id,customer,products", "0,1,1 2");
+        //A file where the columns directory should go, so it can't be created whoever runs the tests
+        for (File csv : asList(products, customers, orders)) {
+            Files.write(csv.toPath().resolveSibling(csv.getName() + ".columns"), asList("not a directory"));
+        }
+        //When
+        final List<String> records = readAll(products, customers);
+        final List<String> orderRecords = readOrders(orders);
+        //Then
+        assertThat(records).containsExactly("1 10.50", "2 123456789012345678901234.5", "1 John Maxwell");
+        assertThat(orderRecords).containsExactly("0 1 [1, 2]");
+    }
+
+    private List<String> readAll(final File products, final File customers) throws IOException {
+        final List<String> records = new ArrayList<>();
+        Utils.forEachProductPrice(products, ReadMode.COLUMNAR_CACHE, (productId, price) -> records.add(productId + " " + price));
+        Utils.forEachCustomer(customers, ReadMode.COLUMNAR_CACHE, customerId -> true, (customerId, firstName, lastName) ->
+                records.add(customerId + " " + firstName + " " + lastName)
+        );
+        return records;
+    }
+
+    private List<String> readOrders(final File orders) throws IOException {
+        final List<String> records = new ArrayList<>();
+        Utils.forEachOrder(orders, ReadMode.COLUMNAR_CACHE, (orderId, customerId, products, productCount) -> {
+            final List<Long> productIds = new ArrayList<>();
+            for (int index = 0; index < productCount; index++) {
+                productIds.add(products[index]);
+            }
+            records.add(orderId + " " + customerId + " " + productIds);
+        });
+        return records;
+    }
+
+    private File write(final String fileName, final String... lines) throws IOException {
+        final Path file = directory.resolve(fileName);
+        Files.write(file, asList(lines));
+        return file.toFile();
+    }
+}
@@ -0,0 +1,74 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+
+class CsvWriterShould {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "0.00", "-0.5", "3.0", "12.25", "1000", "0.000001", "0.0000001", "1E+3", "123456789012345678.9",
+            "9223372036854775807", "-9223372036854775808", "0.123456789012345678901", "3E-22"
+    })
+    void formatDecimalsLikeBigDecimalDoes(String decimal) throws IOException {
+        //Given
+        final File file = Files.createTempFile("decimals", ".csv").toFile();
+        file.deleteOnExit();
+        final BigDecimal value = new BigDecimal(decimal);
+        //When
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.field(value).field(value).endRecord();
+        }
+        //Then
+        assertThat(contentOf(file)).isEqualTo(value + "," + value + System.lineSeparator());
+    }
+
+    @Test
+    void writeRecordsBiggerThanTheBuffer() throws IOException {
+        //Given
+        final File file = Files.createTempFile("records", ".csv").toFile();
+        file.deleteOnExit();
+        final StringBuilder expected = new StringBuilder("id,name,customer_ids").append(System.lineSeparator());
+        //When
+        try (CsvWriter writer = new CsvWriter(file, 16)) {
+            writer.writeHeader("id,name,customer_ids");
+            for (long id = -50; id < 50; id++) {
+                writer.field(id).field("\u00f1ame " + id).field(LongStream.of(id, Long.MAX_VALUE, Long.MIN_VALUE).iterator(), ' ').endRecord();
+                expected.append(id).append(",\u00f1ame ").append(id).append(',')
+                        .append(id).append(' ').append(Long.MAX_VALUE).append(' ').append(Long.MIN_VALUE)
+                        .append(System.lineSeparator());
+            }
+        }
+        //Then
+        assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)).isEqualTo(expected.toString());
+    }
+
+    @Test
+    void countTheBytesItIsGivenBeforeTheyAreFlushed() throws IOException {
+        //Given
+        final File file = Files.createTempFile("counted", ".csv").toFile();
+        file.deleteOnExit();
+        final long[] bytesWritten = new long[3];
+        //When
+        try (CsvWriter writer = new CsvWriter(file)) {
+            bytesWritten[0] = writer.getBytesWritten();
+            writer.writeHeader("id,name");
+            bytesWritten[1] = writer.getBytesWritten();
+            writer.field(42).field("\u00f1ame").endRecord();
+            bytesWritten[2] = writer.getBytesWritten();
+        }
+        //Then
+        assertThat(bytesWritten).containsExactly(0, ("id,name" + System.lineSeparator()).length(), file.length());
+    }
+}
@@ -0,0 +1,78 @@
+package utils;
+
+import model.Money;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import structures.LongMoneyMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.contentOf;
+
+class CustomerJoinShould {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "id,firstname,lastname|1,Ann,A|2,Bob,B|4,Cid,C|7,Dan,D|9,Eve,E",
+            "id,firstname,lastname|7,Dan,D|2,Bob,B|9,Eve,E|1,Ann,A|4,Cid,C",
+            "id,firstname,lastname|1,Ann,A|4,Cid,C|2,Bob,B|7,Dan,D|9,Eve,E"
+    })
+    void matchTheCustomersWithATotalWhetherOrNotTheyAreSortedById(final String customerLines) throws IOException {
+        //Given
+        final File customers = write(customerLines.split("\\|"));
+        final LongMoneyMap totals = totals(2, "10.5", 7, "3", 9, "7.25", 5, "1");
+        final List<String> hashJoined = new ArrayList<>();
+        //When
+        CustomerJoin.hashJoin(customers, ReadMode.MEMORY_MAPPED, totals, (customerId, firstName, lastName, totalIndex) ->
+                hashJoined.add(customerId + " " + firstName + " " + totals.getAt(totalIndex)));
+        //Then
+        assertThat(hashJoined).containsExactlyInAnyOrder("2 Bob 10.5", "7 Dan 3", "9 Eve 7.25");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"BUFFERED_READER", "COLUMNAR_CACHE"})
+    void rankTheJoinedRowsByTotalThenById(final ReadMode readMode) throws IOException {
+        //Given
+        final File customers = write("id,firstname,lastname", "1,Ann,A", "2,Bob,B", "4,Cid,C", "7,Dan,D");
+        final LongMoneyMap totals = totals(7, "3.50", 4, "10", 2, "3.5", 1, "0.1");
+        final RankingRows ranking = new RankingRows(totals);
+        CustomerJoin.hashJoin(customers, readMode, totals, ranking::add);
+        final File result = customers.toPath().resolveSibling("ranking.csv").toFile();
+        //When
+        ranking.sortByTotal();
+        try (CsvWriter writer = new CsvWriter(result)) {
+            ranking.writeTo(writer);
+        }
+        //Then
+        assertThat(contentOf(result)).isEqualToIgnoringNewLines("4,Cid,C,10\n2,Bob,B,3.5\n7,Dan,D,3.50\n1,Ann,A,0.1\n");
+    }
+
+    private LongMoneyMap totals(final Object... idsAndAmounts) {
+        final LongMoneyMap totals = new LongMoneyMap(2);
+        final Money amount = new Money(2);
+        for (int index = 0; index < idsAndAmounts.length; index += 2) {
+            amount.clear();
+            amount.add(new BigDecimal((String) idsAndAmounts[index + 1]));
+            totals.put((Integer) idsAndAmounts[index], amount);
+        }
+        return totals;
+    }
+
+    private File write(final String... lines) throws IOException {
+        final Path file = directory.resolve("customers.csv");
+        Files.write(file, asList(lines));
+        return file.toFile();
+    }
+}
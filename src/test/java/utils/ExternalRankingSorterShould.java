@@ -0,0 +1,98 @@
+package utils;
+
+import model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExternalRankingSorterShould {
+
+    private static final int SCALE = 2;
+
+    @Test
+    void mergeInSeveralPassesWhenTheRunsDoNotFitInTheBudgetAtOnce(@TempDir final Path spillDirectory) throws IOException {
+        //Given
+        final Random random = new Random(3);
+        final List<Ranked> expected = new ArrayList<>();
+        final List<Ranked> result = new ArrayList<>();
+        final Money total = new Money(SCALE);
+        final int passes;
+        //Three read buffers fit in the budget, so runs are merged three at a time
+        try (ExternalRankingSorter sorter = new ExternalRankingSorter(3 * 4096, SCALE, spillDirectory)) {
+            for (long id = 0; id < 5_000; id++) {
+                total.clear();
+                total.add(random.nextInt(1_000), SCALE, 1);
+                expected.add(new Ranked(id, "First" + id, total.toBigDecimal()));
+                sorter.add(id, "First" + id, "Last" + id, total);
+            }
+            //When
+            sorter.forEachSorted((customerId, firstName, lastName, customerTotal) ->
+                    result.add(new Ranked(customerId, firstName, customerTotal.toBigDecimal()))
+            );
+            passes = sorter.getMergePasses();
+            assertThat(sorter.getRunCount()).isLessThanOrEqualTo(3);
+        }
+        //Then
+        expected.sort(Ranked.BY_TOTAL_THEN_ID);
+        assertThat(passes).isGreaterThan(1);
+        assertThat(result.stream().map(Ranked::toString).collect(toList()))
+                .containsExactlyElementsOf(expected.stream().map(Ranked::toString).collect(toList()));
+        try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+            assertThat(leftovers).isEmpty();
+        }
+    }
+
+    @Test
+    void keepTheTotalsThatOverflowedALongThroughTheRuns(@TempDir final Path spillDirectory) throws IOException {
+        //Given
+        final Money small = new Money(SCALE);
+        small.add(150, SCALE, 1);
+        final Money huge = new Money(SCALE);
+        huge.add(Long.MAX_VALUE, SCALE, 1);
+        huge.add(Long.MAX_VALUE, SCALE, 1);
+        final List<String> result = new ArrayList<>();
+        //Every customer goes over the budget, so each one is spilled to its own run
+        try (ExternalRankingSorter sorter = new ExternalRankingSorter(1, SCALE, spillDirectory)) {
+            sorter.add(1, "Small", "One", small);
+            sorter.add(2, "Huge", "Two", huge);
+            sorter.add(3, "Small", "Three", small);
+            //When
+            sorter.forEachSorted((customerId, firstName, lastName, total) -> result.add(customerId + " " + total.toBigDecimal()));
+        }
+        //Then
+        assertThat(huge.getExact()).isNotNull();
+        assertThat(result).containsExactly("2 " + huge.toBigDecimal(), "1 1.50", "3 1.50");
+    }
+
+    private static class Ranked {
+        private static final Comparator<Ranked> BY_TOTAL_THEN_ID =
+                Comparator.comparing((Ranked ranked) -> ranked.total).reversed().thenComparingLong(ranked -> ranked.id);
+
+        private final long id;
+        private final String firstName;
+        private final BigDecimal total;
+
+        private Ranked(final long id, final String firstName, final BigDecimal total) {
+            this.id = id;
+            this.firstName = firstName;
+            this.total = total;
+        }
+
+        @Override
+        public String toString() {
+            return id + " " + firstName + " " + total;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ProductPriceIndexShould {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void lookUpPricesByIdInAnUnsortedCatalog() throws IOException {
+        //Given
+        final File products = write("id,name,cost", "30,Tie,10.50", "-2,Hat,0.1", "7,Shoe,3", "30,Tie again,11.25", "1,Last,2.000");
+        //When
+        final ProductPriceIndex index = ProductPriceIndex.open(products);
+        //Then
+        assertThat(index.getProductCount()).isEqualTo(4);
+        assertThat(index.getPrice(30)).hasToString("11.25");
+        assertThat(index.getPrice(-2)).hasToString("0.1");
+        assertThat(index.getPrice(7)).hasToString("3");
+        assertThat(index.getPrice(1)).hasToString("2.000");
+        assertThat(index.getPrice(8)).isNull();
+    }
+
+    @Test
+    void keepTheMostRecentlyUsedPricesCached() throws IOException {
+        //Given
+        final File products = write("id,name,cost", "1,One,1", "2,Two,2", "3,Three,3");
+        final ProductPriceIndex index = ProductPriceIndex.open(products, 2);
+        //When
+        index.getPrice(1);
+        index.getPrice(2);
+        index.getPrice(1);
+        index.getPrice(3);
+        index.getPrice(2);
+        //Then
+        assertThat(index.getCache().getHits()).isEqualTo(1);
+        assertThat(index.getCache().getMisses()).isEqualTo(4);
+        assertThat(index.getCache().getEvictions()).isEqualTo(2);
+    }
+
+    @Test
+    void rebuildTheIndexWhenTheCatalogChanges() throws IOException {
+        //Given
+        final File products = write("id,name,cost", "1,One,1");
+        ProductPriceIndex.open(products);
+        Files.write(products.toPath(), asList("id,name,cost", "1,One,1.5", "2,Two,2"));
+        //When
+        final ProductPriceIndex index = ProductPriceIndex.open(products);
+        //Then
+        assertThat(index.getPrice(1)).isEqualTo(new BigDecimal("1.5"));
+        assertThat(index.getPrice(2)).isEqualTo(new BigDecimal("2"));
+    }
+
+    @Test
+    void keepLookingUpPricesAfterAnInterruptedRead() throws IOException {
+        //Given
+        final File products = write("id,name,cost", "1,One,1", "2,Two,2");
+        final ProductPriceIndex index = ProductPriceIndex.open(products);
+        //An interrupted read closes the channel, as cancelling a running calculation does
+        Thread.currentThread().interrupt();
+        assertThatThrownBy(() -> index.getPrice(1)).isInstanceOf(ClosedByInterruptException.class);
+        Thread.interrupted();
+        //When
+        final boolean stale = index.isStale();
+        final BigDecimal price = index.getPrice(2);
+        //Then
+        assertThat(stale).isFalse();
+        assertThat(price).isEqualTo(new BigDecimal("2"));
+    }
+
+    @Test
+    void stopReadingTheCatalogOnceClosed() throws IOException {
+        //Given
+        final File products = write("id,name,cost", "1,One,1", "2,Two,2");
+        final ProductPriceIndex index = ProductPriceIndex.open(products);
+        index.getPrice(1);
+        //When
+        index.close();
+        //Then
+        assertThat(index.getPrice(1)).isEqualTo(new BigDecimal("1"));
+        assertThatThrownBy(() -> index.getPrice(2)).isInstanceOf(ClosedChannelException.class);
+    }
+
+    private File write(final String... lines) throws IOException {
+        final Path file = directory.resolve("products.csv");
+        Files.write(file, asList(lines));
+        return file.toFile();
+    }
+}
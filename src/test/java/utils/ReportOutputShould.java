@@ -0,0 +1,246 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ReportOutputShould {
+
+    private static final String HEADER = "id,value";
+    private static final String FILE_NAME = "report.csv";
+    private static final long[] IDS = {3, 8, 15, 16, 23, 42, 108, 4815, 162342};
+
+    @Test
+    void gzippedReportHasTheSameContentsAsThePlainOne(@TempDir final Path directory) throws IOException {
+        //Given
+        //When
+        final File plain = new ReportOutput(directory, OutputOptions.PLAIN).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        final File gzipped = new ReportOutput(directory, new OutputOptions(true)).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        assertThat(gzipped.getName()).isEqualTo(FILE_NAME + ".gz");
+        assertThat(gunzip(gzipped)).isEqualTo(read(plain));
+        assertThat(listNames(directory)).containsExactlyInAnyOrder(FILE_NAME, FILE_NAME + ".gz");
+    }
+
+    @Test
+    void rangePartitionsReadInOrderHaveTheRowsOfTheSingleFile(@TempDir final Path directory) throws IOException {
+        //Given
+        final File single = new ReportOutput(directory, OutputOptions.PLAIN).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //When
+        final File partitioned = new ReportOutput(directory, OutputOptions.rangeParts(false, 40))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        assertThat(partitioned).isDirectory();
+        final List<String> parts = listNames(partitioned.toPath());
+        assertThat(parts.size()).isGreaterThan(1);
+        for (int part = 0; part < parts.size(); part++) {
+            assertThat(parts.get(part)).isEqualTo(String.format("part-%05d-of-%05d.csv", part, parts.size()));
+        }
+        assertThat(readParts(partitioned)).isEqualTo(read(single));
+    }
+
+    @Test
+    void rangePartitionsRollOverByBytesSoLongRowsGetPartsOfTheirOwn(@TempDir final Path directory) throws IOException {
+        //Given
+        //A few rows are much longer than the rest, like the customer lists of the most ordered products
+        final String[] values = new String[100];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = row % 25 == 0 ? String.join("", Collections.nCopies(200, "x")) : "y";
+        }
+        final Supplier<ReportOutput.RowWriter<CsvWriter>> rows = () -> (writer, row) -> writer.field(row).field(values[row]).endRecord();
+        //When
+        final File partitioned = new ReportOutput(directory, OutputOptions.rangeParts(false, 200))
+                .write(FILE_NAME, HEADER, values.length, row -> row, rows);
+        //Then
+        final List<String> parts = listNames(partitioned.toPath());
+        for (String part : parts.subList(0, parts.size() - 1)) {
+            assertThat(partitioned.toPath().resolve(part).toFile().length()).isBetween(200L, 200L + 205);
+        }
+        assertThat(parts).hasSize(5);
+        assertThat(readParts(partitioned)).hasSize(values.length + 1);
+    }
+
+    @Test
+    void gzippedRangePartitionsRollOverOnTheBytesBeforeCompression(@TempDir final Path directory) throws IOException {
+        //Given
+        final File single = new ReportOutput(directory, OutputOptions.PLAIN).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //When
+        final File partitioned = new ReportOutput(directory, OutputOptions.rangeParts(true, 40))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        final List<String> parts = listNames(partitioned.toPath());
+        assertThat(parts.size()).isGreaterThan(1);
+        final List<String> lines = new ArrayList<>();
+        for (String part : parts) {
+            final List<String> partLines = gunzip(partitioned.toPath().resolve(part).toFile());
+            lines.addAll(lines.isEmpty() ? partLines : partLines.subList(1, partLines.size()));
+        }
+        assertThat(lines).isEqualTo(read(single));
+    }
+
+    @Test
+    void rangePartitionsAreNotCountedBeforehand() {
+        //When
+        final Throwable partitionCount = catchThrowable(() -> new OutputOptions(false, 4, OutputOptions.Partitioning.RANGE));
+        //Then
+        assertThat(partitionCount).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void hashPartitionsKeepEveryIdInItsPartition(@TempDir final Path directory) throws IOException {
+        //Given
+        final OutputOptions options = new OutputOptions(true, 3, OutputOptions.Partitioning.HASH);
+        //When
+        final File partitioned = new ReportOutput(directory, options).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        final List<Long> ids = new ArrayList<>();
+        for (int partition = 0; partition < 3; partition++) {
+            final File part = partitioned.toPath().resolve(String.format("part-%05d-of-00003.csv.gz", partition)).toFile();
+            final List<String> lines = gunzip(part);
+            for (String line : lines.subList(1, lines.size())) {
+                final long id = Long.parseLong(line.split(",")[0]);
+                assertThat(ReportOutput.partitionOf(id, 3)).isEqualTo(partition);
+                ids.add(id);
+            }
+        }
+        assertThat(ids).containsExactlyInAnyOrder(Arrays.stream(IDS).boxed().toArray(Long[]::new));
+    }
+
+    @Test
+    void aNewPartitionedReportReplacesThePreviousOneWithoutLeavingTemporaryFiles(@TempDir final Path directory) throws IOException {
+        //Given
+        final Path report = directory.resolve("report");
+        new ReportOutput(directory, new OutputOptions(false, 4, OutputOptions.Partitioning.HASH))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        new ReportOutput(directory, new OutputOptions(false, 3, OutputOptions.Partitioning.HASH))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        final Path previousVersion = Files.readSymbolicLink(report);
+        //When
+        final File partitioned = new ReportOutput(directory, new OutputOptions(false, 2, OutputOptions.Partitioning.HASH))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        final Path version = Files.readSymbolicLink(report);
+        assertThat(Files.readSymbolicLink(directory.resolve(".report.previous"))).isEqualTo(previousVersion);
+        assertThat(listNames(directory)).containsExactlyInAnyOrder("report", ".report.previous", version.toString(), previousVersion.toString());
+        assertThat(listNames(partitioned.toPath())).containsExactly("part-00000-of-00002.csv", "part-00001-of-00002.csv");
+    }
+
+    @Test
+    void aPartitionedReportIsAlwaysThereWhileTheNextOneIsPublished(@TempDir final Path directory) throws Exception {
+        //Given
+        final Path report = directory.resolve("report");
+        new ReportOutput(directory, OutputOptions.rangeParts(false, 40)).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        final List<String> expected = readParts(report.toFile());
+        final AtomicBoolean publishing = new AtomicBoolean(true);
+        final ExecutorService publisher = Executors.newSingleThreadExecutor();
+        //When
+        final Future<?> publishes = publisher.submit(() -> {
+            try {
+                for (int publish = 0; publish < 200; publish++) {
+                    new ReportOutput(directory, OutputOptions.rangeParts(false, 40)).write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+                }
+            } finally {
+                publishing.set(false);
+            }
+            return null;
+        });
+        int missing = 0;
+        try {
+            //The name is checked, not what it links to: a reader stalled over several back to back publishes could find
+            //the version it resolved deleted, which is fine, as only the version before the current one is kept
+            while (publishing.get()) {
+                if (!Files.isSymbolicLink(report)) {
+                    missing++;
+                }
+            }
+            publishes.get();
+        } finally {
+            publisher.shutdownNow();
+        }
+        //Then
+        assertThat(missing).isZero();
+        assertThat(readParts(report.toFile())).isEqualTo(expected);
+        //The report, the link to the version before and both versions
+        assertThat(listNames(directory)).hasSize(4);
+    }
+
+    @Test
+    void aPlainDirectoryReportIsReplacedByTheNextVersion(@TempDir final Path directory) throws IOException {
+        //Given
+        final Path report = Files.createDirectory(directory.resolve("report"));
+        Files.write(report.resolve("part-00000-of-00001.csv"), singletonList(HEADER));
+        //When
+        final File partitioned = new ReportOutput(directory, new OutputOptions(false, 2, OutputOptions.Partitioning.HASH))
+                .write(FILE_NAME, HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        assertThat(Files.isSymbolicLink(report)).isTrue();
+        assertThat(listNames(directory)).hasSize(2);
+        assertThat(listNames(partitioned.toPath())).containsExactly("part-00000-of-00002.csv", "part-00001-of-00002.csv");
+    }
+
+    @Test
+    void aSingleFileReportReplacesThePartitionedOne(@TempDir final Path directory) throws IOException {
+        //Given
+        new ReportOutput(directory, new OutputOptions(false, 2, OutputOptions.Partitioning.HASH))
+                .write("report", HEADER, IDS.length, row -> IDS[row], rows());
+        //When
+        final File single = new ReportOutput(directory, OutputOptions.PLAIN).write("report", HEADER, IDS.length, row -> IDS[row], rows());
+        //Then
+        assertThat(single).isFile();
+        assertThat(Files.isSymbolicLink(single.toPath())).isFalse();
+        assertThat(listNames(directory)).contains("report", ".report.previous").hasSize(3);
+    }
+
+    private Supplier<ReportOutput.RowWriter<CsvWriter>> rows() {
+        return () -> (writer, row) -> writer.field(IDS[row]).field(IDS[row] * 2).endRecord();
+    }
+
+    //The header, then the rows of every part in order
+    private List<String> readParts(final File partitioned) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (String part : listNames(partitioned.toPath())) {
+            final List<String> partLines = read(partitioned.toPath().resolve(part).toFile());
+            assertThat(partLines.get(0)).isEqualTo(HEADER);
+            lines.addAll(lines.isEmpty() ? partLines : partLines.subList(1, partLines.size()));
+        }
+        return lines;
+    }
+
+    private List<String> read(final File file) throws IOException {
+        return Files.readAllLines(file.toPath());
+    }
+
+    private List<String> gunzip(final File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+            return Arrays.asList(new String(in.readAllBytes(), StandardCharsets.UTF_8).split(System.lineSeparator()));
+        }
+    }
+
+    private List<String> listNames(final Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VarintWriterShould {
+
+    private static final long[] VALUES = {0, 1, 127, 128, 300, 16384, -1, -64, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    @Test
+    void varintsAreReadBackAsTheyWereWritten() throws IOException {
+        //Given
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (VarintWriter writer = new VarintWriter(Channels.newChannel(bytes), 16)) {
+            for (long value : VALUES) {
+                writer.writeVarint(value).writeSignedVarint(value);
+            }
+        }
+        //When
+        final VarintReader reader = new VarintReader(new ByteArrayInputStream(bytes.toByteArray()));
+        //Then
+        for (long value : VALUES) {
+            assertThat(reader.readVarint()).isEqualTo(value);
+            assertThat(reader.readSignedVarint()).isEqualTo(value);
+        }
+        assertThat(reader.hasMore()).isFalse();
+    }
+
+    @Test
+    void smallValuesTakeASingleByte() throws IOException {
+        //Given
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        //When
+        try (VarintWriter writer = new VarintWriter(Channels.newChannel(bytes))) {
+            writer.writeVarint(127).writeSignedVarint(-64).writeSignedVarint(63);
+        }
+        //Then
+        assertThat(bytes.toByteArray()).hasSize(3);
+    }
+}